@@ -0,0 +1,197 @@
+package com.luoyu.dynamiclog.actuator;
+
+import com.luoyu.dynamiclog.config.DynamicLogSnapshot;
+import com.luoyu.dynamiclog.config.InterfaceLogConfig;
+import com.luoyu.dynamiclog.interceptor.RequestTraceLifecycle;
+import com.luoyu.dynamiclog.log.LoggerLevelManager;
+import com.luoyu.dynamiclog.nacos.NacosConfigManager;
+import com.luoyu.dynamiclog.quota.ClusterTraceBudget;
+import com.luoyu.dynamiclog.trace.TraceBudget;
+import com.luoyu.dynamiclog.trace.TraceContext;
+import com.luoyu.dynamiclog.trace.TraceManager;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.boot.actuate.endpoint.InvalidEndpointRequestException;
+import org.springframework.boot.actuate.endpoint.annotation.DeleteOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Selector;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.lang.Nullable;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+
+/**
+ * 动态日志端点（/actuator/dynamiclog）
+ * <p>
+ * 读取：当前配置快照中的接口及剩余名额、被提升级别的Logger及原始级别、进行中的追踪和最近结束的追踪摘要。
+ * 写入：{@code POST /actuator/dynamiclog/start}、{@code POST /actuator/dynamiclog/stop}在本实例上直接开始或结束接口会话，
+ * {@code DELETE /actuator/dynamiclog}立即恢复所有被修改的日志级别，都不经过Nacos。
+ *
+ * @author system
+ * @date 2024-01-01
+ */
+@Slf4j
+@Endpoint(id = "dynamiclog")
+public class DynamicLogEndpoint {
+    private final NacosConfigManager nacosConfigManager;
+    private final TraceManager traceManager;
+    private final RequestTraceLifecycle traceLifecycle;
+
+    public DynamicLogEndpoint(NacosConfigManager nacosConfigManager, TraceManager traceManager,
+                              RequestTraceLifecycle traceLifecycle) {
+        this.nacosConfigManager = nacosConfigManager;
+        this.traceManager = traceManager;
+        this.traceLifecycle = traceLifecycle;
+    }
+
+    /**
+     * 查看插件状态
+     *
+     * @return 状态
+     */
+    @ReadOperation
+    public Map<String, Object> status() {
+        DynamicLogSnapshot snapshot = nacosConfigManager.getSnapshot();
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("generation", snapshot.getGeneration());
+        result.put("enabled", snapshot.isEnabled());
+        result.put("remoteCallType", snapshot.getRemoteCallType());
+        result.put("interfaces", snapshot.getInterfaces().stream()
+                .map(this::describeInterface).collect(Collectors.toList()));
+        result.put("elevatedLoggers", describeElevatedLoggers());
+        result.put("inFlightTraces", traceManager.getInFlightTraces().stream()
+                .map(this::describeTrace).collect(Collectors.toList()));
+        result.put("recentTraces", traceManager.getRecentTraces());
+        return result;
+    }
+
+    /**
+     * 开始或结束接口会话
+     *
+     * @param action start 或 stop
+     * @param path 接口路径
+     * @param method HTTP方法（为空表示不限定方法的会话）
+     * @param logLevel 日志级别（start时使用）
+     * @param count 追踪次数（start时使用，默认1）
+     * @param loggers 额外提升级别的Logger，逗号分隔（start时使用）
+     * @return 操作结果
+     */
+    @WriteOperation
+    public Map<String, Object> session(@Selector String action, String path, @Nullable String method,
+                                       @Nullable String logLevel, @Nullable Integer count, @Nullable String loggers) {
+        if (StringUtils.isBlank(path)) {
+            throw new InvalidEndpointRequestException("Path is required", "path is required");
+        }
+
+        boolean applied;
+        if ("start".equalsIgnoreCase(action)) {
+            InterfaceLogConfig session = new InterfaceLogConfig();
+            session.setPath(path);
+            session.setMethod(StringUtils.trimToNull(method));
+            session.setLogLevel(logLevel);
+            session.setCount(count == null ? 1 : count);
+            if (StringUtils.isNotBlank(loggers)) {
+                session.setLoggers(new ArrayList<>(Arrays.asList(StringUtils.split(loggers, ", "))));
+            }
+            applied = nacosConfigManager.startSession(session);
+            log.info("Dynamic log session started from endpoint: {} {}, level: {}, count: {}, applied: {}",
+                    method, path, logLevel, session.getCount(), applied);
+        } else if ("stop".equalsIgnoreCase(action)) {
+            applied = nacosConfigManager.stopSession(path, StringUtils.trimToNull(method));
+            log.info("Dynamic log session stopped from endpoint: {} {}, applied: {}", method, path, applied);
+        } else {
+            throw new InvalidEndpointRequestException("Unknown action " + action, "action must be start or stop");
+        }
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("applied", applied);
+        result.put("generation", nacosConfigManager.getSnapshot().getGeneration());
+        return result;
+    }
+
+    /**
+     * 立即恢复所有被修改的日志级别（会话仍然生效，之后匹配的请求会再次提升级别）
+     *
+     * @return 恢复的Logger
+     */
+    @DeleteOperation
+    public Map<String, Object> restore() {
+        // 先清空各会话的提升登记再恢复级别，否则Feign、RPC等只在首次登记时提升的Logger不会再被提升
+        nacosConfigManager.clearElevatedLoggers();
+        traceLifecycle.clearPropagationLoggers();
+        Map<String, String> modified = LoggerLevelManager.getModifiedLevels();
+        LoggerLevelManager.clearAll();
+        log.info("Restored {} dynamic logger levels from endpoint", modified.size());
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("restored", new TreeMap<>(modified).keySet());
+        return result;
+    }
+
+    /**
+     * 描述接口配置及剩余名额
+     *
+     * @param config 接口配置
+     * @return 描述
+     */
+    private Map<String, Object> describeInterface(InterfaceLogConfig config) {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("path", config.getPath());
+        result.put("method", config.getMethod());
+        result.put("logLevel", config.getLogLevel());
+        result.put("count", config.getCount());
+        result.put("retroactive", Boolean.TRUE.equals(config.getRetroactive()));
+
+        TraceBudget budget = config.getTraceBudget();
+        if (budget != null) {
+            result.put("reserved", budget.getReserved());
+            result.put("finished", budget.getFinished());
+            result.put("remaining", Math.max(0, budget.getLimit() - budget.getReserved()));
+            result.put("completed", budget.isCompleted());
+            if (budget instanceof ClusterTraceBudget) {
+                result.put("clusterLimit", ((ClusterTraceBudget) budget).getClusterLimit());
+            }
+        }
+        result.put("elevatedLoggers", new ArrayList<>(config.getElevatedLoggers()));
+        return result;
+    }
+
+    /**
+     * 描述被提升级别的Logger
+     *
+     * @return Logger名称到当前级别和原始级别的映射
+     */
+    private Map<String, Object> describeElevatedLoggers() {
+        Map<String, Object> result = new TreeMap<>();
+        LoggerLevelManager.getModifiedLevels().forEach((loggerName, level) -> {
+            Map<String, String> levels = new LinkedHashMap<>();
+            levels.put("level", level);
+            levels.put("originalLevel", LoggerLevelManager.getOriginalLevel(loggerName));
+            result.put(loggerName, levels);
+        });
+        return result;
+    }
+
+    /**
+     * 描述进行中的追踪
+     *
+     * @param context 追踪上下文
+     * @return 描述
+     */
+    private Map<String, Object> describeTrace(TraceContext context) {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("traceId", context.getTraceId());
+        result.put("method", context.getMethod());
+        result.put("path", context.getPath());
+        result.put("startTime", context.getStartTime());
+        result.put("elapsed", System.currentTimeMillis() - context.getStartTime());
+        result.put("nodeCount", context.getAllNodes().size());
+        return result;
+    }
+}
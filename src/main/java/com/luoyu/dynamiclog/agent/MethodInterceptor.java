@@ -68,6 +68,15 @@ public class MethodInterceptor {
         traceContextThreadLocal.set(context);
     }
 
+    /**
+     * 获取当前线程的追踪上下文
+     *
+     * @return 追踪上下文，当前线程未在追踪时返回null
+     */
+    public static TraceContext getTraceContext() {
+        return traceContextThreadLocal.get();
+    }
+
     /**
      * 清除追踪上下文
      */
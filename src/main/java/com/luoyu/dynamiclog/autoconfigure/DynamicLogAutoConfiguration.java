@@ -1,27 +1,46 @@
 package com.luoyu.dynamiclog.autoconfigure;
 
-import com.luoyu.dynamiclog.aspect.FeignAspect;
-import com.luoyu.dynamiclog.aspect.RpcAspect;
+import com.luoyu.dynamiclog.actuator.DynamicLogEndpoint;
 import com.luoyu.dynamiclog.config.DynamicLogConfig;
+import com.luoyu.dynamiclog.config.DynamicLogSnapshot;
+import com.luoyu.dynamiclog.interceptor.DynamicLogFilter;
 import com.luoyu.dynamiclog.interceptor.DynamicLogInterceptor;
+import com.luoyu.dynamiclog.interceptor.RequestTraceLifecycle;
+import com.luoyu.dynamiclog.log.DynamicLogFileAppender;
+import com.luoyu.dynamiclog.log.RateLimitTurboFilter;
+import com.luoyu.dynamiclog.log.RequestCaptureTurboFilter;
+import com.luoyu.dynamiclog.log.RetroLogTurboFilter;
 import com.luoyu.dynamiclog.nacos.NacosConfigManager;
+import com.luoyu.dynamiclog.quota.ClusterQuotaBackend;
 import com.luoyu.dynamiclog.remote.FeignInterceptor;
 import com.luoyu.dynamiclog.remote.RemoteCallInterceptor;
 import com.luoyu.dynamiclog.remote.RpcInterceptor;
+import com.luoyu.dynamiclog.remote.dubbo.DynamicLogDubboFilter;
+import com.luoyu.dynamiclog.remote.dubbo.DynamicLogDubboProviderFilter;
+import com.luoyu.dynamiclog.remote.feign.DynamicLogFeignCapability;
+import com.luoyu.dynamiclog.remote.feign.DynamicLogFeignRequestInterceptor;
+import com.luoyu.dynamiclog.source.ConfigSource;
 import com.luoyu.dynamiclog.trace.TraceManager;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.StringUtils;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.boot.context.event.ApplicationReadyEvent;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
 import org.springframework.context.ApplicationListener;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
 import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
 
+import javax.servlet.DispatcherType;
+
 /**
  * 动态日志自动配置类
  *
@@ -80,13 +99,17 @@ public class DynamicLogAutoConfiguration implements WebMvcConfigurer, Applicatio
      * 创建Nacos配置管理器
      *
      * @param config 动态日志配置
+     * @param configSources 自定义配置来源（存在时优先使用，如进程内配置来源）
+     * @param quotaBackends 自定义集群配额后端（存在时优先使用）
      * @return Nacos配置管理器
      */
     @Bean
-    public NacosConfigManager nacosConfigManager(DynamicLogConfig config) {
+    public NacosConfigManager nacosConfigManager(DynamicLogConfig config, ObjectProvider<ConfigSource> configSources,
+                                                 ObjectProvider<ClusterQuotaBackend> quotaBackends) {
         NacosConfigManager manager = new NacosConfigManager();
+        manager.setQuotaBackend(quotaBackends.getIfAvailable());
         try {
-            manager.init(config);
+            manager.init(config, configSources.getIfAvailable());
             this.nacosConfigManager = manager;
         } catch (Exception e) {
             log.error("Failed to initialize Nacos config manager", e);
@@ -94,48 +117,101 @@ public class DynamicLogAutoConfiguration implements WebMvcConfigurer, Applicatio
         return manager;
     }
 
+    /**
+     * 创建动态日志文件追加器
+     *
+     * @param config 动态日志配置
+     * @param nacosConfigManager Nacos配置管理器（远程配置修改输出路径或文件名时切换输出文件）
+     * @return 动态日志文件追加器
+     */
+    @Bean(destroyMethod = "close")
+    public DynamicLogFileAppender dynamicLogFileAppender(DynamicLogConfig config, NacosConfigManager nacosConfigManager) {
+        DynamicLogSnapshot snapshot = nacosConfigManager.getSnapshot();
+        DynamicLogFileAppender appender = new DynamicLogFileAppender();
+        appender.init(config, snapshot.getLogOutputPath(), snapshot.getLogFileName());
+        nacosConfigManager.addSnapshotListener(
+                next -> appender.reopen(next.getLogOutputPath(), next.getLogFileName()));
+        return appender;
+    }
+
     /**
      * 创建追踪管理器
      *
+     * @param dynamicLogFileAppender 动态日志文件追加器
      * @return 追踪管理器
      */
     @Bean
-    public TraceManager traceManager() {
-        return new TraceManager();
+    public TraceManager traceManager(DynamicLogFileAppender dynamicLogFileAppender) {
+        TraceManager traceManager = new TraceManager();
+        traceManager.setFileAppender(dynamicLogFileAppender);
+        Integer recentTraceSize = dynamicLogConfig().getRecentTraceSize();
+        traceManager.setRecentTraceSize(recentTraceSize == null ? 0 : recentTraceSize);
+        return traceManager;
     }
 
     /**
-     * 创建动态日志拦截器
+     * 创建请求追踪生命周期
      *
      * @param nacosConfigManager Nacos配置管理器
      * @param traceManager 追踪管理器
+     * @return 请求追踪生命周期
+     */
+    @Bean
+    public RequestTraceLifecycle requestTraceLifecycle(NacosConfigManager nacosConfigManager, TraceManager traceManager) {
+        return new RequestTraceLifecycle(nacosConfigManager, traceManager);
+    }
+
+    /**
+     * 创建动态日志拦截器
+     *
+     * @param requestTraceLifecycle 请求追踪生命周期
+     * @param config 动态日志配置
      * @return 动态日志拦截器
      */
     @Bean
-    public DynamicLogInterceptor dynamicLogInterceptor(NacosConfigManager nacosConfigManager, TraceManager traceManager) {
-        return new DynamicLogInterceptor(nacosConfigManager, traceManager);
+    public DynamicLogInterceptor dynamicLogInterceptor(RequestTraceLifecycle requestTraceLifecycle, DynamicLogConfig config) {
+        return new DynamicLogInterceptor(requestTraceLifecycle, isFilterEntryPoint(config));
+    }
+
+    /**
+     * 注册动态日志过滤器（仅在入口配置为filter时启用）
+     * <p>
+     * 顺序紧跟字符编码过滤器，在安全等过滤器之前开始追踪；同时处理异步重新分派。
+     *
+     * @param requestTraceLifecycle 请求追踪生命周期
+     * @return 过滤器注册
+     */
+    @Bean
+    @ConditionalOnProperty(prefix = "luoyu.dynamic-log", name = "entry-point", havingValue = "filter")
+    public FilterRegistrationBean<DynamicLogFilter> dynamicLogFilter(RequestTraceLifecycle requestTraceLifecycle) {
+        FilterRegistrationBean<DynamicLogFilter> registration =
+                new FilterRegistrationBean<>(new DynamicLogFilter(requestTraceLifecycle));
+        registration.setName("dynamicLogFilter");
+        registration.addUrlPatterns("/*");
+        registration.setDispatcherTypes(DispatcherType.REQUEST, DispatcherType.ASYNC);
+        registration.setAsyncSupported(true);
+        registration.setOrder(Ordered.HIGHEST_PRECEDENCE + 10);
+        return registration;
     }
 
     /**
      * 创建RPC拦截器
      *
-     * @param config 动态日志配置
      * @return RPC拦截器
      */
     @Bean
-    public RpcInterceptor rpcInterceptor(DynamicLogConfig config) {
-        return new RpcInterceptor(config);
+    public RpcInterceptor rpcInterceptor() {
+        return new RpcInterceptor();
     }
 
     /**
      * 创建Feign拦截器
      *
-     * @param config 动态日志配置
      * @return Feign拦截器
      */
     @Bean
-    public FeignInterceptor feignInterceptor(DynamicLogConfig config) {
-        return new FeignInterceptor(config);
+    public FeignInterceptor feignInterceptor() {
+        return new FeignInterceptor();
     }
 
     /**
@@ -145,38 +221,132 @@ public class DynamicLogAutoConfiguration implements WebMvcConfigurer, Applicatio
      * @param config 动态日志配置
      * @param rpcInterceptor RPC拦截器
      * @param feignInterceptor Feign拦截器
+     * @param traceManager 追踪管理器
      * @return 远程调用拦截器
      */
     @Bean
     public RemoteCallInterceptor remoteCallInterceptor(NacosConfigManager nacosConfigManager,
                                                         DynamicLogConfig config,
                                                         RpcInterceptor rpcInterceptor,
-                                                        FeignInterceptor feignInterceptor) {
-        return new RemoteCallInterceptor(nacosConfigManager, config, rpcInterceptor, feignInterceptor);
+                                                        FeignInterceptor feignInterceptor,
+                                                        TraceManager traceManager) {
+        return new RemoteCallInterceptor(nacosConfigManager, config, rpcInterceptor, feignInterceptor, traceManager);
     }
 
     /**
-     * 创建Feign切面（仅在配置为feign时启用）
-     *
-     * @param remoteCallInterceptor 远程调用拦截器
-     * @return Feign切面
+     * Feign相关配置（仅在引入Feign时启用）：请求拦截器提升Logger级别，Capability包装客户端记录远程调用节点
      */
-    @Bean
-    @ConditionalOnProperty(prefix = "luoyu.dynamic-log", name = "remote-call-type", havingValue = "feign")
-    public FeignAspect feignAspect(RemoteCallInterceptor remoteCallInterceptor) {
-        return new FeignAspect();
+    @Configuration
+    @ConditionalOnClass(name = "feign.Capability")
+    static class FeignConfiguration {
+
+        /**
+         * 创建Feign请求拦截器
+         *
+         * @param remoteCallInterceptor 远程调用拦截器
+         * @return Feign请求拦截器
+         */
+        @Bean
+        public DynamicLogFeignRequestInterceptor dynamicLogFeignRequestInterceptor(RemoteCallInterceptor remoteCallInterceptor) {
+            return new DynamicLogFeignRequestInterceptor(remoteCallInterceptor);
+        }
+
+        /**
+         * 创建Feign客户端装饰扩展
+         *
+         * @param remoteCallInterceptor 远程调用拦截器
+         * @return Feign扩展
+         */
+        @Bean
+        public DynamicLogFeignCapability dynamicLogFeignCapability(RemoteCallInterceptor remoteCallInterceptor) {
+            return new DynamicLogFeignCapability(remoteCallInterceptor);
+        }
     }
 
     /**
-     * 创建RPC切面（仅在配置为rpc时启用）
-     *
-     * @param remoteCallInterceptor 远程调用拦截器
-     * @return RPC切面
+     * Dubbo相关配置（仅在引入Dubbo时启用）：过滤器通过SPI由Dubbo创建，这里只注入远程调用拦截器和请求追踪生命周期
      */
-    @Bean
-    @ConditionalOnProperty(prefix = "luoyu.dynamic-log", name = "remote-call-type", havingValue = "rpc")
-    public RpcAspect rpcAspect(RemoteCallInterceptor remoteCallInterceptor) {
-        return new RpcAspect();
+    @Configuration
+    @ConditionalOnClass(name = "org.apache.dubbo.rpc.Filter")
+    static class DubboConfiguration implements DisposableBean {
+
+        DubboConfiguration(RemoteCallInterceptor remoteCallInterceptor, RequestTraceLifecycle requestTraceLifecycle) {
+            DynamicLogDubboFilter.setRemoteCallInterceptor(remoteCallInterceptor);
+            DynamicLogDubboProviderFilter.setLifecycle(requestTraceLifecycle);
+        }
+
+        @Override
+        public void destroy() {
+            DynamicLogDubboFilter.setRemoteCallInterceptor(null);
+            DynamicLogDubboProviderFilter.setLifecycle(null);
+        }
+    }
+
+    /**
+     * Actuator相关配置（仅在引入Actuator时启用）：注册dynamiclog端点，是否通过HTTP暴露由management.endpoints配置决定
+     */
+    @Configuration
+    @ConditionalOnClass(name = "org.springframework.boot.actuate.endpoint.annotation.Endpoint")
+    static class ActuatorConfiguration {
+
+        /**
+         * 创建动态日志端点
+         *
+         * @param nacosConfigManager Nacos配置管理器
+         * @param traceManager 追踪管理器
+         * @param requestTraceLifecycle 请求追踪生命周期
+         * @return 动态日志端点
+         */
+        @Bean
+        public DynamicLogEndpoint dynamicLogEndpoint(NacosConfigManager nacosConfigManager, TraceManager traceManager,
+                                                     RequestTraceLifecycle requestTraceLifecycle) {
+            return new DynamicLogEndpoint(nacosConfigManager, traceManager, requestTraceLifecycle);
+        }
+    }
+
+    /**
+     * Logback相关配置（仅在使用Logback时启用）
+     */
+    @Configuration
+    @ConditionalOnClass(name = "ch.qos.logback.classic.LoggerContext")
+    static class LogbackConfiguration {
+
+        /**
+         * 创建并注册动态日志限流过滤器
+         *
+         * @return 限流过滤器
+         */
+        @Bean
+        public RateLimitTurboFilter rateLimitTurboFilter() {
+            RateLimitTurboFilter filter = new RateLimitTurboFilter();
+            filter.install();
+            return filter;
+        }
+
+        /**
+         * 创建并注册追溯日志过滤器
+         *
+         * @return 追溯日志过滤器
+         */
+        @Bean
+        public RetroLogTurboFilter retroLogTurboFilter() {
+            RetroLogTurboFilter filter = new RetroLogTurboFilter();
+            filter.install();
+            return filter;
+        }
+
+        /**
+         * 创建并注册请求日志捕获过滤器（在限流过滤器之后注册，被限流的日志不会被捕获）
+         *
+         * @param rateLimitTurboFilter 日志限流过滤器
+         * @return 请求日志捕获过滤器
+         */
+        @Bean
+        public RequestCaptureTurboFilter requestCaptureTurboFilter(RateLimitTurboFilter rateLimitTurboFilter) {
+            RequestCaptureTurboFilter filter = new RequestCaptureTurboFilter();
+            filter.install();
+            return filter;
+        }
     }
 
     /**
@@ -187,13 +357,24 @@ public class DynamicLogAutoConfiguration implements WebMvcConfigurer, Applicatio
     @Override
     public void addInterceptors(InterceptorRegistry registry) {
         if (nacosConfigManager != null) {
-            TraceManager traceManager = traceManager();
-            DynamicLogInterceptor interceptor = new DynamicLogInterceptor(nacosConfigManager, traceManager);
+            TraceManager traceManager = traceManager(dynamicLogFileAppender(dynamicLogConfig(), nacosConfigManager));
+            DynamicLogInterceptor interceptor = dynamicLogInterceptor(
+                    requestTraceLifecycle(nacosConfigManager, traceManager), dynamicLogConfig());
             registry.addInterceptor(interceptor)
                     .addPathPatterns("/**");
         }
     }
 
+    /**
+     * 是否使用过滤器入口
+     *
+     * @param config 动态日志配置
+     * @return 是否为filter
+     */
+    private boolean isFilterEntryPoint(DynamicLogConfig config) {
+        return "filter".equalsIgnoreCase(config.getEntryPoint());
+    }
+
     /**
      * 应用启动完成后的处理
      *
@@ -202,8 +383,7 @@ public class DynamicLogAutoConfiguration implements WebMvcConfigurer, Applicatio
     @Override
     public void onApplicationEvent(ApplicationReadyEvent event) {
         if (nacosConfigManager != null) {
-            DynamicLogConfig config = nacosConfigManager.getDynamicLogConfig();
-            if (config != null && config.getEnabled()) {
+            if (nacosConfigManager.getSnapshot().isEnabled()) {
                 log.info("加载动态日志插件成功，动态日志插件已启用");
             } else {
                 log.info("加载动态日志插件成功，动态日志插件未启用");
@@ -0,0 +1,111 @@
+package com.luoyu.dynamiclog.config;
+
+import com.luoyu.dynamiclog.match.RequestConditionMatcher;
+import org.apache.commons.lang3.StringUtils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * 动态日志配置校验器
+ * <p>
+ * 在编译和发布配置快照之前校验下发的配置，一次收集全部问题；校验不通过的配置整体拒绝，当前生效的配置保持不变。
+ *
+ * @author system
+ * @date 2024-01-01
+ */
+public final class ConfigValidator {
+    private static final Set<String> LOG_LEVELS = new HashSet<>(Arrays.asList("TRACE", "DEBUG", "INFO", "WARN", "ERROR"));
+
+    /**
+     * 追溯缓冲区容量上限（条）：每个请求线程各自分配一个该容量的环形缓冲区
+     */
+    static final int MAX_RETRO_BUFFER_SIZE = 4096;
+
+    /**
+     * 单个请求最多捕获的日志字符数上限
+     */
+    static final int MAX_CAPTURE_SIZE = 4 * 1024 * 1024;
+
+    private ConfigValidator() {
+    }
+
+    /**
+     * 校验配置
+     *
+     * @param remoteCallType 远程调用类型
+     * @param interfaces 接口配置（为null表示本次未下发接口配置）
+     * @return 问题列表，为空表示校验通过
+     */
+    public static List<String> validate(String remoteCallType, List<InterfaceLogConfig> interfaces) {
+        List<String> errors = new ArrayList<>();
+        if (StringUtils.isNotBlank(remoteCallType)
+                && !"rpc".equalsIgnoreCase(remoteCallType) && !"feign".equalsIgnoreCase(remoteCallType)) {
+            errors.add("remoteCallType must be rpc or feign: " + remoteCallType);
+        }
+
+        if (interfaces == null) {
+            return errors;
+        }
+
+        for (int i = 0; i < interfaces.size(); i++) {
+            InterfaceLogConfig config = interfaces.get(i);
+            String name = "interfaces[" + i + "]";
+            if (config == null) {
+                errors.add(name + " is null");
+                continue;
+            }
+            validateInterface(name, config, errors);
+        }
+        return errors;
+    }
+
+    /**
+     * 校验单个接口配置
+     *
+     * @param name 配置名称（用于错误信息）
+     * @param config 接口配置
+     * @param errors 问题列表
+     */
+    private static void validateInterface(String name, InterfaceLogConfig config, List<String> errors) {
+        if (StringUtils.isBlank(config.getPath())) {
+            errors.add(name + ".path is blank");
+        }
+        if (StringUtils.isNotBlank(config.getLogLevel()) && !LOG_LEVELS.contains(config.getLogLevel().toUpperCase())) {
+            errors.add(name + ".logLevel is invalid: " + config.getLogLevel());
+        }
+        if (config.getCount() != null && config.getCount() < 0) {
+            errors.add(name + ".count must not be negative: " + config.getCount());
+        }
+        if (config.getSamplePercent() != null && (config.getSamplePercent() < 0D || config.getSamplePercent() > 100D)) {
+            errors.add(name + ".samplePercent must be between 0 and 100: " + config.getSamplePercent());
+        }
+        if (config.getWindowSeconds() != null && config.getWindowSeconds() <= 0) {
+            errors.add(name + ".windowSeconds must be positive: " + config.getWindowSeconds());
+        }
+        if (config.getStartTime() != null && config.getEndTime() != null && config.getStartTime() >= config.getEndTime()) {
+            errors.add(name + ".startTime must be before endTime");
+        }
+        if (config.getCaptureMaxSize() == null || config.getCaptureMaxSize() <= 0
+                || config.getCaptureMaxSize() > MAX_CAPTURE_SIZE) {
+            errors.add(name + ".captureMaxSize must be between 1 and " + MAX_CAPTURE_SIZE + ": "
+                    + config.getCaptureMaxSize());
+        }
+        if (config.getRetroBufferSize() == null || config.getRetroBufferSize() <= 0
+                || config.getRetroBufferSize() > MAX_RETRO_BUFFER_SIZE) {
+            errors.add(name + ".retroBufferSize must be between 1 and " + MAX_RETRO_BUFFER_SIZE + ": "
+                    + config.getRetroBufferSize());
+        }
+        if (config.getPropagateDepth() != null && config.getPropagateDepth() < 0) {
+            errors.add(name + ".propagateDepth must not be negative: " + config.getPropagateDepth());
+        }
+        try {
+            RequestConditionMatcher.compile(config.getConditions());
+        } catch (IllegalArgumentException e) {
+            errors.add(name + ".conditions: " + e.getMessage());
+        }
+    }
+}
@@ -2,6 +2,8 @@ package com.luoyu.dynamiclog.config;
 
 import lombok.Data;
 
+import java.util.List;
+
 /**
  * 动态日志配置类
  *
@@ -15,6 +17,36 @@ public class DynamicLogConfig {
      */
     private Boolean enabled = false;
 
+    /**
+     * 配置来源：nacos、file（本地JSON文件，修改后自动重新加载）或 inline（Spring Environment中的配置内容，可编程下发）
+     */
+    private String configSource = "nacos";
+
+    /**
+     * 本地配置文件路径（configSource为file时使用）
+     */
+    private String configFile;
+
+    /**
+     * 配置内容（JSON格式，configSource为inline时使用）
+     */
+    private String configContent;
+
+    /**
+     * 是否异步加载初始配置（异步时应用启动不等待配置来源，加载完成前插件按本地快照或不启用状态工作）
+     */
+    private Boolean configLoadAsync = true;
+
+    /**
+     * 本地配置快照文件路径（保存最近一次成功应用的配置，启动时立即加载，为空则不保存）
+     */
+    private String configSnapshotFile;
+
+    /**
+     * 配置变更防抖时间（毫秒），此时间内的连续修改只应用最后一次
+     */
+    private Long configReloadDebounceMs = 500L;
+
     /**
      * Nacos服务器地址
      */
@@ -49,4 +81,119 @@ public class DynamicLogConfig {
      * 日志文件名
      */
     private String logFileName = "dynamic-log.log";
+
+    /**
+     * 动态日志文件格式：text 或 json（JSON Lines）
+     */
+    private String logFormat = "text";
+
+    /**
+     * JSON格式下追踪结果的布局：trace（每次追踪一行，节点嵌套）或 node（每个节点一行）
+     */
+    private String logJsonTraceLayout = "trace";
+
+    /**
+     * 日志文件写入模式：sync（调用线程直接写入）、async（后台线程批量写入）或 mmap（内存映射分段写入）
+     */
+    private String logWriteMode = "sync";
+
+    /**
+     * 异步写入环形队列容量（条），队列满时丢弃新日志
+     */
+    private Integer logBufferSize = 8192;
+
+    /**
+     * 异步写入刷新间隔（毫秒），日志最多在内存中停留该时长后写入文件
+     */
+    private Long logFlushIntervalMs = 200L;
+
+    /**
+     * 异步写入持久化策略：none（写入页缓存即返回）或 fsync（每批写入后落盘）
+     */
+    private String logDurability = "none";
+
+    /**
+     * 内存映射写入模式下每个段文件的大小（字节）
+     */
+    private Integer logSegmentSize = 64 * 1024 * 1024;
+
+    /**
+     * 单个日志文件最大字节数，超过后滚动（为空或不大于0则不按大小滚动）
+     */
+    private Long logMaxFileSize;
+
+    /**
+     * 按时间滚动周期：none、daily 或 hourly
+     */
+    private String logRollingPeriod = "none";
+
+    /**
+     * 保留的滚动文件个数（为空或不大于0则不限制）
+     */
+    private Integer logMaxHistory;
+
+    /**
+     * 滚动文件总大小上限（字节，为空或不大于0则不限制）
+     */
+    private Long logTotalSizeCap;
+
+    /**
+     * 是否在后台线程gzip压缩滚动文件
+     */
+    private Boolean logCompress = false;
+
+    /**
+     * 接口匹配结果缓存的最大条目数（不大于0表示不缓存）
+     */
+    private Integer matchCacheSize = 10000;
+
+    /**
+     * 集群追踪配额：none（每个实例各自计数）、memory（进程内共享，用于测试）或 file（本地文件共享计数）
+     */
+    private String clusterQuota = "none";
+
+    /**
+     * 本地文件配额的计数文件目录（clusterQuota为file时使用）
+     */
+    private String clusterQuotaDir;
+
+    /**
+     * 每次从集群租用的追踪名额数
+     */
+    private Integer clusterQuotaBatchSize = 1;
+
+    /**
+     * 集群配额计数的保留时长（小时），超过该时长未被租用的计数被清理，应大于会话的最长生效时间
+     */
+    private Integer clusterQuotaExpireHours = 24;
+
+    /**
+     * 追踪入口：interceptor（Spring MVC拦截器，从解析出处理器开始）或 filter（Servlet过滤器，覆盖整个请求）
+     */
+    private String entryPoint = "interceptor";
+
+    /**
+     * 是否接收上游服务传播过来的动态日志会话
+     */
+    private Boolean acceptPropagation = false;
+
+    /**
+     * 每分钟最多追踪的传播请求数
+     */
+    private Integer propagationMaxPerMinute = 60;
+
+    /**
+     * 接收的最大传播深度，上游传来的深度超过时按此值截断
+     */
+    private Integer propagationMaxDepth = 3;
+
+    /**
+     * 传播请求额外提升级别的Logger（默认只提升处理请求的Controller或Dubbo服务实现类所在包）
+     */
+    private List<String> propagationLoggers;
+
+    /**
+     * 保留的最近追踪摘要数（供dynamiclog端点查看）
+     */
+    private Integer recentTraceSize = 20;
 }
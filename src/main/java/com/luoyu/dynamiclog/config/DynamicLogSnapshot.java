@@ -0,0 +1,87 @@
+package com.luoyu.dynamiclog.config;
+
+import com.luoyu.dynamiclog.match.InterfacePathIndex;
+import lombok.Getter;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 动态日志配置快照
+ * <p>
+ * 每次配置加载编译出一个不可变快照，通过单个volatile引用整体发布，请求线程读取一次引用即可得到一致的配置视图，
+ * 不会看到半更新的状态。接口配置对象本身仍携带运行时计数等状态。
+ *
+ * @author system
+ * @date 2024-01-01
+ */
+@Getter
+public final class DynamicLogSnapshot {
+    /**
+     * 配置代次（每次发布递增）
+     */
+    private final long generation;
+
+    /**
+     * 是否启用动态日志插件
+     */
+    private final boolean enabled;
+
+    /**
+     * 远程调用类型：rpc 或 feign
+     */
+    private final String remoteCallType;
+
+    /**
+     * 日志输出路径
+     */
+    private final String logOutputPath;
+
+    /**
+     * 日志文件名
+     */
+    private final String logFileName;
+
+    /**
+     * 接口配置列表（不可修改）
+     */
+    private final List<InterfaceLogConfig> interfaces;
+
+    /**
+     * 接口路径匹配索引
+     */
+    private final InterfacePathIndex pathIndex;
+
+    /**
+     * 是否有需要处理的接口（插件已启用且配置了接口），为false时请求入口直接放行
+     */
+    private final boolean active;
+
+    public DynamicLogSnapshot(long generation, boolean enabled, String remoteCallType, String logOutputPath,
+                              String logFileName, List<InterfaceLogConfig> interfaces) {
+        this.generation = generation;
+        this.enabled = enabled;
+        this.remoteCallType = remoteCallType;
+        this.logOutputPath = logOutputPath;
+        this.logFileName = logFileName;
+        this.interfaces = interfaces == null
+                ? Collections.emptyList()
+                : Collections.unmodifiableList(new ArrayList<>(interfaces));
+        this.pathIndex = this.interfaces.isEmpty()
+                ? InterfacePathIndex.empty()
+                : InterfacePathIndex.build(this.interfaces);
+        this.active = enabled && !this.interfaces.isEmpty();
+    }
+
+    /**
+     * 由本地配置创建初始快照（尚未加载任何接口配置）
+     *
+     * @param config 动态日志配置
+     * @return 初始快照
+     */
+    public static DynamicLogSnapshot initial(DynamicLogConfig config) {
+        return new DynamicLogSnapshot(0, Boolean.TRUE.equals(config.getEnabled()), config.getRemoteCallType(),
+                config.getLogOutputPath(), config.getLogFileName(), Collections.emptyList());
+    }
+}
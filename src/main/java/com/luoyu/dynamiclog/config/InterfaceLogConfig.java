@@ -1,6 +1,17 @@
 package com.luoyu.dynamiclog.config;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.luoyu.dynamiclog.log.LogRateLimiter;
+import com.luoyu.dynamiclog.match.RequestConditionMatcher;
+import com.luoyu.dynamiclog.trace.TraceActivationPolicy;
+import com.luoyu.dynamiclog.trace.TraceBudget;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.ToString;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * 接口日志配置
@@ -20,23 +31,134 @@ public class InterfaceLogConfig {
      */
     private String method;
 
+    /**
+     * 请求条件（请求头、参数、属性），路径和方法匹配后还需全部满足才生效，为空则不限制
+     */
+    private List<MatchCondition> conditions;
+
     /**
      * 动态日志级别（TRACE, DEBUG, INFO, WARN, ERROR）
      */
     private String logLevel;
 
+    /**
+     * 额外提升级别的Logger名称（类名或包名），与处理请求的Controller类及其所在包一起提升
+     */
+    private List<String> loggers;
+
     /**
      * 需要打印的次数
      */
     private Integer count = 1;
 
     /**
-     * 当前已打印次数
+     * 采样百分比（0~100，为空表示全部追踪），命中路径的请求按此比例随机选中后才占用追踪次数
+     */
+    private Double samplePercent;
+
+    /**
+     * 每个时间窗口内最多追踪的请求数（为空或不大于0则不限制）
+     */
+    private Integer maxTracesPerWindow;
+
+    /**
+     * 追踪时间窗口长度（秒）
+     */
+    private Integer windowSeconds = 60;
+
+    /**
+     * 生效开始时间（毫秒时间戳，为空则立即生效）
+     */
+    private Long startTime;
+
+    /**
+     * 生效结束时间（毫秒时间戳，为空则不限制）
+     */
+    private Long endTime;
+
+    /**
+     * 配置加载后的有效时长（秒，为空或不大于0则不过期），与结束时间同时配置时取较早者
+     */
+    private Long expireSeconds;
+
+    /**
+     * 会话期间提升级别后额外日志的最大条数/秒（为空或不大于0则不限制）
+     */
+    private Integer maxEventsPerSecond;
+
+    /**
+     * 会话期间提升级别后额外日志的最大字节数/秒（为空或不大于0则不限制）
+     */
+    private Long maxBytesPerSecond;
+
+    /**
+     * 是否捕获追踪请求线程输出的日志，并与追踪结果一起整块写入动态日志文件
+     */
+    private Boolean captureLogs = false;
+
+    /**
+     * 单个请求最多捕获的日志字符数
+     */
+    private Integer captureMaxSize = 64 * 1024;
+
+    /**
+     * 是否为追溯模式：不提升日志级别，只把本会被丢弃的日志低成本记录在线程环形缓冲区中，
+     * 请求异常、返回5xx或超过慢请求阈值时才格式化输出，否则丢弃（追溯模式不受count限制）
+     */
+    private Boolean retroactive = false;
+
+    /**
+     * 追溯模式的慢请求阈值（毫秒，为空则不按耗时输出）
+     */
+    private Long slowThresholdMs;
+
+    /**
+     * 追溯模式每个线程环形缓冲区的容量（条）
+     */
+    private Integer retroBufferSize = 256;
+
+    /**
+     * 向下游服务传播动态日志会话的深度（经Feign请求头或Dubbo附件传递，为空或0表示不传播）
+     */
+    private Integer propagateDepth;
+
+    /**
+     * 追踪次数预算（运行时状态，不参与配置比较）
+     */
+    @JsonIgnore
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
+    private transient TraceBudget traceBudget;
+
+    /**
+     * 编译后的请求条件匹配器（运行时状态，不参与配置比较）
+     */
+    @JsonIgnore
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
+    private transient RequestConditionMatcher conditionMatcher;
+
+    /**
+     * 追踪激活策略（运行时状态，不参与配置比较）
+     */
+    @JsonIgnore
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
+    private transient TraceActivationPolicy activationPolicy;
+
+    /**
+     * 会话限流器（运行时状态，不参与配置比较）
      */
-    private Integer currentCount = 0;
+    @JsonIgnore
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
+    private transient LogRateLimiter rateLimiter;
 
     /**
-     * 是否已打印完成
+     * 本次会话已提升级别的Logger，会话结束时逐个恢复（运行时状态，不参与配置比较）
      */
-    private Boolean completed = false;
+    @JsonIgnore
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
+    private transient Set<String> elevatedLoggers = ConcurrentHashMap.newKeySet();
 }
@@ -0,0 +1,39 @@
+package com.luoyu.dynamiclog.config;
+
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * 接口匹配条件（路径和方法匹配后，进一步按请求内容筛选）
+ *
+ * @author system
+ * @date 2024-01-01
+ */
+@Data
+public class MatchCondition {
+    /**
+     * 条件来源：header（请求头）、param（请求参数）或 attribute（请求属性）
+     */
+    private String source;
+
+    /**
+     * 请求头、参数或属性名称
+     */
+    private String name;
+
+    /**
+     * 比较方式：eq（等于）、prefix（前缀）或 in（属于集合）
+     */
+    private String operator = "eq";
+
+    /**
+     * 比较值（eq、prefix）
+     */
+    private String value;
+
+    /**
+     * 比较值集合（in）
+     */
+    private List<String> values;
+}
@@ -0,0 +1,135 @@
+package com.luoyu.dynamiclog.interceptor;
+
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.DispatcherType;
+import javax.servlet.Filter;
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+
+/**
+ * 动态日志过滤器
+ * <p>
+ * 过滤器入口：追踪覆盖整个请求，包括后续过滤器、安全校验和消息转换的耗时。
+ * 异步请求（DeferredResult、Callable等）在请求线程返回时只摘下线程状态，
+ * 重新分派（{@link DispatcherType#ASYNC}）时恢复，异步响应真正完成时由{@link AsyncListener}结束追踪。
+ *
+ * @author system
+ * @date 2024-01-01
+ */
+public class DynamicLogFilter implements Filter {
+    private final RequestTraceLifecycle lifecycle;
+
+    public DynamicLogFilter(RequestTraceLifecycle lifecycle) {
+        this.lifecycle = lifecycle;
+    }
+
+    @Override
+    public void doFilter(ServletRequest servletRequest, ServletResponse servletResponse, FilterChain chain)
+            throws IOException, ServletException {
+        if (!(servletRequest instanceof HttpServletRequest) || !(servletResponse instanceof HttpServletResponse)) {
+            chain.doFilter(servletRequest, servletResponse);
+            return;
+        }
+
+        HttpServletRequest request = (HttpServletRequest) servletRequest;
+        HttpServletResponse response = (HttpServletResponse) servletResponse;
+        if (request.getDispatcherType() == DispatcherType.ASYNC) {
+            doFilterAsync(request, response, chain);
+            return;
+        }
+        if (lifecycle.isTracked(request)) {
+            chain.doFilter(request, response);
+            return;
+        }
+
+        lifecycle.begin(request, null);
+        if (!lifecycle.isTracked(request)) {
+            chain.doFilter(request, response);
+            return;
+        }
+
+        Throwable error = null;
+        try {
+            chain.doFilter(request, response);
+        } catch (IOException | ServletException | RuntimeException | Error e) {
+            error = e;
+            throw e;
+        } finally {
+            lifecycle.detach(request);
+            if (request.isAsyncStarted()) {
+                request.getAsyncContext().addListener(new CompletionListener(request, response));
+            } else {
+                lifecycle.end(request, response, error);
+            }
+        }
+    }
+
+    /**
+     * 异步重新分派：恢复线程状态，分派结束后再摘下，追踪由完成回调结束
+     *
+     * @param request HTTP请求
+     * @param response HTTP响应
+     * @param chain 过滤器链
+     * @throws IOException IO异常
+     * @throws ServletException Servlet异常
+     */
+    private void doFilterAsync(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws IOException, ServletException {
+        if (!lifecycle.isTracked(request)) {
+            chain.doFilter(request, response);
+            return;
+        }
+
+        lifecycle.attach(request);
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            lifecycle.detach(request);
+        }
+    }
+
+    /**
+     * 异步完成回调：记录异常或超时，在onComplete时结束追踪（容器保证onComplete最终会被调用）
+     */
+    private class CompletionListener implements AsyncListener {
+        private final HttpServletRequest request;
+        private final HttpServletResponse response;
+        private volatile Throwable error;
+
+        CompletionListener(HttpServletRequest request, HttpServletResponse response) {
+            this.request = request;
+            this.response = response;
+        }
+
+        @Override
+        public void onComplete(AsyncEvent event) {
+            lifecycle.end(request, response, error);
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+            if (error == null) {
+                error = event.getThrowable();
+            }
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+            if (error == null) {
+                error = event.getThrowable();
+            }
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+            // 重新开始异步处理时容器会清空监听器，需要重新注册
+            event.getAsyncContext().addListener(this);
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package com.luoyu.dynamiclog.interceptor;
+
+import com.luoyu.dynamiclog.config.InterfaceLogConfig;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.util.ClassUtils;
+import org.springframework.web.method.HandlerMethod;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 目标Logger解析器
+ * <p>
+ * 根据解析出的处理器（Controller类或Dubbo服务实现类及其所在包）和接口配置中显式指定的Logger确定需要提升级别的Logger，
+ * 只提升与当前接口相关的Logger，不再提升ROOT。处理器对应的Logger按类缓存，
+ * 同一个类的请求只在第一次时计算。
+ *
+ * @author system
+ * @date 2024-01-01
+ */
+public class HandlerLoggerResolver {
+    private final Map<Class<?>, List<String>> handlerLoggers = new ConcurrentHashMap<>();
+
+    /**
+     * 解析需要提升级别的Logger
+     *
+     * @param handler 处理器（HandlerMethod或服务类Class，其它类型只使用显式配置的Logger）
+     * @param config 接口配置
+     * @return Logger名称列表（按包、类、显式配置的顺序去重）
+     */
+    public List<String> resolve(Object handler, InterfaceLogConfig config) {
+        List<String> derived = Collections.emptyList();
+        if (handler instanceof HandlerMethod) {
+            Class<?> beanType = ((HandlerMethod) handler).getBeanType();
+            derived = handlerLoggers.computeIfAbsent(beanType, HandlerLoggerResolver::deriveLoggers);
+        } else if (handler instanceof Class) {
+            derived = handlerLoggers.computeIfAbsent((Class<?>) handler, HandlerLoggerResolver::deriveLoggers);
+        }
+
+        List<String> explicit = config.getLoggers();
+        if (explicit == null || explicit.isEmpty()) {
+            return derived;
+        }
+
+        Set<String> loggers = new LinkedHashSet<>(derived);
+        for (String logger : explicit) {
+            if (StringUtils.isNotBlank(logger)) {
+                loggers.add(logger.trim());
+            }
+        }
+        return new ArrayList<>(loggers);
+    }
+
+    /**
+     * 从Controller类或服务类推导Logger：所在包和类本身（类上显式配置了级别时仍能生效）
+     *
+     * @param beanType Controller类或服务类
+     * @return Logger名称列表
+     */
+    private static List<String> deriveLoggers(Class<?> beanType) {
+        Class<?> userClass = ClassUtils.getUserClass(beanType);
+        List<String> loggers = new ArrayList<>(2);
+        String packageName = ClassUtils.getPackageName(userClass);
+        if (StringUtils.isNotBlank(packageName)) {
+            loggers.add(packageName);
+        }
+        loggers.add(userClass.getName());
+        return Collections.unmodifiableList(loggers);
+    }
+
+    /**
+     * 已缓存的处理器数
+     *
+     * @return 缓存数
+     */
+    public int size() {
+        return handlerLoggers.size();
+    }
+}
@@ -0,0 +1,554 @@
+package com.luoyu.dynamiclog.interceptor;
+
+import com.luoyu.dynamiclog.config.DynamicLogConfig;
+import com.luoyu.dynamiclog.config.InterfaceLogConfig;
+import com.luoyu.dynamiclog.log.LogRateLimiter;
+import com.luoyu.dynamiclog.log.LoggerLevelManager;
+import com.luoyu.dynamiclog.log.RequestLogBuffer;
+import com.luoyu.dynamiclog.log.RetroLogRing;
+import com.luoyu.dynamiclog.nacos.NacosConfigManager;
+import com.luoyu.dynamiclog.trace.InFlightTraceBudget;
+import com.luoyu.dynamiclog.trace.TraceActivationPolicy;
+import com.luoyu.dynamiclog.trace.TraceBudget;
+import com.luoyu.dynamiclog.trace.TraceContext;
+import com.luoyu.dynamiclog.trace.TraceManager;
+import com.luoyu.dynamiclog.trace.TracePropagation;
+import com.luoyu.dynamiclog.util.ThreadLocalUtil;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 请求追踪生命周期
+ * <p>
+ * 拦截器和过滤器两种入口共用的追踪逻辑：开始时匹配配置、预占名额、提升级别并开始追踪；
+ * 异步请求释放请求线程时{@link #detach}清理线程上的状态，重新分派时{@link #attach}恢复；
+ * {@link #end}在请求真正完成时调用，无论调用几次都只结束一次。
+ *
+ * @author system
+ * @date 2024-01-01
+ */
+@Slf4j
+public class RequestTraceLifecycle {
+    private static final String TRACE_CONTEXT_ATTRIBUTE = "_traceContext";
+    private static final String RETRO_CONFIG_ATTRIBUTE = "_retroConfig";
+    private static final String RETRO_START_TIME_ATTRIBUTE = "_retroStartTime";
+    private static final String RETRO_RING_ATTRIBUTE = "_retroRing";
+    private static final String INTERFACE_CONFIG_ATTRIBUTE = "_interfaceConfig";
+    private static final String ENDED_ATTRIBUTE = "_traceEnded";
+    private static final String PROPAGATED_PATH = "propagated";
+    private static final int DEFAULT_PROPAGATION_MAX_PER_MINUTE = 60;
+
+    /**
+     * 允许传播的日志级别：只能让下游输出更详细的日志，不能用来调低级别
+     */
+    private static final Set<String> PROPAGATION_LEVELS = new HashSet<>(Arrays.asList("TRACE", "DEBUG"));
+
+    private final NacosConfigManager nacosConfigManager;
+    private final TraceManager traceManager;
+    private final HandlerLoggerResolver loggerResolver = new HandlerLoggerResolver();
+    private final Map<String, InterfaceLogConfig> propagationConfigs = new ConcurrentHashMap<>();
+
+    public RequestTraceLifecycle(NacosConfigManager nacosConfigManager, TraceManager traceManager) {
+        this.nacosConfigManager = nacosConfigManager;
+        this.traceManager = traceManager;
+    }
+
+    /**
+     * 开始追踪（匹配配置并按策略决定是否追踪或追溯记录）
+     *
+     * @param request HTTP请求
+     * @param handler 处理器（过滤器入口尚未解析出处理器时为null）
+     */
+    public void begin(HttpServletRequest request, Object handler) {
+        // 上游传播过来的会话：只追踪被传播的请求，不再匹配本服务的接口配置
+        DynamicLogConfig config = nacosConfigManager.getDynamicLogConfig();
+        if (config != null && Boolean.TRUE.equals(config.getAcceptPropagation())) {
+            String level = request.getHeader(TracePropagation.HEADER_LEVEL);
+            if (level != null) {
+                TraceContext traceContext = beginPropagated(request, handler, level,
+                        request.getHeader(TracePropagation.HEADER_TRACE_ID),
+                        TracePropagation.parseDepth(request.getHeader(TracePropagation.HEADER_DEPTH)),
+                        request.getRequestURI(), request.getMethod());
+                if (traceContext != null) {
+                    markStarted(request, traceContext);
+                }
+                return;
+            }
+        }
+
+        // 没有任何生效的接口配置时直接放行
+        if (!nacosConfigManager.isActive()) {
+            return;
+        }
+        String path = request.getRequestURI();
+        String method = request.getMethod();
+
+        // 获取接口配置（路径匹配后再判断请求条件）
+        InterfaceLogConfig interfaceConfig = nacosConfigManager.getInterfaceConfig(request);
+        if (interfaceConfig == null) {
+            return;
+        }
+
+        // 不在生效时间段内
+        TraceActivationPolicy policy = interfaceConfig.getActivationPolicy();
+        long now = policy == null ? 0L : System.currentTimeMillis();
+        if (policy != null && !policy.isWithinTimeRange(now)) {
+            return;
+        }
+
+        // 追溯模式：只记录，不提升级别也不追踪
+        if (Boolean.TRUE.equals(interfaceConfig.getRetroactive())) {
+            RetroLogRing.begin(interfaceConfig.getRetroBufferSize(), interfaceConfig.getLogLevel());
+            request.setAttribute(RETRO_CONFIG_ATTRIBUTE, interfaceConfig);
+            request.setAttribute(RETRO_START_TIME_ATTRIBUTE, System.currentTimeMillis());
+            request.setAttribute(ENDED_ATTRIBUTE, new AtomicBoolean());
+            return;
+        }
+
+        // 按比例采样
+        if (policy != null && !policy.sample()) {
+            return;
+        }
+
+        // 预占追踪名额，名额耗尽则不再追踪
+        TraceBudget budget = interfaceConfig.getTraceBudget();
+        if (budget == null || !budget.tryReserve()) {
+            return;
+        }
+
+        // 当前时间窗口的追踪数已满时归还名额
+        if (policy != null && !policy.tryAcquireWindow(now)) {
+            budget.release();
+            return;
+        }
+
+        TraceContext traceContext = startTrace(request, handler, interfaceConfig, path, method, null,
+                interfaceConfig.getPropagateDepth() == null ? 0 : interfaceConfig.getPropagateDepth());
+        markStarted(request, traceContext);
+    }
+
+    /**
+     * 开始追踪一个由上游传播过来的请求（HTTP请求头或Dubbo附件）
+     * <p>
+     * 同一日志级别的传播请求共用一个会话，不限次数，由每分钟追踪数限制；进行中的传播请求全部结束时恢复日志级别。
+     * 恢复的同时开始的请求可能按原级别输出日志。只接收DEBUG、TRACE级别，且只提升当前级别不够详细的Logger。
+     *
+     * @param request HTTP请求（非HTTP调用为null）
+     * @param handler 处理器（HandlerMethod或服务类，可为null）
+     * @param level 传播的日志级别
+     * @param traceId 上游追踪ID
+     * @param depth 剩余传播深度（包括本服务，超过配置的最大传播深度时截断）
+     * @param path 请求路径或服务名
+     * @param method HTTP方法或方法名
+     * @return 追踪上下文，未开启接收、深度用尽、级别无效或超出限制时返回null
+     */
+    public TraceContext beginPropagated(HttpServletRequest request, Object handler, String level, String traceId,
+                                        int depth, String path, String method) {
+        if (depth <= 0 || !isAcceptingPropagation()) {
+            return null;
+        }
+        // 传播深度来自请求头，不信任上游给出的值
+        Integer maxDepth = nacosConfigManager.getDynamicLogConfig().getPropagationMaxDepth();
+        int acceptedDepth = maxDepth == null ? depth : Math.min(depth, maxDepth);
+        if (acceptedDepth <= 0) {
+            return null;
+        }
+        String upperLevel = level.trim().toUpperCase();
+        if (!PROPAGATION_LEVELS.contains(upperLevel)) {
+            return null;
+        }
+
+        InterfaceLogConfig interfaceConfig = propagationConfigs.computeIfAbsent(upperLevel, this::createPropagationConfig);
+        TraceBudget budget = interfaceConfig.getTraceBudget();
+        TraceActivationPolicy policy = interfaceConfig.getActivationPolicy();
+        if (policy != null && !policy.tryAcquireWindow(System.currentTimeMillis())) {
+            budget.release();
+            return null;
+        }
+
+        return startTrace(request, handler, interfaceConfig, path, method,
+                StringUtils.isBlank(traceId) ? null : traceId, acceptedDepth - 1);
+    }
+
+    /**
+     * 结束不依附于HTTP请求的追踪（如Dubbo服务端），在开始追踪的线程上调用
+     *
+     * @param traceContext 追踪上下文
+     */
+    public void endDetached(TraceContext traceContext) {
+        if (traceContext == null) {
+            return;
+        }
+        try {
+            RequestLogBuffer.unbind();
+            traceManager.endTrace(traceContext);
+        } finally {
+            clearThreadLocals();
+            finishTrace(traceContext.getInterfaceConfig(), traceContext.getMethod(), traceContext.getPath());
+        }
+    }
+
+    /**
+     * 把不依附于HTTP请求的追踪从当前线程摘下（如Dubbo异步服务返回时），追踪本身继续进行，
+     * 完成时再调用{@link #completeDetached}结束
+     */
+    public void detachCurrentThread() {
+        clearThreadLocals();
+    }
+
+    /**
+     * 结束已从开始线程摘下的追踪，可在任意线程（如异步结果的完成回调）上调用，不清理调用线程的状态
+     *
+     * @param traceContext 追踪上下文
+     */
+    public void completeDetached(TraceContext traceContext) {
+        if (traceContext == null) {
+            return;
+        }
+        try {
+            traceManager.endTrace(traceContext);
+        } finally {
+            finishTrace(traceContext.getInterfaceConfig(), traceContext.getMethod(), traceContext.getPath());
+        }
+    }
+
+    /**
+     * 清空传播会话的Logger提升登记（日志级别由调用方统一恢复）
+     */
+    public void clearPropagationLoggers() {
+        for (InterfaceLogConfig config : propagationConfigs.values()) {
+            config.getElevatedLoggers().clear();
+        }
+    }
+
+    /**
+     * 是否接收上游传播过来的会话
+     *
+     * @return 是否接收
+     */
+    private boolean isAcceptingPropagation() {
+        DynamicLogConfig config = nacosConfigManager.getDynamicLogConfig();
+        return config != null && Boolean.TRUE.equals(config.getAcceptPropagation())
+                && nacosConfigManager.getSnapshot().isEnabled();
+    }
+
+    /**
+     * 是否为传播会话的配置
+     *
+     * @param interfaceConfig 接口配置
+     * @return 是否为传播会话
+     */
+    private boolean isPropagated(InterfaceLogConfig interfaceConfig) {
+        return propagationConfigs.get(interfaceConfig.getLogLevel()) == interfaceConfig;
+    }
+
+    /**
+     * 创建传播会话的配置（按日志级别各一个）
+     *
+     * @param level 日志级别
+     * @return 接口配置
+     */
+    private InterfaceLogConfig createPropagationConfig(String level) {
+        DynamicLogConfig config = nacosConfigManager.getDynamicLogConfig();
+        InterfaceLogConfig interfaceConfig = new InterfaceLogConfig();
+        interfaceConfig.setPath(PROPAGATED_PATH);
+        interfaceConfig.setLogLevel(level);
+        interfaceConfig.setLoggers(config.getPropagationLoggers());
+        // 未配置时按默认值限制，传播请求不允许不限次数
+        Integer maxPerMinute = config.getPropagationMaxPerMinute();
+        interfaceConfig.setMaxTracesPerWindow(maxPerMinute == null ? DEFAULT_PROPAGATION_MAX_PER_MINUTE : maxPerMinute);
+        interfaceConfig.setWindowSeconds(60);
+        interfaceConfig.setTraceBudget(new InFlightTraceBudget());
+        interfaceConfig.setActivationPolicy(TraceActivationPolicy.create(interfaceConfig, System.currentTimeMillis()));
+        return interfaceConfig;
+    }
+
+    /**
+     * 把已开始的追踪登记到请求上（最后登记，只有完整开始的追踪才会在结束时消耗名额）
+     *
+     * @param request HTTP请求
+     * @param traceContext 追踪上下文
+     */
+    private void markStarted(HttpServletRequest request, TraceContext traceContext) {
+        request.setAttribute(TRACE_CONTEXT_ATTRIBUTE, traceContext);
+        request.setAttribute(INTERFACE_CONFIG_ATTRIBUTE, traceContext.getInterfaceConfig());
+        request.setAttribute(ENDED_ATTRIBUTE, new AtomicBoolean());
+    }
+
+    /**
+     * 请求是否已由本插件开始追踪或追溯记录
+     *
+     * @param request HTTP请求
+     * @return 是否已开始
+     */
+    public boolean isTracked(HttpServletRequest request) {
+        return request.getAttribute(ENDED_ATTRIBUTE) != null;
+    }
+
+    /**
+     * 补充提升处理器对应的Logger（过滤器入口开始追踪时还不知道处理器，由拦截器在解析出处理器后调用）
+     *
+     * @param request HTTP请求
+     * @param handler 处理器
+     */
+    public void elevateHandlerLoggers(HttpServletRequest request, Object handler) {
+        InterfaceLogConfig interfaceConfig = (InterfaceLogConfig) request.getAttribute(INTERFACE_CONFIG_ATTRIBUTE);
+        AtomicBoolean ended = (AtomicBoolean) request.getAttribute(ENDED_ATTRIBUTE);
+        if (interfaceConfig == null || ended == null || ended.get() || StringUtils.isBlank(interfaceConfig.getLogLevel())) {
+            return;
+        }
+        elevateLoggers(handler, interfaceConfig);
+    }
+
+    /**
+     * 把请求的追踪状态挂到当前线程（异步请求重新分派时调用）
+     *
+     * @param request HTTP请求
+     */
+    public void attach(HttpServletRequest request) {
+        RetroLogRing.attach((RetroLogRing) request.getAttribute(RETRO_RING_ATTRIBUTE));
+
+        TraceContext traceContext = (TraceContext) request.getAttribute(TRACE_CONTEXT_ATTRIBUTE);
+        if (traceContext == null) {
+            return;
+        }
+        InterfaceLogConfig interfaceConfig = (InterfaceLogConfig) request.getAttribute(INTERFACE_CONFIG_ATTRIBUTE);
+        if (interfaceConfig != null && StringUtils.isNotBlank(interfaceConfig.getLogLevel())) {
+            LogRateLimiter.bind(interfaceConfig.getRateLimiter());
+        }
+        if (traceContext.getLogBuffer() != null) {
+            RequestLogBuffer.bind(traceContext.getLogBuffer());
+        }
+        ThreadLocalUtil.setRequest(request);
+        com.luoyu.dynamiclog.agent.MethodInterceptor.setTraceContext(traceContext);
+    }
+
+    /**
+     * 把请求的追踪状态从当前线程摘下（异步请求释放请求线程时调用），追踪本身继续进行
+     *
+     * @param request HTTP请求
+     */
+    public void detach(HttpServletRequest request) {
+        if (request.getAttribute(RETRO_CONFIG_ATTRIBUTE) != null) {
+            RetroLogRing ring = RetroLogRing.detach();
+            if (ring != null) {
+                request.setAttribute(RETRO_RING_ATTRIBUTE, ring);
+            }
+        }
+        if (request.getAttribute(TRACE_CONTEXT_ATTRIBUTE) != null) {
+            clearThreadLocals();
+        }
+    }
+
+    /**
+     * 结束追踪（请求完成时调用，多次调用只生效一次）
+     *
+     * @param request HTTP请求
+     * @param response HTTP响应
+     * @param ex 请求异常
+     */
+    public void end(HttpServletRequest request, HttpServletResponse response, Throwable ex) {
+        AtomicBoolean ended = (AtomicBoolean) request.getAttribute(ENDED_ATTRIBUTE);
+        if (ended == null || !ended.compareAndSet(false, true)) {
+            return;
+        }
+
+        completeRetro(request, response, ex);
+
+        TraceContext traceContext = (TraceContext) request.getAttribute(TRACE_CONTEXT_ATTRIBUTE);
+        if (traceContext != null) {
+            // 异步请求在完成回调线程上结束，该线程上没有本请求的状态，不做清理
+            boolean bound = ThreadLocalUtil.getRequest() == request;
+            try {
+                // 停止捕获后再结束追踪，追踪结果本身不进入捕获缓冲区
+                if (bound) {
+                    RequestLogBuffer.unbind();
+                }
+
+                // 结束追踪并打印结果
+                traceManager.endTrace(traceContext);
+            } finally {
+                if (bound) {
+                    clearThreadLocals();
+                }
+
+                // 无论打印是否成功都结束本次名额
+                finishTrace(traceContext.getInterfaceConfig(), request.getMethod(), request.getRequestURI());
+            }
+        }
+    }
+
+    /**
+     * 清除当前线程上的追踪状态
+     */
+    private void clearThreadLocals() {
+        RequestLogBuffer.unbind();
+        com.luoyu.dynamiclog.agent.MethodInterceptor.clearTraceContext();
+        ThreadLocalUtil.clearRequest();
+        LogRateLimiter.unbind();
+    }
+
+    /**
+     * 结束本次追踪名额，当前最后一个名额结束时恢复日志级别
+     *
+     * @param interfaceConfig 接口配置
+     * @param method HTTP方法
+     * @param path 请求路径
+     */
+    private void finishTrace(InterfaceLogConfig interfaceConfig, String method, String path) {
+        TraceBudget budget = interfaceConfig == null ? null : interfaceConfig.getTraceBudget();
+        if (budget == null || !budget.finish()) {
+            return;
+        }
+
+        // 恢复本次会话提升过的Logger
+        nacosConfigManager.restoreSessionLoggers(interfaceConfig);
+
+        // 集群配额下本实例租到的名额用完时集群可能仍有余量，此时只恢复级别，会话尚未完成
+        if (!budget.isCompleted()) {
+            return;
+        }
+        log.info("动态接口已经调试完毕，如果需要再生效请修改nacos配置，从新设置值。接口: {} {}", method, path);
+
+        if (interfaceConfig.getRateLimiter() != null) {
+            interfaceConfig.getRateLimiter().close();
+        }
+    }
+
+    /**
+     * 提升日志级别并开始追踪，预占的名额在追踪未能开始时归还
+     *
+     * @param request HTTP请求（非HTTP调用为null）
+     * @param handler 处理器
+     * @param interfaceConfig 接口配置
+     * @param path 请求路径
+     * @param method HTTP方法
+     * @param traceId 追踪ID（为null时生成）
+     * @param propagateDepth 调用下游时传播的剩余深度
+     * @return 追踪上下文
+     */
+    private TraceContext startTrace(HttpServletRequest request, Object handler, InterfaceLogConfig interfaceConfig,
+                                    String path, String method, String traceId, int propagateDepth) {
+        TraceContext traceContext = null;
+        boolean started = false;
+        try {
+            // 修改日志级别
+            String logLevel = interfaceConfig.getLogLevel();
+            if (StringUtils.isNotBlank(logLevel)) {
+                List<String> loggers = elevateLoggers(handler, interfaceConfig);
+
+                log.info("匹配成功后的接口，打印记录日志。接口: {} {}, 日志级别: {}, Logger: {}", method, path, logLevel, loggers);
+
+                // 绑定当前会话的日志限流器
+                LogRateLimiter.bind(interfaceConfig.getRateLimiter());
+            }
+
+            // 设置请求到ThreadLocal
+            if (request != null) {
+                ThreadLocalUtil.setRequest(request);
+            }
+
+            // 开始追踪
+            traceContext = traceManager.startTrace(path, method);
+            traceContext.setInterfaceConfig(interfaceConfig);
+            traceContext.setTraceId(traceId == null ? TracePropagation.newTraceId() : traceId);
+            traceContext.setPropagateDepth(propagateDepth);
+
+            // 捕获请求线程的日志
+            if (Boolean.TRUE.equals(interfaceConfig.getCaptureLogs())) {
+                RequestLogBuffer logBuffer = new RequestLogBuffer(interfaceConfig.getCaptureMaxSize());
+                traceContext.setLogBuffer(logBuffer);
+                RequestLogBuffer.bind(logBuffer);
+            }
+
+            // 设置到ThreadLocal供Agent使用
+            com.luoyu.dynamiclog.agent.MethodInterceptor.setTraceContext(traceContext);
+            started = true;
+            return traceContext;
+        } finally {
+            // 追踪未能开始时归还名额
+            if (!started) {
+                if (traceContext != null) {
+                    traceManager.discardTrace(traceContext);
+                }
+                interfaceConfig.getTraceBudget().release();
+            }
+        }
+    }
+
+    /**
+     * 只提升处理当前接口的Controller及显式配置的Logger，并登记到会话上以便结束时恢复
+     *
+     * @param handler 处理器
+     * @param interfaceConfig 接口配置
+     * @return 提升的Logger
+     */
+    private List<String> elevateLoggers(Object handler, InterfaceLogConfig interfaceConfig) {
+        List<String> loggers = loggerResolver.resolve(handler, interfaceConfig);
+        // 传播会话只能让Logger更详细，已经输出该级别的Logger保持不变
+        if (isPropagated(interfaceConfig)) {
+            loggers = new ArrayList<>(loggers);
+            loggers.removeIf(loggerName -> !interfaceConfig.getElevatedLoggers().contains(loggerName)
+                    && LoggerLevelManager.isLevelEnabled(loggerName, interfaceConfig.getLogLevel()));
+        }
+        for (String loggerName : loggers) {
+            interfaceConfig.getElevatedLoggers().add(loggerName);
+            LoggerLevelManager.setLoggerLevel(loggerName, interfaceConfig.getLogLevel());
+        }
+        return loggers;
+    }
+
+    /**
+     * 结束追溯记录：请求异常、返回5xx或超过慢请求阈值时输出，否则丢弃
+     *
+     * @param request HTTP请求
+     * @param response HTTP响应
+     * @param ex 请求异常
+     */
+    private void completeRetro(HttpServletRequest request, HttpServletResponse response, Throwable ex) {
+        InterfaceLogConfig interfaceConfig = (InterfaceLogConfig) request.getAttribute(RETRO_CONFIG_ATTRIBUTE);
+        if (interfaceConfig == null) {
+            return;
+        }
+
+        // 异步请求的缓冲区已从请求线程摘下并登记在请求上，在重新分派的线程上结束时一并摘下
+        RetroLogRing ring = (RetroLogRing) request.getAttribute(RETRO_RING_ATTRIBUTE);
+        if (ring == null) {
+            ring = RetroLogRing.end();
+        } else if (RetroLogRing.active() == ring) {
+            RetroLogRing.detach();
+        }
+        if (ring == null) {
+            return;
+        }
+
+        try {
+            long cost = System.currentTimeMillis() - (Long) request.getAttribute(RETRO_START_TIME_ATTRIBUTE);
+            String reason = null;
+            if (ex != null) {
+                reason = "异常 " + ex.getClass().getName();
+            } else if (response.getStatus() >= 500) {
+                reason = "状态码 " + response.getStatus();
+            } else if (interfaceConfig.getSlowThresholdMs() != null && cost >= interfaceConfig.getSlowThresholdMs()) {
+                reason = "慢请求 " + cost + "ms";
+            }
+
+            if (reason != null && ring.getTotal() > 0) {
+                traceManager.printRetroLogs(request.getRequestURI(), request.getMethod(), cost, reason, ring);
+            }
+        } finally {
+            ring.clear();
+        }
+    }
+}
@@ -0,0 +1,197 @@
+package com.luoyu.dynamiclog.log;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 异步批量写入器
+ * <p>
+ * 请求线程只把日志放入有界环形队列，队列满时直接丢弃并计数，不会阻塞业务线程；
+ * 单个后台线程把队列中的日志攒入直接内存缓冲区，缓冲区写满或达到刷新间隔时通过FileChannel一次写出，
+ * 文件滚动也在该线程上完成。关闭时等待写线程写完队列，超时后中断写线程，未写出的日志计入丢弃数。
+ *
+ * @author system
+ * @date 2024-01-01
+ */
+@Slf4j
+public class AsyncLogWriter implements LogWriter {
+    private static final int BATCH_BUFFER_SIZE = 256 * 1024;
+    private static final int DRAIN_LIMIT = 1024;
+    private static final long CLOSE_TIMEOUT_MILLIS = 5000;
+
+    private final RollingLogFile logFile;
+    private final BlockingQueue<byte[]> queue;
+    private final long flushIntervalMillis;
+    private final LogDurabilityEnum durability;
+    private final AtomicLong droppedCount = new AtomicLong();
+    private final Thread writerThread;
+    private volatile boolean running = true;
+
+    /**
+     * 已放入批量缓冲区但尚未写出的日志条数（只由写线程访问）
+     */
+    private int bufferedLines;
+
+    /**
+     * 创建异步写入器并启动写线程
+     *
+     * @param logFile 日志文件
+     * @param bufferSize 环形队列容量（条）
+     * @param flushIntervalMillis 刷新间隔（毫秒）
+     * @param durability 持久化策略
+     */
+    public AsyncLogWriter(RollingLogFile logFile, int bufferSize, long flushIntervalMillis, LogDurabilityEnum durability) {
+        this.logFile = logFile;
+        this.queue = new ArrayBlockingQueue<>(bufferSize);
+        this.flushIntervalMillis = flushIntervalMillis;
+        this.durability = durability;
+
+        this.writerThread = new Thread(this::runLoop, "dynamic-log-writer");
+        this.writerThread.setDaemon(true);
+        this.writerThread.start();
+    }
+
+    @Override
+    public void write(byte[] data, int offset, int length) {
+        if (!running || !queue.offer(Arrays.copyOfRange(data, offset, offset + length))) {
+            droppedCount.incrementAndGet();
+        }
+    }
+
+    @Override
+    public void close() {
+        if (!running) {
+            return;
+        }
+        running = false;
+
+        try {
+            writerThread.join(CLOSE_TIMEOUT_MILLIS);
+            if (writerThread.isAlive()) {
+                // 超时仍未写完时中断写线程，等它写出已攒下的缓冲区后再关闭文件
+                log.warn("Dynamic log async writer did not drain within {}ms, interrupting it", CLOSE_TIMEOUT_MILLIS);
+                writerThread.interrupt();
+                writerThread.join(CLOSE_TIMEOUT_MILLIS);
+            }
+        } catch (InterruptedException e) {
+            writerThread.interrupt();
+            Thread.currentThread().interrupt();
+        }
+
+        // 写线程退出后队列中剩余的日志不会再写出
+        int remaining = queue.size();
+        if (remaining > 0) {
+            queue.clear();
+            droppedCount.addAndGet(remaining);
+        }
+
+        try {
+            logFile.close();
+        } catch (IOException e) {
+            log.error("Failed to close dynamic log file", e);
+        }
+
+        if (droppedCount.get() > 0) {
+            log.warn("Dynamic log async writer dropped {} line(s) because the buffer was full or writing failed",
+                    droppedCount.get());
+        }
+    }
+
+    /**
+     * 丢弃的日志条数
+     *
+     * @return 丢弃条数
+     */
+    public long getDroppedCount() {
+        return droppedCount.get();
+    }
+
+    /**
+     * 写线程主循环
+     */
+    private void runLoop() {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(BATCH_BUFFER_SIZE);
+        List<byte[]> batch = new ArrayList<>(DRAIN_LIMIT);
+        long flushIntervalNanos = TimeUnit.MILLISECONDS.toNanos(flushIntervalMillis);
+        long lastFlushTime = System.nanoTime();
+
+        while (running || !queue.isEmpty()) {
+            int written = 0;
+            try {
+                byte[] first = queue.poll(flushIntervalMillis, TimeUnit.MILLISECONDS);
+                if (first != null) {
+                    batch.add(first);
+                    queue.drainTo(batch, DRAIN_LIMIT - 1);
+                }
+
+                for (byte[] line : batch) {
+                    if (line.length > buffer.remaining()) {
+                        writeBuffer(buffer);
+                    }
+                    if (line.length > buffer.capacity()) {
+                        logFile.write(ByteBuffer.wrap(line));
+                    } else {
+                        buffer.put(line);
+                        bufferedLines++;
+                    }
+                    written++;
+                }
+                batch.clear();
+
+                long now = System.nanoTime();
+                if (buffer.position() > 0 && now - lastFlushTime >= flushIntervalNanos) {
+                    writeBuffer(buffer);
+                    lastFlushTime = now;
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } catch (IOException e) {
+                log.error("Failed to write dynamic log file", e);
+                droppedCount.addAndGet(bufferedLines + batch.size() - written);
+                bufferedLines = 0;
+                buffer.clear();
+                batch.clear();
+            }
+        }
+
+        try {
+            writeBuffer(buffer);
+        } catch (IOException e) {
+            log.error("Failed to write dynamic log file", e);
+            droppedCount.addAndGet(bufferedLines);
+        }
+    }
+
+    /**
+     * 写出缓冲区内容并按持久化策略落盘
+     *
+     * @param buffer 缓冲区
+     * @throws IOException 写入失败
+     */
+    private void writeBuffer(ByteBuffer buffer) throws IOException {
+        if (buffer.position() == 0) {
+            return;
+        }
+        buffer.flip();
+        try {
+            logFile.write(buffer);
+            bufferedLines = 0;
+        } finally {
+            buffer.clear();
+        }
+
+        if (durability == LogDurabilityEnum.FSYNC) {
+            logFile.force();
+        }
+    }
+}
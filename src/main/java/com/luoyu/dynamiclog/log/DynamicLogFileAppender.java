@@ -1,14 +1,11 @@
 package com.luoyu.dynamiclog.log;
 
+import com.luoyu.dynamiclog.config.DynamicLogConfig;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.StringUtils;
 
 import java.io.File;
-import java.io.FileWriter;
 import java.io.IOException;
-import java.io.PrintWriter;
-import java.text.SimpleDateFormat;
-import java.util.Date;
 
 /**
  * 动态日志文件追加器
@@ -18,10 +15,47 @@ import java.util.Date;
  */
 @Slf4j
 public class DynamicLogFileAppender {
+    private static final String LINE_SEPARATOR = System.lineSeparator();
+    private static final int INITIAL_LINE_CAPACITY = 512;
+    private static final int MAX_RETAINED_LINE_CAPACITY = 64 * 1024;
+    private static final int DEFAULT_BUFFER_SIZE = 8192;
+    private static final int MAX_BUFFER_SIZE = 1024 * 1024;
+    private static final long DEFAULT_FLUSH_INTERVAL_MS = 200L;
+    private static final long MIN_FLUSH_INTERVAL_MS = 10L;
+    private static final long MAX_FLUSH_INTERVAL_MS = 60_000L;
+    private static final int DEFAULT_SEGMENT_SIZE = 64 * 1024 * 1024;
+    private static final int MIN_SEGMENT_SIZE = 64 * 1024;
+    private static final ThreadLocal<LogLineBuffer> LINE_BUFFER =
+            ThreadLocal.withInitial(() -> new LogLineBuffer(INITIAL_LINE_CAPACITY));
+    private static final ThreadLocal<JsonLineEncoder> JSON_ENCODER =
+            ThreadLocal.withInitial(() -> new JsonLineEncoder(INITIAL_LINE_CAPACITY));
+
     private String logOutputPath;
     private String logFileName;
-    private PrintWriter writer;
-    private SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss.SSS");
+    private DynamicLogConfig config;
+    private volatile LogWriter writer;
+    private boolean closed;
+
+    /**
+     * 按插件配置初始化（支持同步/异步/内存映射写入模式）
+     *
+     * @param config 动态日志配置
+     */
+    public void init(DynamicLogConfig config) {
+        init(config, config.getLogOutputPath(), config.getLogFileName());
+    }
+
+    /**
+     * 按插件配置初始化，输出路径和文件名使用指定值（如远程配置下发的值）
+     *
+     * @param config 动态日志配置
+     * @param logOutputPath 日志输出路径
+     * @param logFileName 日志文件名
+     */
+    public void init(DynamicLogConfig config, String logOutputPath, String logFileName) {
+        this.config = config;
+        init(logOutputPath, logFileName);
+    }
 
     /**
      * 初始化
@@ -29,24 +63,171 @@ public class DynamicLogFileAppender {
      * @param logOutputPath 日志输出路径
      * @param logFileName 日志文件名
      */
-    public void init(String logOutputPath, String logFileName) {
+    public synchronized void init(String logOutputPath, String logFileName) {
         this.logOutputPath = logOutputPath;
         this.logFileName = logFileName;
 
-        if (StringUtils.isBlank(logOutputPath) || StringUtils.isBlank(logFileName)) {
+        try {
+            LogWriter created = openWriter(logOutputPath, logFileName);
+            if (created != null) {
+                writer = created;
+            }
+        } catch (IOException e) {
+            log.error("Failed to initialize dynamic log file appender", e);
+        }
+    }
+
+    /**
+     * 切换输出文件（远程配置修改了输出路径或文件名时调用）
+     * <p>
+     * 新文件打开后替换写入器再关闭旧写入器，切换瞬间正在写旧写入器的内容可能丢失；新文件打开失败时继续写旧文件。
+     *
+     * @param logOutputPath 日志输出路径
+     * @param logFileName 日志文件名
+     */
+    public synchronized void reopen(String logOutputPath, String logFileName) {
+        if (closed || (StringUtils.equals(logOutputPath, this.logOutputPath)
+                && StringUtils.equals(logFileName, this.logFileName))) {
             return;
         }
 
+        LogWriter created;
         try {
-            File dir = new File(logOutputPath);
-            if (!dir.exists()) {
-                dir.mkdirs();
-            }
-
-            File logFile = new File(dir, logFileName);
-            writer = new PrintWriter(new FileWriter(logFile, true), true);
+            created = openWriter(logOutputPath, logFileName);
         } catch (IOException e) {
-            log.error("Failed to initialize dynamic log file appender", e);
+            log.error("Failed to switch dynamic log file to {}/{}, keep writing {}/{}",
+                    logOutputPath, logFileName, this.logOutputPath, this.logFileName, e);
+            return;
+        }
+
+        LogWriter previous = writer;
+        writer = created;
+        this.logOutputPath = logOutputPath;
+        this.logFileName = logFileName;
+        if (previous != null) {
+            previous.close();
+        }
+        log.info("Dynamic log file switched to {}/{}", logOutputPath, logFileName);
+    }
+
+    /**
+     * 打开日志文件的写入器
+     *
+     * @param logOutputPath 日志输出路径
+     * @param logFileName 日志文件名
+     * @return 写入器，路径或文件名为空时返回null
+     * @throws IOException 打开文件失败
+     */
+    private LogWriter openWriter(String logOutputPath, String logFileName) throws IOException {
+        if (StringUtils.isBlank(logOutputPath) || StringUtils.isBlank(logFileName)) {
+            return null;
+        }
+
+        File dir = new File(logOutputPath);
+        if (!dir.exists()) {
+            dir.mkdirs();
+        }
+        return createWriter(new File(dir, logFileName));
+    }
+
+    /**
+     * 根据写入模式创建写入器
+     *
+     * @param logFile 日志文件
+     * @return 写入器
+     * @throws IOException 打开文件失败
+     */
+    private LogWriter createWriter(File logFile) throws IOException {
+        if (config != null && "mmap".equalsIgnoreCase(config.getLogWriteMode())) {
+            int segmentSize = (int) checkRange("log-segment-size", config.getLogSegmentSize(),
+                    MIN_SEGMENT_SIZE, Integer.MAX_VALUE, DEFAULT_SEGMENT_SIZE);
+            return new MappedSegmentLogWriter(logFile, segmentSize,
+                    config.getLogMaxHistory() == null ? 0 : config.getLogMaxHistory(),
+                    config.getLogTotalSizeCap() == null ? 0L : config.getLogTotalSizeCap());
+        }
+        RollingLogFile rollingLogFile = new RollingLogFile(logFile, config);
+        if (config != null && "async".equalsIgnoreCase(config.getLogWriteMode())) {
+            int bufferSize = (int) checkRange("log-buffer-size", config.getLogBufferSize(),
+                    1, MAX_BUFFER_SIZE, DEFAULT_BUFFER_SIZE);
+            long flushIntervalMs = checkRange("log-flush-interval-ms", config.getLogFlushIntervalMs(),
+                    MIN_FLUSH_INTERVAL_MS, MAX_FLUSH_INTERVAL_MS, DEFAULT_FLUSH_INTERVAL_MS);
+            return new AsyncLogWriter(rollingLogFile, bufferSize, flushIntervalMs,
+                    LogDurabilityEnum.of(config.getLogDurability()));
+        }
+        return new SyncLogWriter(rollingLogFile);
+    }
+
+    /**
+     * 检查写入器参数的取值范围，未配置或超出范围时使用默认值
+     *
+     * @param name 配置项名称
+     * @param value 配置值
+     * @param min 最小值
+     * @param max 最大值
+     * @param defaultValue 默认值
+     * @return 生效的值
+     */
+    private static long checkRange(String name, Number value, long min, long max, long defaultValue) {
+        if (value == null) {
+            return defaultValue;
+        }
+        if (value.longValue() < min || value.longValue() > max) {
+            log.warn("Dynamic log {}={} is out of range [{}, {}], use default {}", name, value, min, max, defaultValue);
+            return defaultValue;
+        }
+        return value.longValue();
+    }
+
+    /**
+     * 是否已启用文件输出
+     *
+     * @return 是否已启用
+     */
+    public boolean isEnabled() {
+        return writer != null;
+    }
+
+    /**
+     * 是否以JSON Lines格式输出
+     *
+     * @return 是否为JSON格式
+     */
+    public boolean isJsonFormat() {
+        return config != null && "json".equalsIgnoreCase(config.getLogFormat());
+    }
+
+    /**
+     * JSON格式下追踪结果是否按节点逐行输出（否则每次追踪输出一行）
+     *
+     * @return 是否按节点输出
+     */
+    public boolean isJsonNodeLayout() {
+        return config != null && "node".equalsIgnoreCase(config.getLogJsonTraceLayout());
+    }
+
+    /**
+     * 获取当前线程可复用的JSON编码器（已清空），编码完成后通过{@link #writeJson(JsonLineEncoder)}写出
+     *
+     * @return JSON编码器
+     */
+    public JsonLineEncoder beginJson() {
+        return JSON_ENCODER.get().reset();
+    }
+
+    /**
+     * 写出JSON编码器中的全部内容（一次写入，多行之间不会与其它线程交错）
+     *
+     * @param encoder JSON编码器
+     */
+    public void writeJson(JsonLineEncoder encoder) {
+        LogWriter current = writer;
+        LogLineBuffer buffer = encoder.getBuffer();
+        if (current != null && buffer.length() > 0) {
+            current.write(buffer.array(), 0, buffer.length());
+        }
+
+        if (buffer.capacity() > MAX_RETAINED_LINE_CAPACITY) {
+            JSON_ENCODER.remove();
         }
     }
 
@@ -57,23 +238,43 @@ public class DynamicLogFileAppender {
      * @param message 日志消息
      */
     public void append(String level, String message) {
-        if (writer == null) {
+        LogWriter current = writer;
+        if (current == null) {
             return;
         }
 
-        String timestamp = dateFormat.format(new Date());
-        String logLine = String.format("[%s] [%s] %s%n", timestamp, level, message);
-        writer.print(logLine);
-        writer.flush();
+        if (isJsonFormat()) {
+            JsonLineEncoder json = beginJson();
+            json.beginObject()
+                    .name("ts").rawString(TimestampCache.format(System.currentTimeMillis()))
+                    .field("level", level)
+                    .field("msg", message)
+                    .endObject()
+                    .newLine();
+            writeJson(json);
+            return;
+        }
+
+        LogLineBuffer line = LINE_BUFFER.get().reset();
+        line.append('[').append(TimestampCache.format(System.currentTimeMillis())).append("] [")
+                .append(level).append("] ").append(message).append(LINE_SEPARATOR);
+        current.write(line.array(), 0, line.length());
+
+        // 超大消息使用过的缓冲区不长期驻留在线程上
+        if (line.capacity() > MAX_RETAINED_LINE_CAPACITY) {
+            LINE_BUFFER.remove();
+        }
     }
 
     /**
      * 关闭
      */
-    public void close() {
-        if (writer != null) {
-            writer.close();
+    public synchronized void close() {
+        closed = true;
+        LogWriter current = writer;
+        if (current != null) {
             writer = null;
+            current.close();
         }
     }
 }
@@ -0,0 +1,206 @@
+package com.luoyu.dynamiclog.log;
+
+import java.util.Arrays;
+
+/**
+ * JSON Lines流式编码器
+ * <p>
+ * 直接把JSON写入可复用的字节缓冲区，不构建对象树；逗号由编码器按嵌套层级自动补齐。非线程安全，按线程复用。
+ *
+ * @author system
+ * @date 2024-01-01
+ */
+public class JsonLineEncoder {
+    private static final byte[] HEX = "0123456789abcdef".getBytes();
+
+    private final LogLineBuffer buffer;
+    private boolean[] first = new boolean[16];
+    private int depth;
+    private boolean afterName;
+
+    public JsonLineEncoder(int initialCapacity) {
+        this.buffer = new LogLineBuffer(initialCapacity);
+    }
+
+    /**
+     * 清空内容
+     *
+     * @return 当前编码器
+     */
+    public JsonLineEncoder reset() {
+        buffer.reset();
+        depth = 0;
+        afterName = false;
+        return this;
+    }
+
+    public JsonLineEncoder beginObject() {
+        beforeValue();
+        buffer.append('{');
+        push();
+        return this;
+    }
+
+    public JsonLineEncoder endObject() {
+        buffer.append('}');
+        depth--;
+        return this;
+    }
+
+    public JsonLineEncoder beginArray() {
+        beforeValue();
+        buffer.append('[');
+        push();
+        return this;
+    }
+
+    public JsonLineEncoder endArray() {
+        buffer.append(']');
+        depth--;
+        return this;
+    }
+
+    /**
+     * 写入字段名，随后必须写入一个值
+     *
+     * @param name 字段名
+     * @return 当前编码器
+     */
+    public JsonLineEncoder name(String name) {
+        comma();
+        writeString(name);
+        buffer.append(':');
+        afterName = true;
+        return this;
+    }
+
+    public JsonLineEncoder value(String value) {
+        beforeValue();
+        if (value == null) {
+            buffer.append("null");
+        } else {
+            writeString(value);
+        }
+        return this;
+    }
+
+    public JsonLineEncoder value(long value) {
+        beforeValue();
+        buffer.append(value);
+        return this;
+    }
+
+    public JsonLineEncoder value(boolean value) {
+        beforeValue();
+        buffer.append(value ? "true" : "false");
+        return this;
+    }
+
+    /**
+     * 写入无需转义的UTF-8字符串值（如格式化好的时间戳）
+     *
+     * @param utf8 UTF-8字节
+     * @return 当前编码器
+     */
+    public JsonLineEncoder rawString(byte[] utf8) {
+        beforeValue();
+        buffer.append('"').append(utf8).append('"');
+        return this;
+    }
+
+    public JsonLineEncoder field(String name, String value) {
+        return name(name).value(value);
+    }
+
+    public JsonLineEncoder field(String name, long value) {
+        return name(name).value(value);
+    }
+
+    public JsonLineEncoder field(String name, boolean value) {
+        return name(name).value(value);
+    }
+
+    /**
+     * 结束一行
+     *
+     * @return 当前编码器
+     */
+    public JsonLineEncoder newLine() {
+        buffer.append('\n');
+        return this;
+    }
+
+    public LogLineBuffer getBuffer() {
+        return buffer;
+    }
+
+    private void beforeValue() {
+        if (afterName) {
+            afterName = false;
+        } else {
+            comma();
+        }
+    }
+
+    private void comma() {
+        if (depth == 0) {
+            return;
+        }
+        if (first[depth]) {
+            first[depth] = false;
+        } else {
+            buffer.append(',');
+        }
+    }
+
+    private void push() {
+        depth++;
+        if (depth >= first.length) {
+            first = Arrays.copyOf(first, first.length << 1);
+        }
+        first[depth] = true;
+    }
+
+    /**
+     * 写入带引号并转义的字符串
+     *
+     * @param value 字符串
+     */
+    private void writeString(CharSequence value) {
+        buffer.append('"');
+        int len = value.length();
+        for (int i = 0; i < len; i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"':
+                    buffer.append('\\').append('"');
+                    break;
+                case '\\':
+                    buffer.append('\\').append('\\');
+                    break;
+                case '\n':
+                    buffer.append('\\').append('n');
+                    break;
+                case '\r':
+                    buffer.append('\\').append('r');
+                    break;
+                case '\t':
+                    buffer.append('\\').append('t');
+                    break;
+                default:
+                    if (c < 0x20) {
+                        buffer.append("\\u00").append((char) HEX[c >> 4]).append((char) HEX[c & 0xF]);
+                    } else if (c < 0x80) {
+                        buffer.append(c);
+                    } else if (Character.isHighSurrogate(c) && i + 1 < len && Character.isLowSurrogate(value.charAt(i + 1))) {
+                        buffer.appendCodePoint(Character.toCodePoint(c, value.charAt(++i)));
+                    } else if (Character.isSurrogate(c)) {
+                        buffer.append('?');
+                    } else {
+                        buffer.appendCodePoint(c);
+                    }
+            }
+        }
+        buffer.append('"');
+    }
+}
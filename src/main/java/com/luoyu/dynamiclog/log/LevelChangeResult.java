@@ -0,0 +1,71 @@
+package com.luoyu.dynamiclog.log;
+
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 批量日志级别变更结果
+ *
+ * @author system
+ * @date 2024-01-01
+ */
+@Data
+public class LevelChangeResult {
+    /**
+     * 实际发生变更的Logger数量
+     */
+    private int changedCount;
+
+    /**
+     * 本次变更耗时（毫秒）
+     */
+    private long costMillis;
+
+    /**
+     * 是否已回滚
+     */
+    private boolean rolledBack = false;
+
+    /**
+     * 已应用的变更明细（按应用顺序）
+     */
+    private List<LevelChange> changes = new ArrayList<>();
+
+    /**
+     * 单个Logger的级别变更
+     */
+    @Data
+    public static class LevelChange {
+        /**
+         * Logger名称
+         */
+        private String loggerName;
+
+        /**
+         * 变更前Logger上显式设置的级别（null表示继承父级）
+         */
+        private String previousLevel;
+
+        /**
+         * 变更前记录的动态级别（null表示变更前未被动态修改）
+         */
+        private String previousModifiedLevel;
+
+        /**
+         * 本次变更是否首次记录了原始级别
+         */
+        private boolean originalRecorded;
+
+        /**
+         * 本次恢复时移除的原始级别记录（回滚时放回，null表示未移除）
+         */
+        private String removedOriginalLevel;
+
+        /**
+         * 变更后的级别
+         */
+        private String newLevel;
+    }
+}
@@ -0,0 +1,44 @@
+package com.luoyu.dynamiclog.log;
+
+/**
+ * 异步写入的持久化策略
+ *
+ * @author system
+ * @date 2024-01-01
+ */
+public enum LogDurabilityEnum {
+    /**
+     * 写入操作系统页缓存即返回，由操作系统决定落盘时机
+     */
+    NONE("none"),
+
+    /**
+     * 每批写入后调用force落盘
+     */
+    FSYNC("fsync");
+
+    private final String code;
+
+    LogDurabilityEnum(String code) {
+        this.code = code;
+    }
+
+    public String getCode() {
+        return code;
+    }
+
+    /**
+     * 根据编码获取策略
+     *
+     * @param code 编码
+     * @return 持久化策略，无法识别时返回NONE
+     */
+    public static LogDurabilityEnum of(String code) {
+        for (LogDurabilityEnum value : values()) {
+            if (value.code.equalsIgnoreCase(code)) {
+                return value;
+            }
+        }
+        return NONE;
+    }
+}
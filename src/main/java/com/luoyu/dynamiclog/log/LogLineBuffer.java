@@ -0,0 +1,136 @@
+package com.luoyu.dynamiclog.log;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * 可复用的日志行字节缓冲区（UTF-8编码，非线程安全）
+ *
+ * @author system
+ * @date 2024-01-01
+ */
+public class LogLineBuffer {
+    private byte[] buffer;
+    private int length;
+
+    public LogLineBuffer(int initialCapacity) {
+        this.buffer = new byte[initialCapacity];
+    }
+
+    /**
+     * 清空内容，保留已分配的空间
+     *
+     * @return 当前缓冲区
+     */
+    public LogLineBuffer reset() {
+        length = 0;
+        return this;
+    }
+
+    /**
+     * 追加字节
+     *
+     * @param bytes 字节
+     * @return 当前缓冲区
+     */
+    public LogLineBuffer append(byte[] bytes) {
+        ensureCapacity(length + bytes.length);
+        System.arraycopy(bytes, 0, buffer, length, bytes.length);
+        length += bytes.length;
+        return this;
+    }
+
+    /**
+     * 追加单个ASCII字符
+     *
+     * @param c 字符
+     * @return 当前缓冲区
+     */
+    public LogLineBuffer append(char c) {
+        if (c >= 0x80) {
+            return append(String.valueOf(c));
+        }
+        ensureCapacity(length + 1);
+        buffer[length++] = (byte) c;
+        return this;
+    }
+
+    /**
+     * 追加字符串（ASCII直接写入，非ASCII按UTF-8编码）
+     *
+     * @param value 字符串，null按"null"写入
+     * @return 当前缓冲区
+     */
+    public LogLineBuffer append(String value) {
+        String text = value == null ? "null" : value;
+        int len = text.length();
+        ensureCapacity(length + len);
+        for (int i = 0; i < len; i++) {
+            char c = text.charAt(i);
+            if (c >= 0x80) {
+                return append(text.substring(i).getBytes(StandardCharsets.UTF_8));
+            }
+            buffer[length++] = (byte) c;
+        }
+        return this;
+    }
+
+    /**
+     * 按UTF-8追加单个码点
+     *
+     * @param codePoint 码点
+     * @return 当前缓冲区
+     */
+    public LogLineBuffer appendCodePoint(int codePoint) {
+        ensureCapacity(length + 4);
+        if (codePoint < 0x80) {
+            buffer[length++] = (byte) codePoint;
+        } else if (codePoint < 0x800) {
+            buffer[length++] = (byte) (0xC0 | (codePoint >> 6));
+            buffer[length++] = (byte) (0x80 | (codePoint & 0x3F));
+        } else if (codePoint < 0x10000) {
+            buffer[length++] = (byte) (0xE0 | (codePoint >> 12));
+            buffer[length++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+            buffer[length++] = (byte) (0x80 | (codePoint & 0x3F));
+        } else {
+            buffer[length++] = (byte) (0xF0 | (codePoint >> 18));
+            buffer[length++] = (byte) (0x80 | ((codePoint >> 12) & 0x3F));
+            buffer[length++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+            buffer[length++] = (byte) (0x80 | (codePoint & 0x3F));
+        }
+        return this;
+    }
+
+    /**
+     * 追加十进制数字
+     *
+     * @param value 数值
+     * @return 当前缓冲区
+     */
+    public LogLineBuffer append(long value) {
+        return append(Long.toString(value));
+    }
+
+    /**
+     * 获取底层数组（有效内容为[0, length)）
+     *
+     * @return 底层数组
+     */
+    public byte[] array() {
+        return buffer;
+    }
+
+    public int length() {
+        return length;
+    }
+
+    public int capacity() {
+        return buffer.length;
+    }
+
+    private void ensureCapacity(int required) {
+        if (required > buffer.length) {
+            buffer = Arrays.copyOf(buffer, Math.max(required, buffer.length << 1));
+        }
+    }
+}
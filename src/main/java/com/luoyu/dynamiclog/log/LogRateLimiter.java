@@ -0,0 +1,133 @@
+package com.luoyu.dynamiclog.log;
+
+import com.luoyu.dynamiclog.config.InterfaceLogConfig;
+import lombok.extern.slf4j.Slf4j;
+import org.slf4j.Logger;
+import org.slf4j.spi.LocationAwareLogger;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 动态日志会话限流器
+ * <p>
+ * 每个接口配置（即一次动态调试会话）一个实例，按事件数/秒和字节数/秒两个令牌桶限制提升级别后额外产生的日志。
+ * 追踪请求线程通过{@link #bind(LogRateLimiter)}绑定所属会话；级别提升是全局的，
+ * 其它线程产生的额外日志计入最近一次绑定的会话。
+ *
+ * @author system
+ * @date 2024-01-01
+ */
+@Slf4j
+public class LogRateLimiter {
+    private static final ThreadLocal<LogRateLimiter> CURRENT = new ThreadLocal<>();
+    private static volatile LogRateLimiter ambient;
+
+    private final String sessionName;
+    private final TokenBucket eventBucket;
+    private final TokenBucket byteBucket;
+    private final int baselineLevel;
+    private final AtomicLong passedEvents = new AtomicLong();
+    private final AtomicLong suppressedEvents = new AtomicLong();
+    private final AtomicLong suppressedBytes = new AtomicLong();
+    private volatile boolean closed = false;
+
+    private LogRateLimiter(String sessionName, Integer maxEventsPerSecond, Long maxBytesPerSecond, String baselineLevel) {
+        this.sessionName = sessionName;
+        this.eventBucket = maxEventsPerSecond != null && maxEventsPerSecond > 0 ? new TokenBucket(maxEventsPerSecond) : null;
+        this.byteBucket = maxBytesPerSecond != null && maxBytesPerSecond > 0 ? new TokenBucket(maxBytesPerSecond) : null;
+        this.baselineLevel = LoggerLevelManager.toLevelInt(baselineLevel, LocationAwareLogger.INFO_INT);
+    }
+
+    /**
+     * 根据接口配置创建限流器
+     *
+     * @param config 接口配置
+     * @return 限流器，未配置限流时返回null
+     */
+    public static LogRateLimiter create(InterfaceLogConfig config) {
+        boolean limitEvents = config.getMaxEventsPerSecond() != null && config.getMaxEventsPerSecond() > 0;
+        boolean limitBytes = config.getMaxBytesPerSecond() != null && config.getMaxBytesPerSecond() > 0;
+        if (!limitEvents && !limitBytes) {
+            return null;
+        }
+
+        String sessionName = (config.getMethod() == null ? "*" : config.getMethod()) + " " + config.getPath();
+        String baselineLevel = LoggerLevelManager.getOriginalLevel(Logger.ROOT_LOGGER_NAME);
+        return new LogRateLimiter(sessionName, config.getMaxEventsPerSecond(), config.getMaxBytesPerSecond(), baselineLevel);
+    }
+
+    /**
+     * 将限流器绑定到当前线程
+     *
+     * @param limiter 限流器，为null时仅清除绑定
+     */
+    public static void bind(LogRateLimiter limiter) {
+        if (limiter == null || limiter.closed) {
+            CURRENT.remove();
+            return;
+        }
+        CURRENT.set(limiter);
+        ambient = limiter;
+    }
+
+    /**
+     * 解除当前线程的绑定
+     */
+    public static void unbind() {
+        CURRENT.remove();
+    }
+
+    /**
+     * 获取当前生效的限流器
+     *
+     * @return 限流器，没有活跃会话时返回null
+     */
+    public static LogRateLimiter current() {
+        LogRateLimiter limiter = CURRENT.get();
+        if (limiter == null) {
+            limiter = ambient;
+        }
+        return limiter == null || limiter.closed ? null : limiter;
+    }
+
+    /**
+     * 尝试放行一条日志
+     *
+     * @param estimatedBytes 估算字节数
+     * @return 是否放行
+     */
+    public boolean tryAcquire(int estimatedBytes) {
+        if ((eventBucket == null || eventBucket.tryAcquire(1))
+                && (byteBucket == null || byteBucket.tryAcquire(estimatedBytes))) {
+            passedEvents.incrementAndGet();
+            return true;
+        }
+        suppressedEvents.incrementAndGet();
+        suppressedBytes.addAndGet(estimatedBytes);
+        return false;
+    }
+
+    /**
+     * 结束会话并输出限流汇总
+     */
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        if (ambient == this) {
+            ambient = null;
+        }
+        log.info("动态日志会话结束，接口: {}, 放行日志: {}条, 限流丢弃: {}条, 丢弃字节(估算): {}",
+                sessionName, passedEvents.get(), suppressedEvents.get(), suppressedBytes.get());
+    }
+
+    /**
+     * 获取基线级别（会话开始前的级别，低于该级别的日志才受限流）
+     *
+     * @return SLF4J级别整数值
+     */
+    public int getBaselineLevel() {
+        return baselineLevel;
+    }
+}
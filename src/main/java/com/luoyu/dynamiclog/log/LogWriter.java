@@ -0,0 +1,24 @@
+package com.luoyu.dynamiclog.log;
+
+/**
+ * 动态日志文件写入器
+ *
+ * @author system
+ * @date 2024-01-01
+ */
+public interface LogWriter {
+
+    /**
+     * 写入一段已编码的日志，调用返回后调用方可以复用data
+     *
+     * @param data 数据
+     * @param offset 起始位置
+     * @param length 长度
+     */
+    void write(byte[] data, int offset, int length);
+
+    /**
+     * 关闭写入器，关闭前已写入的数据全部落到文件
+     */
+    void close();
+}
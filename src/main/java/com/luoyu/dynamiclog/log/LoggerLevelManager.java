@@ -4,9 +4,17 @@ import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.slf4j.spi.LocationAwareLogger;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 
 /**
  * 日志级别管理器
@@ -18,6 +26,12 @@ import java.util.concurrent.ConcurrentHashMap;
 public class LoggerLevelManager {
     private static final Map<String, String> originalLevels = new ConcurrentHashMap<>();
     private static final Map<String, String> modifiedLevels = new ConcurrentHashMap<>();
+    private static final Object BATCH_LOCK = new Object();
+
+    /**
+     * 原始级别记录中表示"未显式设置、继承父级"的标记（ConcurrentHashMap不能存放null）
+     */
+    private static final String INHERITED = "";
 
     /**
      * 修改Logger的日志级别
@@ -30,60 +44,30 @@ public class LoggerLevelManager {
             return;
         }
 
-        try {
-            Logger logger = LoggerFactory.getLogger(loggerName);
-            
-            // 保存原始级别
-            if (!originalLevels.containsKey(loggerName)) {
-                String originalLevel = getLoggerLevel(logger);
-                originalLevels.put(loggerName, originalLevel);
-            }
-
-            // 修改级别
-            ch.qos.logback.classic.Logger logbackLogger = getLogbackLogger(logger);
-            if (logbackLogger != null) {
-                ch.qos.logback.classic.Level logbackLevel = convertToLogbackLevel(level);
-                if (logbackLevel != null) {
-                    logbackLogger.setLevel(logbackLevel);
-                    modifiedLevels.put(loggerName, level);
-                    log.debug("Set logger [{}] level to [{}]", loggerName, level);
+        synchronized (BATCH_LOCK) {
+            try {
+                Logger logger = LoggerFactory.getLogger(loggerName);
+                if (!isSupported(logger) || normalizeLevel(level) == null) {
+                    return;
                 }
-            } else {
-                // 尝试使用Log4j2（通过反射，避免直接依赖）
-                try {
-                    Object log4jLogger = getLog4jLogger(logger);
-                    if (log4jLogger != null) {
-                        Object log4jLevel = convertToLog4jLevel(level);
-                        if (log4jLevel != null) {
-                            // 使用反射获取核心Logger
-                            java.lang.reflect.Method getMessageLoggerMethod = 
-                                log4jLogger.getClass().getMethod("getMessageLogger");
-                            Object coreLogger = getMessageLoggerMethod.invoke(log4jLogger);
-                            if (coreLogger != null) {
-                                // 使用反射检查是否是Log4j2的Logger
-                                Class<?> log4jCoreLoggerClass = Class.forName("org.apache.logging.log4j.core.Logger");
-                                if (log4jCoreLoggerClass.isInstance(coreLogger)) {
-                                    java.lang.reflect.Method setLevelMethod = 
-                                        coreLogger.getClass().getMethod("setLevel", Class.forName("org.apache.logging.log4j.Level"));
-                                    setLevelMethod.invoke(coreLogger, log4jLevel);
-                                    modifiedLevels.put(loggerName, level);
-                                    log.debug("Set logger [{}] level to [{}]", loggerName, level);
-                                }
-                            }
-                        }
-                    }
-                } catch (Exception e) {
-                    // Log4j2不可用，忽略
-                    log.debug("Log4j2 logger not available for [{}]", loggerName);
+
+                // 保存Logger自身的原始级别（未显式设置时记为继承，恢复时重新继承父级）
+                if (!originalLevels.containsKey(loggerName)) {
+                    originalLevels.put(loggerName, toStored(getExplicitLevel(logger)));
                 }
+
+                // 修改级别
+                writeLevel(logger, level);
+                modifiedLevels.put(loggerName, level);
+                log.debug("Set logger [{}] level to [{}]", loggerName, level);
+            } catch (Exception e) {
+                log.error("Failed to set logger level for [{}]", loggerName, e);
             }
-        } catch (Exception e) {
-            log.error("Failed to set logger level for [{}]", loggerName, e);
         }
     }
 
     /**
-     * 恢复Logger的原始日志级别
+     * 恢复Logger的原始日志级别（原本继承父级的Logger恢复为继承），并移除原始级别记录
      *
      * @param loggerName Logger名称
      */
@@ -92,52 +76,21 @@ public class LoggerLevelManager {
             return;
         }
 
-        String originalLevel = originalLevels.get(loggerName);
-        if (originalLevel == null) {
-            return;
-        }
+        synchronized (BATCH_LOCK) {
+            String storedLevel = originalLevels.get(loggerName);
+            if (storedLevel == null) {
+                return;
+            }
 
-        try {
-            Logger logger = LoggerFactory.getLogger(loggerName);
-            ch.qos.logback.classic.Logger logbackLogger = getLogbackLogger(logger);
-            if (logbackLogger != null) {
-                ch.qos.logback.classic.Level logbackLevel = convertToLogbackLevel(originalLevel);
-                if (logbackLevel != null) {
-                    logbackLogger.setLevel(logbackLevel);
-                    modifiedLevels.remove(loggerName);
-                    log.debug("Restored logger [{}] level to [{}]", loggerName, originalLevel);
-                }
-            } else {
-                // 尝试使用Log4j2（通过反射，避免直接依赖）
-                try {
-                    Object log4jLogger = getLog4jLogger(logger);
-                    if (log4jLogger != null) {
-                        Object log4jLevel = convertToLog4jLevel(originalLevel);
-                        if (log4jLevel != null) {
-                            // 使用反射获取核心Logger
-                            java.lang.reflect.Method getMessageLoggerMethod = 
-                                log4jLogger.getClass().getMethod("getMessageLogger");
-                            Object coreLogger = getMessageLoggerMethod.invoke(log4jLogger);
-                            if (coreLogger != null) {
-                                // 使用反射检查是否是Log4j2的Logger
-                                Class<?> log4jCoreLoggerClass = Class.forName("org.apache.logging.log4j.core.Logger");
-                                if (log4jCoreLoggerClass.isInstance(coreLogger)) {
-                                    java.lang.reflect.Method setLevelMethod = 
-                                        coreLogger.getClass().getMethod("setLevel", Class.forName("org.apache.logging.log4j.Level"));
-                                    setLevelMethod.invoke(coreLogger, log4jLevel);
-                                    modifiedLevels.remove(loggerName);
-                                    log.debug("Restored logger [{}] level to [{}]", loggerName, originalLevel);
-                                }
-                            }
-                        }
-                    }
-                } catch (Exception e) {
-                    // Log4j2不可用，忽略
-                    log.debug("Log4j2 logger not available for [{}]", loggerName);
-                }
+            try {
+                String originalLevel = fromStored(storedLevel);
+                writeLevel(LoggerFactory.getLogger(loggerName), originalLevel);
+                modifiedLevels.remove(loggerName);
+                originalLevels.remove(loggerName);
+                log.debug("Restored logger [{}] level to [{}]", loggerName, originalLevel == null ? "inherited" : originalLevel);
+            } catch (Exception e) {
+                log.error("Failed to restore logger level for [{}]", loggerName, e);
             }
-        } catch (Exception e) {
-            log.error("Failed to restore logger level for [{}]", loggerName, e);
         }
     }
 
@@ -184,6 +137,392 @@ public class LoggerLevelManager {
         }
     }
 
+    /**
+     * 按目标级别表批量应用日志级别
+     * <p>
+     * 先与当前已动态修改的级别做差量：目标表中级别不同的Logger被修改，已被修改但不在目标表中的Logger恢复原始级别，
+     * 级别未变化的Logger不做任何操作。Logback每次setLevel都会向继承级别的子Logger传播，无法合并为一次层级重算；
+     * 按层级由深到浅应用只是让父级变更时遇到已显式设置级别的子Logger即停止传播，减少重复遍历。
+     * 整批在同一把锁内完成，不会与单个Logger的修改和恢复交错。任一Logger设置失败时，本批已应用的变更会全部回滚。
+     *
+     * @param desiredLevels 目标级别表（Logger名称 -> 日志级别）
+     * @return 变更结果
+     */
+    public static LevelChangeResult applyLoggerLevels(Map<String, String> desiredLevels) {
+        long startTime = System.nanoTime();
+        LevelChangeResult result = new LevelChangeResult();
+
+        synchronized (BATCH_LOCK) {
+            Map<String, String> targets = diffLevels(desiredLevels);
+            List<String> loggerNames = new ArrayList<>(targets.keySet());
+            loggerNames.sort(Comparator.comparingInt(LoggerLevelManager::getLoggerDepth).reversed());
+
+            try {
+                for (String loggerName : loggerNames) {
+                    applyLevel(loggerName, targets.get(loggerName), result.getChanges());
+                }
+            } catch (Exception e) {
+                log.error("Failed to apply logger levels, rolling back {} change(s)", result.getChanges().size(), e);
+                revertChanges(result.getChanges());
+                result.setRolledBack(true);
+            }
+        }
+
+        result.setChangedCount(result.isRolledBack() ? 0 : result.getChanges().size());
+        result.setCostMillis(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime));
+        if (result.getChangedCount() > 0) {
+            log.info("Applied {} logger level change(s) in {}ms", result.getChangedCount(), result.getCostMillis());
+        }
+        return result;
+    }
+
+    /**
+     * 批量恢复指定Logger的原始级别，其余已动态修改的Logger保持当前级别
+     * <p>
+     * 目标级别表在锁内由当前动态级别减去要恢复的Logger得到，再整批差量应用，不会覆盖并发提升的其它Logger。
+     *
+     * @param loggerNames 要恢复的Logger名称
+     * @return 变更结果（失败时已回滚）
+     */
+    public static LevelChangeResult restoreLoggerLevels(Collection<String> loggerNames) {
+        synchronized (BATCH_LOCK) {
+            Map<String, String> desiredLevels = new HashMap<>(modifiedLevels);
+            desiredLevels.keySet().removeAll(loggerNames);
+            return applyLoggerLevels(desiredLevels);
+        }
+    }
+
+    /**
+     * 回滚一次批量变更
+     *
+     * @param result 批量变更结果
+     */
+    public static void rollbackLoggerLevels(LevelChangeResult result) {
+        if (result == null) {
+            return;
+        }
+
+        synchronized (BATCH_LOCK) {
+            if (result.isRolledBack()) {
+                return;
+            }
+            revertChanges(result.getChanges());
+            result.setRolledBack(true);
+        }
+        log.info("Rolled back {} logger level change(s)", result.getChanges().size());
+    }
+
+    /**
+     * 计算目标级别与当前动态级别的差量
+     *
+     * @param desiredLevels 目标级别表
+     * @return 需要变更的Logger（值为null表示恢复原始级别）
+     */
+    private static Map<String, String> diffLevels(Map<String, String> desiredLevels) {
+        Map<String, String> targets = new HashMap<>();
+        if (desiredLevels != null) {
+            for (Map.Entry<String, String> entry : desiredLevels.entrySet()) {
+                String level = normalizeLevel(entry.getValue());
+                if (StringUtils.isBlank(entry.getKey()) || level == null) {
+                    continue;
+                }
+                if (!level.equalsIgnoreCase(modifiedLevels.get(entry.getKey()))) {
+                    targets.put(entry.getKey(), level);
+                }
+            }
+        }
+
+        for (String loggerName : modifiedLevels.keySet()) {
+            boolean desired = desiredLevels != null && desiredLevels.containsKey(loggerName);
+            if (!desired && originalLevels.containsKey(loggerName)) {
+                targets.put(loggerName, null);
+            }
+        }
+        return targets;
+    }
+
+    /**
+     * 应用单个Logger的级别变更，变更明细在实际修改前登记，保证失败时可以完整回滚
+     *
+     * @param loggerName Logger名称
+     * @param level 目标级别，为null时恢复原始级别
+     * @param changes 变更明细
+     * @throws Exception 设置级别失败
+     */
+    private static void applyLevel(String loggerName, String level, List<LevelChangeResult.LevelChange> changes) throws Exception {
+        Logger logger = LoggerFactory.getLogger(loggerName);
+
+        LevelChangeResult.LevelChange change = new LevelChangeResult.LevelChange();
+        change.setLoggerName(loggerName);
+        change.setPreviousLevel(getExplicitLevel(logger));
+        change.setPreviousModifiedLevel(modifiedLevels.get(loggerName));
+        changes.add(change);
+
+        if (level == null) {
+            String storedLevel = originalLevels.get(loggerName);
+            String originalLevel = fromStored(storedLevel);
+            change.setNewLevel(originalLevel);
+            change.setRemovedOriginalLevel(storedLevel);
+            writeLevel(logger, originalLevel);
+            modifiedLevels.remove(loggerName);
+            originalLevels.remove(loggerName);
+        } else {
+            if (!originalLevels.containsKey(loggerName)) {
+                originalLevels.put(loggerName, toStored(getExplicitLevel(logger)));
+                change.setOriginalRecorded(true);
+            }
+            change.setNewLevel(level);
+            writeLevel(logger, level);
+            modifiedLevels.put(loggerName, level);
+        }
+    }
+
+    /**
+     * 按相反顺序撤销变更
+     *
+     * @param changes 变更明细
+     */
+    private static void revertChanges(List<LevelChangeResult.LevelChange> changes) {
+        for (int i = changes.size() - 1; i >= 0; i--) {
+            LevelChangeResult.LevelChange change = changes.get(i);
+            String loggerName = change.getLoggerName();
+            try {
+                writeLevel(LoggerFactory.getLogger(loggerName), change.getPreviousLevel());
+            } catch (Exception e) {
+                log.error("Failed to roll back logger level for [{}]", loggerName, e);
+            }
+
+            if (change.getPreviousModifiedLevel() != null) {
+                modifiedLevels.put(loggerName, change.getPreviousModifiedLevel());
+            } else {
+                modifiedLevels.remove(loggerName);
+            }
+            if (change.isOriginalRecorded()) {
+                originalLevels.remove(loggerName);
+            }
+            if (change.getRemovedOriginalLevel() != null) {
+                originalLevels.put(loggerName, change.getRemovedOriginalLevel());
+            }
+        }
+    }
+
+    /**
+     * 直接设置Logger级别（不维护原始/修改记录）
+     *
+     * @param logger Logger实例
+     * @param level 日志级别，为null时表示继承父级
+     * @throws Exception 设置级别失败
+     */
+    private static void writeLevel(Logger logger, String level) throws Exception {
+        ch.qos.logback.classic.Logger logbackLogger = getLogbackLogger(logger);
+        if (logbackLogger != null) {
+            logbackLogger.setLevel(level == null ? null : convertToLogbackLevel(level));
+            return;
+        }
+        setLog4jLevel(logger, level);
+    }
+
+    /**
+     * 设置Log4j2 Logger级别（通过反射，避免直接依赖）
+     *
+     * @param logger SLF4J Logger
+     * @param level 日志级别（为null时恢复继承）
+     * @return 是否设置成功
+     * @throws Exception 反射调用失败
+     */
+    private static boolean setLog4jLevel(Logger logger, String level) throws Exception {
+        Object log4jLogger = getLog4jLogger(logger);
+        if (log4jLogger == null) {
+            return false;
+        }
+
+        // 级别为null时Log4j2重新使用所属LoggerConfig的级别
+        Object log4jLevel = convertToLog4jLevel(level);
+        if (level != null && log4jLevel == null) {
+            return false;
+        }
+
+        // 使用反射获取核心Logger
+        java.lang.reflect.Method getMessageLoggerMethod =
+            log4jLogger.getClass().getMethod("getMessageLogger");
+        Object coreLogger = getMessageLoggerMethod.invoke(log4jLogger);
+        if (coreLogger == null) {
+            return false;
+        }
+
+        // 使用反射检查是否是Log4j2的Logger
+        Class<?> log4jCoreLoggerClass = Class.forName("org.apache.logging.log4j.core.Logger");
+        if (!log4jCoreLoggerClass.isInstance(coreLogger)) {
+            return false;
+        }
+
+        java.lang.reflect.Method setLevelMethod =
+            coreLogger.getClass().getMethod("setLevel", Class.forName("org.apache.logging.log4j.Level"));
+        setLevelMethod.invoke(coreLogger, log4jLevel);
+        return true;
+    }
+
+    /**
+     * 获取Logger上显式设置的级别
+     *
+     * @param logger Logger实例
+     * @return 日志级别字符串，未显式设置时返回null
+     */
+    private static String getExplicitLevel(Logger logger) {
+        ch.qos.logback.classic.Logger logbackLogger = getLogbackLogger(logger);
+        if (logbackLogger != null) {
+            return logbackLogger.getLevel() == null ? null : logbackLogger.getLevel().toString();
+        }
+        // Log4j2的Logger没有单独的显式级别，未被单独设置时即为所属LoggerConfig的级别，恢复时设为null重新继承
+        return null;
+    }
+
+    /**
+     * 是否为支持修改级别的Logger（Logback或Log4j2）
+     *
+     * @param logger Logger实例
+     * @return 是否支持
+     */
+    private static boolean isSupported(Logger logger) {
+        return getLogbackLogger(logger) != null || getLog4jLogger(logger) != null;
+    }
+
+    /**
+     * 转换为原始级别记录中的值
+     *
+     * @param level 显式级别（null表示继承）
+     * @return 记录值
+     */
+    private static String toStored(String level) {
+        return level == null ? INHERITED : level;
+    }
+
+    /**
+     * 从原始级别记录中还原级别
+     *
+     * @param storedLevel 记录值
+     * @return 显式级别（null表示继承）
+     */
+    private static String fromStored(String storedLevel) {
+        return storedLevel == null || INHERITED.equals(storedLevel) ? null : storedLevel;
+    }
+
+    /**
+     * 获取Logger在层级中的深度（ROOT最浅）
+     *
+     * @param loggerName Logger名称
+     * @return 深度
+     */
+    private static int getLoggerDepth(String loggerName) {
+        if (Logger.ROOT_LOGGER_NAME.equalsIgnoreCase(loggerName)) {
+            return -1;
+        }
+        return StringUtils.countMatches(loggerName, '.');
+    }
+
+    /**
+     * 规范化日志级别
+     *
+     * @param level 级别字符串
+     * @return 大写级别，无法识别时返回null
+     */
+    private static String normalizeLevel(String level) {
+        if (StringUtils.isBlank(level)) {
+            return null;
+        }
+
+        String upperLevel = level.trim().toUpperCase();
+        switch (upperLevel) {
+            case "TRACE":
+            case "DEBUG":
+            case "INFO":
+            case "WARN":
+            case "ERROR":
+                return upperLevel;
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * 获取Logger被动态修改前的级别
+     *
+     * @param loggerName Logger名称
+     * @return 原始级别（原本继承父级时返回null），未被修改过时返回当前级别
+     */
+    public static String getOriginalLevel(String loggerName) {
+        String storedLevel = originalLevels.get(loggerName);
+        if (storedLevel != null) {
+            return fromStored(storedLevel);
+        }
+        return getLoggerLevel(LoggerFactory.getLogger(loggerName));
+    }
+
+    /**
+     * 获取当前被动态修改过级别的Logger
+     *
+     * @return Logger名称到修改后级别的映射（副本）
+     */
+    public static Map<String, String> getModifiedLevels() {
+        return new HashMap<>(modifiedLevels);
+    }
+
+    /**
+     * 转换为SLF4J级别整数值（{@link org.slf4j.spi.LocationAwareLogger}中的取值）
+     *
+     * @param level 级别字符串
+     * @param defaultLevel 无法识别时的默认值
+     * @return 级别整数值
+     */
+    public static int toLevelInt(String level, int defaultLevel) {
+        String upperLevel = normalizeLevel(level);
+        if (upperLevel == null) {
+            return defaultLevel;
+        }
+
+        switch (upperLevel) {
+            case "TRACE":
+                return LocationAwareLogger.TRACE_INT;
+            case "DEBUG":
+                return LocationAwareLogger.DEBUG_INT;
+            case "INFO":
+                return LocationAwareLogger.INFO_INT;
+            case "WARN":
+                return LocationAwareLogger.WARN_INT;
+            default:
+                return LocationAwareLogger.ERROR_INT;
+        }
+    }
+
+    /**
+     * Logger当前的生效级别是否已输出指定级别的日志（Logback按生效级别判断，不经过TurboFilter）
+     *
+     * @param loggerName Logger名称
+     * @param level 日志级别
+     * @return 是否已输出
+     */
+    public static boolean isLevelEnabled(String loggerName, String level) {
+        Logger logger = LoggerFactory.getLogger(loggerName);
+        int levelInt = toLevelInt(level, LocationAwareLogger.INFO_INT);
+        ch.qos.logback.classic.Logger logbackLogger = getLogbackLogger(logger);
+        if (logbackLogger != null) {
+            return logbackLogger.getEffectiveLevel().toInt() <= ch.qos.logback.classic.Level.fromLocationAwareLoggerInteger(levelInt).toInt();
+        }
+
+        switch (levelInt) {
+            case LocationAwareLogger.TRACE_INT:
+                return logger.isTraceEnabled();
+            case LocationAwareLogger.DEBUG_INT:
+                return logger.isDebugEnabled();
+            case LocationAwareLogger.INFO_INT:
+                return logger.isInfoEnabled();
+            case LocationAwareLogger.WARN_INT:
+                return logger.isWarnEnabled();
+            default:
+                return logger.isErrorEnabled();
+        }
+    }
+
     /**
      * 获取Logger的当前级别
      *
@@ -290,10 +629,10 @@ public class LoggerLevelManager {
      * 清除所有修改的级别
      */
     public static void clearAll() {
-        for (String loggerName : modifiedLevels.keySet()) {
-            restoreLoggerLevel(loggerName);
+        synchronized (BATCH_LOCK) {
+            applyLoggerLevels(Collections.emptyMap());
+            originalLevels.clear();
+            modifiedLevels.clear();
         }
-        originalLevels.clear();
-        modifiedLevels.clear();
     }
 }
@@ -0,0 +1,313 @@
+package com.luoyu.dynamiclog.log;
+
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 内存映射分段写入器
+ * <p>
+ * 日志写入预分配的内存映射文件段（文件名为 日志文件名.000001 ...），请求线程通过CAS在段内预留写入位置后直接拷贝，
+ * 写入路径无锁、无系统调用。段写满时由第一个越界的线程把段尾剩余空间填充为空白行，并切换到新段；
+ * 关闭时最后一个段截断到实际写入长度（等待超时后仍有写入者时不截断）。
+ * 写满的段即为滚动文件，切换新段后按保留个数和总大小上限清理较旧的段。
+ *
+ * @author system
+ * @date 2024-01-01
+ */
+@Slf4j
+public class MappedSegmentLogWriter implements LogWriter {
+    private static final long CLOSE_TIMEOUT_MILLIS = 5000;
+
+    private final File dir;
+    private final String baseName;
+    private final int segmentSize;
+    private final int maxHistory;
+    private final long totalSizeCap;
+    private final Object rollLock = new Object();
+    private final AtomicLong droppedCount = new AtomicLong();
+    private volatile Segment current;
+    private volatile boolean closed = false;
+
+    /**
+     * 创建分段写入器并映射第一个段
+     *
+     * @param logFile 日志文件（段文件以其文件名为前缀）
+     * @param segmentSize 段大小（字节）
+     * @throws IOException 映射文件失败
+     */
+    public MappedSegmentLogWriter(File logFile, int segmentSize) throws IOException {
+        this(logFile, segmentSize, 0, 0L);
+    }
+
+    /**
+     * 创建分段写入器并映射第一个段
+     *
+     * @param logFile 日志文件（段文件以其文件名为前缀）
+     * @param segmentSize 段大小（字节）
+     * @param maxHistory 保留的已写满段个数（不大于0则不限制）
+     * @param totalSizeCap 已写满段的总大小上限（字节，不大于0则不限制）
+     * @throws IOException 映射文件失败
+     */
+    public MappedSegmentLogWriter(File logFile, int segmentSize, int maxHistory, long totalSizeCap) throws IOException {
+        this.dir = logFile.getAbsoluteFile().getParentFile();
+        this.baseName = logFile.getName();
+        this.segmentSize = segmentSize;
+        this.maxHistory = maxHistory;
+        this.totalSizeCap = totalSizeCap;
+        this.current = openSegment(findLastSegmentIndex() + 1);
+        applyRetention(current.index);
+    }
+
+    @Override
+    public void write(byte[] data, int offset, int length) {
+        if (length > segmentSize) {
+            droppedCount.incrementAndGet();
+            return;
+        }
+
+        while (true) {
+            Segment segment = current;
+            segment.writers.incrementAndGet();
+            try {
+                // 与close()配对：先登记写入者再检查关闭标记，保证关闭时不会有写入落在截断后的区域
+                if (closed) {
+                    droppedCount.incrementAndGet();
+                    return;
+                }
+
+                int start = segment.position.getAndAdd(length);
+                int end = start + length;
+                if (end <= segmentSize) {
+                    ByteBuffer slot = segment.buffer.duplicate();
+                    slot.position(start);
+                    slot.put(data, offset, length);
+                    return;
+                }
+
+                // 只有跨越段尾的那一次预留拥有[start, segmentSize)，由它负责填充
+                if (start < segmentSize) {
+                    padTail(segment, start);
+                }
+            } finally {
+                segment.writers.decrementAndGet();
+            }
+
+            if (!roll(segment)) {
+                droppedCount.incrementAndGet();
+                return;
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        Segment segment;
+        synchronized (rollLock) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            segment = current;
+        }
+
+        // 等待已预留位置的写入者完成拷贝
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(CLOSE_TIMEOUT_MILLIS);
+        while (segment.writers.get() > 0 && System.nanoTime() < deadline) {
+            Thread.yield();
+        }
+
+        try {
+            int used = Math.min(segment.position.get(), segmentSize);
+            if (segment.writers.get() > 0) {
+                // 仍有写入者在拷贝，截断会使其写到文件末尾之外的映射区域而导致进程崩溃（SIGBUS），
+                // 此时保留整段，把未使用的段尾填充为空白行
+                log.warn("Dynamic log segment [{}] still has writers after {}ms, keep it untruncated",
+                        segment.file, CLOSE_TIMEOUT_MILLIS);
+                if (used < segmentSize) {
+                    padTail(segment, used);
+                }
+                segment.buffer.force();
+            } else {
+                segment.buffer.force();
+                segment.channel.truncate(used);
+            }
+            segment.channel.close();
+        } catch (IOException e) {
+            log.error("Failed to close dynamic log segment [{}]", segment.file, e);
+        }
+
+        if (droppedCount.get() > 0) {
+            log.warn("Dynamic log mapped writer dropped {} line(s)", droppedCount.get());
+        }
+    }
+
+    /**
+     * 切换到新段（仅当full仍是当前段时才真正切换）
+     *
+     * @param full 已写满的段
+     * @return 是否可以继续写入
+     */
+    private boolean roll(Segment full) {
+        Segment next;
+        synchronized (rollLock) {
+            if (closed) {
+                return false;
+            }
+            if (current != full) {
+                return true;
+            }
+
+            try {
+                next = openSegment(full.index + 1);
+                current = next;
+            } catch (IOException e) {
+                log.error("Failed to open dynamic log segment", e);
+                return false;
+            }
+        }
+
+        // 关闭通道不会解除映射，仍在拷贝中的写入者不受影响
+        try {
+            full.channel.close();
+        } catch (IOException e) {
+            log.error("Failed to close dynamic log segment [{}]", full.file, e);
+        }
+        applyRetention(next.index);
+        return true;
+    }
+
+    /**
+     * 按个数和总大小清理较旧的段（保留序号最大的，当前段不参与统计）
+     *
+     * @param currentIndex 当前段序号
+     */
+    private void applyRetention(int currentIndex) {
+        if (maxHistory <= 0 && totalSizeCap <= 0) {
+            return;
+        }
+
+        List<Integer> indexes = listSegmentIndexes();
+        indexes.removeIf(index -> index >= currentIndex);
+        indexes.sort(Comparator.reverseOrder());
+
+        long totalSize = 0;
+        for (int i = 0; i < indexes.size(); i++) {
+            File segmentFile = segmentFile(indexes.get(i));
+            totalSize += segmentFile.length();
+            boolean exceedsHistory = maxHistory > 0 && i >= maxHistory;
+            boolean exceedsSize = totalSizeCap > 0 && totalSize > totalSizeCap;
+            // 已映射的段在POSIX系统上删除后映射仍然有效，滞后的写入者不受影响
+            if ((exceedsHistory || exceedsSize) && !segmentFile.delete()) {
+                log.warn("Failed to delete expired dynamic log segment [{}]", segmentFile);
+            }
+        }
+    }
+
+    /**
+     * 把段尾无法容纳一条日志的剩余空间填充为空白行
+     *
+     * @param segment 段
+     * @param start 剩余空间起始位置
+     */
+    private void padTail(Segment segment, int start) {
+        ByteBuffer tail = segment.buffer.duplicate();
+        tail.position(start);
+        while (tail.position() < segmentSize - 1) {
+            tail.put((byte) ' ');
+        }
+        tail.put((byte) '\n');
+    }
+
+    /**
+     * 映射新段
+     *
+     * @param index 段序号
+     * @return 段
+     * @throws IOException 映射失败
+     */
+    private Segment openSegment(int index) throws IOException {
+        File file = segmentFile(index);
+        FileChannel channel = FileChannel.open(file.toPath(),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentSize);
+        return new Segment(index, file, channel, buffer);
+    }
+
+    /**
+     * 段文件
+     *
+     * @param index 段序号
+     * @return 段文件
+     */
+    private File segmentFile(int index) {
+        return new File(dir, baseName + "." + String.format("%06d", index));
+    }
+
+    /**
+     * 查找目录中已存在的最大段序号，避免覆盖上次运行的输出
+     *
+     * @return 最大段序号，不存在时返回0
+     */
+    private int findLastSegmentIndex() {
+        int last = 0;
+        for (int index : listSegmentIndexes()) {
+            last = Math.max(last, index);
+        }
+        return last;
+    }
+
+    /**
+     * 列出目录中已存在的段序号
+     *
+     * @return 段序号
+     */
+    private List<Integer> listSegmentIndexes() {
+        List<Integer> indexes = new ArrayList<>();
+        String[] names = dir.list();
+        if (names == null) {
+            return indexes;
+        }
+
+        String prefix = baseName + ".";
+        for (String name : names) {
+            String suffix = name.startsWith(prefix) ? name.substring(prefix.length()) : null;
+            if (StringUtils.isNumeric(suffix)) {
+                indexes.add(Integer.parseInt(suffix));
+            }
+        }
+        return indexes;
+    }
+
+    /**
+     * 映射段
+     */
+    private static final class Segment {
+        private final int index;
+        private final File file;
+        private final FileChannel channel;
+        private final MappedByteBuffer buffer;
+        private final AtomicInteger position = new AtomicInteger();
+        private final AtomicInteger writers = new AtomicInteger();
+
+        private Segment(int index, File file, FileChannel channel, MappedByteBuffer buffer) {
+            this.index = index;
+            this.file = file;
+            this.channel = channel;
+            this.buffer = buffer;
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package com.luoyu.dynamiclog.log;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.turbo.TurboFilter;
+import ch.qos.logback.core.spi.FilterReply;
+import org.slf4j.LoggerFactory;
+import org.slf4j.Marker;
+
+/**
+ * 动态日志限流过滤器（Logback TurboFilter，在日志事件创建前决策）
+ *
+ * @author system
+ * @date 2024-01-01
+ */
+public class RateLimitTurboFilter extends TurboFilter {
+    /**
+     * 每个占位参数的估算字节数
+     */
+    private static final int PARAM_ESTIMATED_BYTES = 16;
+
+    @Override
+    public FilterReply decide(Marker marker, Logger logger, Level level, String format, Object[] params, Throwable t) {
+        // isXxxEnabled()调用不携带format，不消耗令牌
+        if (format == null || level == null) {
+            return FilterReply.NEUTRAL;
+        }
+
+        LogRateLimiter limiter = LogRateLimiter.current();
+        if (limiter == null) {
+            return FilterReply.NEUTRAL;
+        }
+
+        // 只限制因级别提升而额外产生的日志，且最终会被输出的日志
+        if (Level.toLocationAwareLoggerInteger(level) >= limiter.getBaselineLevel()
+                || !level.isGreaterOrEqual(logger.getEffectiveLevel())) {
+            return FilterReply.NEUTRAL;
+        }
+
+        // 按消息模板长度估算字节数，避免在决策阶段格式化参数
+        int estimatedBytes = format.length() + (params == null ? 0 : params.length * PARAM_ESTIMATED_BYTES);
+        return limiter.tryAcquire(estimatedBytes) ? FilterReply.NEUTRAL : FilterReply.DENY;
+    }
+
+    /**
+     * 注册到Logback上下文
+     */
+    public void install() {
+        if (!(LoggerFactory.getILoggerFactory() instanceof LoggerContext)) {
+            return;
+        }
+
+        LoggerContext context = (LoggerContext) LoggerFactory.getILoggerFactory();
+        setName("dynamicLogRateLimit");
+        setContext(context);
+        start();
+        context.addTurboFilter(this);
+    }
+}
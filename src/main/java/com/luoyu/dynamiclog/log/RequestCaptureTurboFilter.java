@@ -0,0 +1,66 @@
+package com.luoyu.dynamiclog.log;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.spi.ThrowableProxy;
+import ch.qos.logback.classic.spi.ThrowableProxyUtil;
+import ch.qos.logback.classic.turbo.TurboFilter;
+import ch.qos.logback.core.spi.FilterReply;
+import org.slf4j.LoggerFactory;
+import org.slf4j.Marker;
+import org.slf4j.helpers.FormattingTuple;
+import org.slf4j.helpers.MessageFormatter;
+
+/**
+ * 请求日志捕获过滤器
+ * <p>
+ * 以TurboFilter的方式在每次日志调用时判断，不依赖Appender挂载位置，additivity=false的Logger输出的日志同样会被捕获；
+ * 只处理绑定了{@link RequestLogBuffer}的线程，请求派生出的其它线程（线程池、异步回调等）上的日志不会被捕获。
+ * 被前面的过滤器（如日志限流）拒绝的日志不会到达这里。
+ *
+ * @author system
+ * @date 2024-01-01
+ */
+public class RequestCaptureTurboFilter extends TurboFilter {
+
+    @Override
+    public FilterReply decide(Marker marker, Logger logger, Level level, String format, Object[] params, Throwable t) {
+        RequestLogBuffer buffer = RequestLogBuffer.current();
+        // isXxxEnabled()判断时format为null，不是真正的日志输出
+        if (buffer == null || level == null || format == null || !level.isGreaterOrEqual(logger.getEffectiveLevel())) {
+            return FilterReply.NEUTRAL;
+        }
+
+        // 未显式传入异常时，最后一个参数是异常则按异常输出（与Logback一致）
+        FormattingTuple tuple = t == null ? MessageFormatter.arrayFormat(format, params)
+                : MessageFormatter.arrayFormat(format, params, t);
+        Throwable throwable = t != null ? t : tuple.getThrowable();
+        StringBuilder line = new StringBuilder(128);
+        line.append(TimestampCache.formatText(System.currentTimeMillis()))
+                .append(" [").append(Thread.currentThread().getName()).append("] ")
+                .append(level).append(' ')
+                .append(logger.getName()).append(" - ")
+                .append(tuple.getMessage()).append('\n');
+        if (throwable != null) {
+            line.append(ThrowableProxyUtil.asString(new ThrowableProxy(throwable))).append('\n');
+        }
+        buffer.append(line);
+        return FilterReply.NEUTRAL;
+    }
+
+    /**
+     * 注册到Logback上下文
+     */
+    public void install() {
+        if (!(LoggerFactory.getILoggerFactory() instanceof LoggerContext)) {
+            return;
+        }
+
+        LoggerContext context = (LoggerContext) LoggerFactory.getILoggerFactory();
+        setName("dynamicLogRequestCapture");
+        setContext(context);
+        start();
+        context.addTurboFilter(this);
+    }
+}
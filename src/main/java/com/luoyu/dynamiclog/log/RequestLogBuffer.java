@@ -0,0 +1,94 @@
+package com.luoyu.dynamiclog.log;
+
+/**
+ * 单个追踪请求的日志捕获缓冲区（有大小上限，超出部分只计数）
+ *
+ * @author system
+ * @date 2024-01-01
+ */
+public class RequestLogBuffer {
+    private static final ThreadLocal<RequestLogBuffer> CURRENT = new ThreadLocal<>();
+
+    private final int maxSize;
+    private final StringBuilder content = new StringBuilder();
+    private int capturedCount;
+    private int truncatedCount;
+
+    /**
+     * 创建缓冲区
+     *
+     * @param maxSize 最大字符数
+     */
+    public RequestLogBuffer(int maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * 将缓冲区绑定到当前线程，此后当前线程输出的日志被捕获
+     *
+     * @param buffer 缓冲区
+     */
+    public static void bind(RequestLogBuffer buffer) {
+        CURRENT.set(buffer);
+    }
+
+    /**
+     * 解除当前线程的绑定
+     */
+    public static void unbind() {
+        CURRENT.remove();
+    }
+
+    /**
+     * 获取当前线程绑定的缓冲区
+     *
+     * @return 缓冲区，未绑定时返回null
+     */
+    public static RequestLogBuffer current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * 追加一行日志
+     *
+     * @param line 日志行（含换行符）
+     */
+    public synchronized void append(CharSequence line) {
+        if (content.length() + line.length() > maxSize) {
+            truncatedCount++;
+            return;
+        }
+        content.append(line);
+        capturedCount++;
+    }
+
+    /**
+     * 获取捕获内容
+     *
+     * @return 捕获的日志文本
+     */
+    public synchronized String getContent() {
+        return content.toString();
+    }
+
+    public synchronized int getCapturedCount() {
+        return capturedCount;
+    }
+
+    public synchronized int getTruncatedCount() {
+        return truncatedCount;
+    }
+
+    /**
+     * 输出捕获内容
+     *
+     * @param sb 输出目标
+     */
+    public synchronized void appendTo(StringBuilder sb) {
+        sb.append("---------- 请求日志（").append(capturedCount).append("条）----------\n");
+        sb.append(content);
+        if (truncatedCount > 0) {
+            sb.append("... 超出捕获上限，另有").append(truncatedCount).append("条日志未记录\n");
+        }
+    }
+}
@@ -0,0 +1,212 @@
+package com.luoyu.dynamiclog.log;
+
+import org.apache.commons.lang3.exception.ExceptionUtils;
+import org.slf4j.helpers.FormattingTuple;
+import org.slf4j.helpers.MessageFormatter;
+import org.slf4j.spi.LocationAwareLogger;
+
+import java.util.Arrays;
+import java.util.function.Consumer;
+
+/**
+ * 追溯日志环形缓冲区（每线程一个，跨请求复用）
+ * <p>
+ * 只记录消息模板和参数引用，格式化推迟到真正需要输出时；请求正常结束时直接丢弃。
+ * 参数按引用保存，输出时反映的是参数对象在请求结束时的状态。
+ *
+ * @author system
+ * @date 2024-01-01
+ */
+public class RetroLogRing {
+    private static final ThreadLocal<RetroLogRing> RING = new ThreadLocal<>();
+
+    private final int capacity;
+    private final long[] timestamps;
+    private final String[] levels;
+    private final String[] loggerNames;
+    private final String[] formats;
+    private final Object[][] params;
+    private final Throwable[] throwables;
+    private long total;
+    private int minLevel;
+    private boolean active;
+
+    private RetroLogRing(int capacity) {
+        this.capacity = capacity;
+        this.timestamps = new long[capacity];
+        this.levels = new String[capacity];
+        this.loggerNames = new String[capacity];
+        this.formats = new String[capacity];
+        this.params = new Object[capacity][];
+        this.throwables = new Throwable[capacity];
+    }
+
+    /**
+     * 在当前线程开始记录
+     *
+     * @param capacity 缓冲区容量（条）
+     * @param minLevel 记录的最低级别
+     * @return 当前线程的缓冲区
+     */
+    public static RetroLogRing begin(int capacity, String minLevel) {
+        RetroLogRing ring = RING.get();
+        if (ring == null || ring.capacity != capacity) {
+            ring = new RetroLogRing(capacity);
+            RING.set(ring);
+        }
+        ring.clear();
+        ring.minLevel = LoggerLevelManager.toLevelInt(minLevel, LocationAwareLogger.DEBUG_INT);
+        ring.active = true;
+        return ring;
+    }
+
+    /**
+     * 获取当前线程正在记录的缓冲区
+     *
+     * @return 缓冲区，当前线程未在记录时返回null
+     */
+    public static RetroLogRing active() {
+        RetroLogRing ring = RING.get();
+        return ring != null && ring.active ? ring : null;
+    }
+
+    /**
+     * 结束当前线程的记录
+     *
+     * @return 缓冲区（调用方输出或丢弃后需调用{@link #clear()}），当前线程未在记录时返回null
+     */
+    public static RetroLogRing end() {
+        RetroLogRing ring = active();
+        if (ring != null) {
+            ring.active = false;
+        }
+        return ring;
+    }
+
+    /**
+     * 把当前线程的缓冲区从线程上摘下（异步请求释放请求线程时调用），此后该线程再开始记录时使用新的缓冲区
+     *
+     * @return 缓冲区，当前线程未在记录时返回null
+     */
+    public static RetroLogRing detach() {
+        RetroLogRing ring = end();
+        if (ring != null) {
+            RING.remove();
+        }
+        return ring;
+    }
+
+    /**
+     * 把摘下的缓冲区挂到当前线程上继续记录（异步请求重新分派时调用）
+     *
+     * @param ring 缓冲区
+     */
+    public static void attach(RetroLogRing ring) {
+        if (ring == null) {
+            return;
+        }
+        ring.active = true;
+        RING.set(ring);
+    }
+
+    /**
+     * 记录一条日志（覆盖最旧的记录）
+     *
+     * @param timestamp 时间戳
+     * @param level 级别
+     * @param loggerName Logger名称
+     * @param format 消息模板
+     * @param args 参数
+     * @param throwable 异常
+     */
+    public void record(long timestamp, String level, String loggerName, String format, Object[] args, Throwable throwable) {
+        int slot = (int) (total % capacity);
+        timestamps[slot] = timestamp;
+        levels[slot] = level;
+        loggerNames[slot] = loggerName;
+        formats[slot] = format;
+        params[slot] = args;
+        throwables[slot] = throwable;
+        total++;
+    }
+
+    /**
+     * 按时间顺序格式化输出
+     *
+     * @param sb 输出目标
+     */
+    public void formatTo(StringBuilder sb) {
+        long start = getOverwritten();
+        if (start > 0) {
+            sb.append("... 缓冲区已覆盖更早的").append(start).append("条日志\n");
+        }
+
+        for (long i = start; i < total; i++) {
+            int slot = (int) (i % capacity);
+            FormattingTuple tuple = MessageFormatter.arrayFormat(formats[slot], params[slot]);
+            sb.append(TimestampCache.formatText(timestamps[slot])).append(' ')
+                    .append(levels[slot]).append(' ')
+                    .append(loggerNames[slot]).append(" - ")
+                    .append(tuple.getMessage()).append('\n');
+
+            Throwable throwable = throwables[slot] != null ? throwables[slot] : tuple.getThrowable();
+            if (throwable != null) {
+                sb.append(ExceptionUtils.getStackTrace(throwable));
+            }
+        }
+    }
+
+    /**
+     * 按时间顺序以JSON Lines格式输出，每条日志一行
+     *
+     * @param json JSON编码器
+     * @param header 写入每行公共字段（对象开始后调用）
+     */
+    public void writeJsonTo(JsonLineEncoder json, Consumer<JsonLineEncoder> header) {
+        for (long i = getOverwritten(); i < total; i++) {
+            int slot = (int) (i % capacity);
+            FormattingTuple tuple = MessageFormatter.arrayFormat(formats[slot], params[slot]);
+            json.beginObject();
+            header.accept(json);
+            json.field("seq", i)
+                    .name("logTs").rawString(TimestampCache.format(timestamps[slot]))
+                    .field("level", levels[slot])
+                    .field("logger", loggerNames[slot])
+                    .field("message", tuple.getMessage());
+
+            Throwable throwable = throwables[slot] != null ? throwables[slot] : tuple.getThrowable();
+            if (throwable != null) {
+                json.field("throwable", ExceptionUtils.getStackTrace(throwable));
+            }
+            json.endObject().newLine();
+        }
+    }
+
+    /**
+     * 清空记录，释放对参数对象的引用
+     */
+    public void clear() {
+        Arrays.fill(loggerNames, null);
+        Arrays.fill(formats, null);
+        Arrays.fill(params, null);
+        Arrays.fill(throwables, null);
+        total = 0;
+    }
+
+    public long getTotal() {
+        return total;
+    }
+
+    /**
+     * 被覆盖（未能保留）的更早日志条数
+     *
+     * @return 被覆盖条数
+     */
+    public long getOverwritten() {
+        return Math.max(0, total - capacity);
+    }
+
+    public int getMinLevel() {
+        return minLevel;
+    }
+}
@@ -0,0 +1,57 @@
+package com.luoyu.dynamiclog.log;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.turbo.TurboFilter;
+import ch.qos.logback.core.spi.FilterReply;
+import org.slf4j.LoggerFactory;
+import org.slf4j.Marker;
+
+/**
+ * 追溯日志过滤器
+ * <p>
+ * 对正在记录追溯日志的线程，把低于当前生效级别（本来会被丢弃）的日志放入{@link RetroLogRing}，不创建日志事件、不格式化；
+ * isXxxEnabled()返回true，使被级别判断包裹的日志语句也能被记录。
+ *
+ * @author system
+ * @date 2024-01-01
+ */
+public class RetroLogTurboFilter extends TurboFilter {
+
+    @Override
+    public FilterReply decide(Marker marker, Logger logger, Level level, String format, Object[] params, Throwable t) {
+        RetroLogRing ring = RetroLogRing.active();
+        if (ring == null || level == null) {
+            return FilterReply.NEUTRAL;
+        }
+
+        // 正常会输出的日志以及低于记录级别的日志不做处理
+        if (level.isGreaterOrEqual(logger.getEffectiveLevel())
+                || Level.toLocationAwareLoggerInteger(level) < ring.getMinLevel()) {
+            return FilterReply.NEUTRAL;
+        }
+
+        if (format == null) {
+            return FilterReply.ACCEPT;
+        }
+
+        ring.record(System.currentTimeMillis(), level.levelStr, logger.getName(), format, params, t);
+        return FilterReply.NEUTRAL;
+    }
+
+    /**
+     * 注册到Logback上下文
+     */
+    public void install() {
+        if (!(LoggerFactory.getILoggerFactory() instanceof LoggerContext)) {
+            return;
+        }
+
+        LoggerContext context = (LoggerContext) LoggerFactory.getILoggerFactory();
+        setName("dynamicLogRetro");
+        setContext(context);
+        start();
+        context.addTurboFilter(this);
+    }
+}
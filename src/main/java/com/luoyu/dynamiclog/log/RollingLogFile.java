@@ -0,0 +1,264 @@
+package com.luoyu.dynamiclog.log;
+
+import com.luoyu.dynamiclog.config.DynamicLogConfig;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.regex.Pattern;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * 支持按大小/时间滚动的日志文件（非线程安全，由写入器保证单线程访问）
+ * <p>
+ * 滚动后的文件命名为 日志文件名.周期.序号，压缩和保留策略清理在后台线程执行，写入路径只做重命名和重新打开文件。
+ *
+ * @author system
+ * @date 2024-01-01
+ */
+@Slf4j
+public class RollingLogFile {
+    private static final ExecutorService ARCHIVE_EXECUTOR = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "dynamic-log-archiver");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private static final String GZIP_SUFFIX = ".gz";
+    private static final long ROLL_RETRY_MILLIS = 60_000L;
+
+    private final File file;
+    private final long maxFileSize;
+    private final String rollingPeriod;
+    private final int maxHistory;
+    private final long totalSizeCap;
+    private final boolean compress;
+    private final Pattern archivePattern;
+    private final DateTimeFormatter periodFormatter;
+
+    private FileChannel channel;
+    private long size;
+    private String periodKey;
+    private long nextRolloverTime = Long.MAX_VALUE;
+    private long rollRetryTime;
+
+    /**
+     * 打开日志文件
+     *
+     * @param file 日志文件
+     * @param config 动态日志配置，为null时不滚动
+     * @throws IOException 打开文件失败
+     */
+    public RollingLogFile(File file, DynamicLogConfig config) throws IOException {
+        this.file = file;
+        this.maxFileSize = config == null || config.getLogMaxFileSize() == null ? 0 : config.getLogMaxFileSize();
+        this.rollingPeriod = config == null || config.getLogRollingPeriod() == null ? "none" : config.getLogRollingPeriod().toLowerCase();
+        this.maxHistory = config == null || config.getLogMaxHistory() == null ? 0 : config.getLogMaxHistory();
+        this.totalSizeCap = config == null || config.getLogTotalSizeCap() == null ? 0 : config.getLogTotalSizeCap();
+        this.compress = config != null && Boolean.TRUE.equals(config.getLogCompress());
+        this.archivePattern = Pattern.compile(Pattern.quote(file.getName()) + "\\.[0-9-]+\\.\\d+(\\.gz)?");
+        this.periodFormatter = DateTimeFormatter.ofPattern("hourly".equals(rollingPeriod) ? "yyyy-MM-dd-HH" : "yyyy-MM-dd")
+                .withZone(ZoneId.systemDefault());
+
+        open();
+        // 已有文件属于它最后修改时间所在的周期，跨周期后的首次写入即触发滚动
+        long periodTime = file.exists() && size > 0 ? file.lastModified() : System.currentTimeMillis();
+        updatePeriod(periodTime);
+    }
+
+    /**
+     * 写入数据，必要时先滚动
+     *
+     * @param buffer 数据
+     * @throws IOException 写入失败
+     */
+    public void write(ByteBuffer buffer) throws IOException {
+        rollIfNeeded(buffer.remaining());
+        while (buffer.hasRemaining()) {
+            size += channel.write(buffer);
+        }
+    }
+
+    /**
+     * 落盘
+     *
+     * @throws IOException 落盘失败
+     */
+    public void force() throws IOException {
+        channel.force(false);
+    }
+
+    /**
+     * 关闭文件
+     *
+     * @throws IOException 关闭失败
+     */
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    /**
+     * 判断并执行滚动
+     *
+     * @param incomingBytes 即将写入的字节数
+     * @throws IOException 滚动失败
+     */
+    private void rollIfNeeded(int incomingBytes) throws IOException {
+        long now = System.currentTimeMillis();
+        boolean timeExceeded = now >= nextRolloverTime;
+        boolean sizeExceeded = maxFileSize > 0 && size > 0 && size + incomingBytes > maxFileSize;
+        if ((!timeExceeded && !sizeExceeded) || now < rollRetryTime) {
+            return;
+        }
+
+        channel.close();
+        File archive = nextArchiveFile();
+        boolean moved = false;
+        try {
+            Files.move(file.toPath(), archive.toPath(), StandardCopyOption.ATOMIC_MOVE);
+            moved = true;
+        } catch (IOException e) {
+            log.error("Failed to roll dynamic log file [{}], keep writing it and retry after {}ms",
+                    file, ROLL_RETRY_MILLIS, e);
+        } finally {
+            open();
+        }
+
+        // 重命名失败时继续写原文件，退避一段时间后再尝试滚动，避免每次写入都重复关闭和重命名
+        if (!moved) {
+            rollRetryTime = now + ROLL_RETRY_MILLIS;
+            return;
+        }
+        rollRetryTime = 0;
+        updatePeriod(now);
+
+        ARCHIVE_EXECUTOR.execute(() -> archive(archive));
+    }
+
+    /**
+     * 打开（或重新打开）当前文件
+     *
+     * @throws IOException 打开失败
+     */
+    private void open() throws IOException {
+        channel = FileChannel.open(file.toPath(),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        size = channel.size();
+    }
+
+    /**
+     * 更新当前周期及下一次按时间滚动的时间点
+     *
+     * @param time 属于当前周期的时间
+     */
+    private void updatePeriod(long time) {
+        periodKey = periodFormatter.format(Instant.ofEpochMilli(time));
+        if (!"daily".equals(rollingPeriod) && !"hourly".equals(rollingPeriod)) {
+            return;
+        }
+
+        ChronoUnit unit = "hourly".equals(rollingPeriod) ? ChronoUnit.HOURS : ChronoUnit.DAYS;
+        LocalDateTime periodStart = LocalDateTime.ofInstant(Instant.ofEpochMilli(time), ZoneId.systemDefault()).truncatedTo(unit);
+        nextRolloverTime = periodStart.plus(1, unit).atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+
+    /**
+     * 生成本周期内未被占用的归档文件名
+     *
+     * @return 归档文件
+     */
+    private File nextArchiveFile() {
+        File dir = file.getAbsoluteFile().getParentFile();
+        int index = 1;
+        while (true) {
+            File archive = new File(dir, file.getName() + "." + periodKey + "." + index);
+            if (!archive.exists() && !new File(archive.getPath() + GZIP_SUFFIX).exists()) {
+                return archive;
+            }
+            index++;
+        }
+    }
+
+    /**
+     * 压缩归档文件并执行保留策略（后台线程）
+     *
+     * @param archive 归档文件
+     */
+    private void archive(File archive) {
+        if (compress) {
+            File compressed = new File(archive.getPath() + GZIP_SUFFIX);
+            File temp = new File(archive.getPath() + GZIP_SUFFIX + ".tmp");
+            try (InputStream in = new FileInputStream(archive);
+                 OutputStream out = new GZIPOutputStream(new FileOutputStream(temp))) {
+                byte[] buffer = new byte[64 * 1024];
+                int read;
+                while ((read = in.read(buffer)) != -1) {
+                    out.write(buffer, 0, read);
+                }
+            } catch (IOException e) {
+                log.error("Failed to compress dynamic log file [{}]", archive, e);
+                temp.delete();
+                return;
+            }
+
+            try {
+                Files.move(temp.toPath(), compressed.toPath(), StandardCopyOption.ATOMIC_MOVE);
+                Files.delete(archive.toPath());
+            } catch (IOException e) {
+                log.error("Failed to finish compressing dynamic log file [{}]", archive, e);
+            }
+        }
+
+        applyRetention();
+    }
+
+    /**
+     * 按数量和总大小清理旧的归档文件（保留最新的）
+     */
+    private void applyRetention() {
+        if (maxHistory <= 0 && totalSizeCap <= 0) {
+            return;
+        }
+
+        File[] files = file.getAbsoluteFile().getParentFile().listFiles(
+                (dir, name) -> archivePattern.matcher(name).matches());
+        if (files == null) {
+            return;
+        }
+
+        List<File> archives = new ArrayList<>();
+        for (File archive : files) {
+            archives.add(archive);
+        }
+        archives.sort(Comparator.comparingLong(File::lastModified).reversed());
+
+        long totalSize = 0;
+        for (int i = 0; i < archives.size(); i++) {
+            File archive = archives.get(i);
+            totalSize += archive.length();
+            boolean exceedsHistory = maxHistory > 0 && i >= maxHistory;
+            boolean exceedsSize = totalSizeCap > 0 && totalSize > totalSizeCap;
+            if ((exceedsHistory || exceedsSize) && !archive.delete()) {
+                log.warn("Failed to delete expired dynamic log file [{}]", archive);
+            }
+        }
+    }
+}
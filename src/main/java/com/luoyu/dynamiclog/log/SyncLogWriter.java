@@ -0,0 +1,39 @@
+package com.luoyu.dynamiclog.log;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * 同步写入器（调用线程直接写入文件，每次写入一次系统调用）
+ *
+ * @author system
+ * @date 2024-01-01
+ */
+@Slf4j
+public class SyncLogWriter implements LogWriter {
+    private final RollingLogFile logFile;
+
+    public SyncLogWriter(RollingLogFile logFile) {
+        this.logFile = logFile;
+    }
+
+    @Override
+    public synchronized void write(byte[] data, int offset, int length) {
+        try {
+            logFile.write(ByteBuffer.wrap(data, offset, length));
+        } catch (IOException e) {
+            log.error("Failed to write dynamic log file", e);
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        try {
+            logFile.close();
+        } catch (IOException e) {
+            log.error("Failed to close dynamic log file", e);
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package com.luoyu.dynamiclog.log;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * 时间戳格式化缓存（同一毫秒内复用格式化结果，线程安全）
+ *
+ * @author system
+ * @date 2024-01-01
+ */
+public class TimestampCache {
+    private static final DateTimeFormatter FORMATTER =
+            DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss.SSS").withZone(ZoneId.systemDefault());
+
+    private static volatile CachedTimestamp cached = new CachedTimestamp(Long.MIN_VALUE, "");
+
+    private TimestampCache() {
+    }
+
+    /**
+     * 获取格式化后的时间戳（UTF-8字节，调用方不得修改）
+     *
+     * @param millis 毫秒时间戳
+     * @return 格式化结果
+     */
+    public static byte[] format(long millis) {
+        CachedTimestamp current = cached;
+        if (current.millis == millis) {
+            return current.bytes;
+        }
+
+        return refresh(millis).bytes;
+    }
+
+    /**
+     * 获取格式化后的时间戳文本
+     *
+     * @param millis 毫秒时间戳
+     * @return 格式化结果
+     */
+    public static String formatText(long millis) {
+        CachedTimestamp current = cached;
+        if (current.millis == millis) {
+            return current.text;
+        }
+        return refresh(millis).text;
+    }
+
+    private static CachedTimestamp refresh(long millis) {
+        CachedTimestamp current = new CachedTimestamp(millis, FORMATTER.format(Instant.ofEpochMilli(millis)));
+        cached = current;
+        return current;
+    }
+
+    /**
+     * 缓存项（不可变，整体替换保证可见性）
+     */
+    private static final class CachedTimestamp {
+        private final long millis;
+        private final String text;
+        private final byte[] bytes;
+
+        private CachedTimestamp(long millis, String text) {
+            this.millis = millis;
+            this.text = text;
+            this.bytes = text.getBytes(StandardCharsets.UTF_8);
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package com.luoyu.dynamiclog.log;
+
+/**
+ * 令牌桶（容量为每秒速率，即允许1秒的突发）
+ *
+ * @author system
+ * @date 2024-01-01
+ */
+public class TokenBucket {
+    private final long capacity;
+    private final double tokensPerNano;
+    private double tokens;
+    private long lastRefillTime;
+
+    /**
+     * 创建令牌桶
+     *
+     * @param permitsPerSecond 每秒产生的令牌数
+     */
+    public TokenBucket(long permitsPerSecond) {
+        this.capacity = permitsPerSecond;
+        this.tokensPerNano = permitsPerSecond / 1_000_000_000D;
+        this.tokens = permitsPerSecond;
+        this.lastRefillTime = System.nanoTime();
+    }
+
+    /**
+     * 尝试获取令牌，超过桶容量的请求按桶容量计算
+     *
+     * @param permits 令牌数
+     * @return 是否获取成功
+     */
+    public synchronized boolean tryAcquire(long permits) {
+        long now = System.nanoTime();
+        tokens = Math.min(capacity, tokens + (now - lastRefillTime) * tokensPerNano);
+        lastRefillTime = now;
+
+        long required = Math.min(permits, capacity);
+        if (tokens < required) {
+            return false;
+        }
+        tokens -= required;
+        return true;
+    }
+}
@@ -0,0 +1,49 @@
+package com.luoyu.dynamiclog.match;
+
+/**
+ * 匹配条件的比较方式
+ *
+ * @author system
+ * @date 2024-01-01
+ */
+public enum ConditionOperatorEnum {
+    /**
+     * 等于
+     */
+    EQ("eq"),
+
+    /**
+     * 以指定值开头
+     */
+    PREFIX("prefix"),
+
+    /**
+     * 属于指定集合
+     */
+    IN("in");
+
+    private final String code;
+
+    ConditionOperatorEnum(String code) {
+        this.code = code;
+    }
+
+    public String getCode() {
+        return code;
+    }
+
+    /**
+     * 根据编码获取比较方式
+     *
+     * @param code 编码
+     * @return 比较方式，无法识别时返回null
+     */
+    public static ConditionOperatorEnum of(String code) {
+        for (ConditionOperatorEnum value : values()) {
+            if (value.code.equalsIgnoreCase(code)) {
+                return value;
+            }
+        }
+        return null;
+    }
+}
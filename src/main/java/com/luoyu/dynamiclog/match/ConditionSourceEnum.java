@@ -0,0 +1,49 @@
+package com.luoyu.dynamiclog.match;
+
+/**
+ * 匹配条件的取值来源
+ *
+ * @author system
+ * @date 2024-01-01
+ */
+public enum ConditionSourceEnum {
+    /**
+     * 请求头
+     */
+    HEADER("header"),
+
+    /**
+     * 请求参数（查询参数或表单参数）
+     */
+    PARAM("param"),
+
+    /**
+     * 请求属性（如认证过滤器写入的用户、租户信息）
+     */
+    ATTRIBUTE("attribute");
+
+    private final String code;
+
+    ConditionSourceEnum(String code) {
+        this.code = code;
+    }
+
+    public String getCode() {
+        return code;
+    }
+
+    /**
+     * 根据编码获取来源
+     *
+     * @param code 编码
+     * @return 取值来源，无法识别时返回null
+     */
+    public static ConditionSourceEnum of(String code) {
+        for (ConditionSourceEnum value : values()) {
+            if (value.code.equalsIgnoreCase(code)) {
+                return value;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,139 @@
+package com.luoyu.dynamiclog.match;
+
+import com.luoyu.dynamiclog.config.InterfaceLogConfig;
+
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 接口匹配结果缓存
+ * <p>
+ * 以（HTTP方法, 请求路径）缓存路径匹配的候选配置，未匹配的结果同样缓存，绝大多数不需要调试的请求只需一次哈希查找。
+ * 请求头、参数等条件与具体请求有关，不进入缓存，由调用方对候选配置逐个判断。
+ * 每个缓存项记录写入时的配置代次，配置更新后代次递增，旧代次的缓存项自动失效；
+ * 缓存项总数达到上限时整体清空重新积累，避免路径中带ID等高基数场景下无限增长。
+ *
+ * @author system
+ * @date 2024-01-01
+ */
+public class InterfaceMatchCache {
+    private final int maxSize;
+    private final ConcurrentHashMap<String, ConcurrentHashMap<String, CachedMatch>> methodCaches =
+            new ConcurrentHashMap<>();
+    private final AtomicInteger size = new AtomicInteger();
+    private final LongAdder hitCount = new LongAdder();
+    private final LongAdder missCount = new LongAdder();
+
+    /**
+     * 构造函数
+     *
+     * @param maxSize 最大缓存项数（不大于0表示不缓存）
+     */
+    public InterfaceMatchCache(int maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * 查找缓存的匹配结果
+     *
+     * @param method HTTP方法
+     * @param path 请求路径
+     * @param generation 当前配置代次
+     * @return 缓存的匹配结果，未命中或已过期返回null
+     */
+    public CachedMatch get(String method, String path, long generation) {
+        if (maxSize > 0 && path != null) {
+            ConcurrentHashMap<String, CachedMatch> cache = methodCaches.get(method == null ? "" : method);
+            CachedMatch cached = cache == null ? null : cache.get(path);
+            if (cached != null && cached.generation == generation) {
+                hitCount.increment();
+                return cached;
+            }
+        }
+        missCount.increment();
+        return null;
+    }
+
+    /**
+     * 写入匹配结果
+     *
+     * @param method HTTP方法
+     * @param path 请求路径
+     * @param generation 计算匹配结果时的配置代次
+     * @param candidates 路径和方法匹配的候选配置（未匹配为空列表）
+     */
+    public void put(String method, String path, long generation, List<InterfaceLogConfig> candidates) {
+        if (maxSize <= 0 || path == null) {
+            return;
+        }
+
+        if (size.get() >= maxSize) {
+            clear();
+        }
+
+        ConcurrentHashMap<String, CachedMatch> cache =
+                methodCaches.computeIfAbsent(method == null ? "" : method, key -> new ConcurrentHashMap<>());
+        if (cache.put(path, new CachedMatch(generation, candidates)) == null) {
+            size.incrementAndGet();
+        }
+    }
+
+    /**
+     * 清空缓存（配置更新时调用，释放旧配置的引用）
+     */
+    public void clear() {
+        methodCaches.clear();
+        size.set(0);
+    }
+
+    /**
+     * 当前缓存项数（近似值）
+     *
+     * @return 缓存项数
+     */
+    public int size() {
+        return size.get();
+    }
+
+    /**
+     * 命中次数
+     *
+     * @return 命中次数
+     */
+    public long getHitCount() {
+        return hitCount.sum();
+    }
+
+    /**
+     * 未命中次数
+     *
+     * @return 未命中次数
+     */
+    public long getMissCount() {
+        return missCount.sum();
+    }
+
+    /**
+     * 缓存的匹配结果
+     */
+    public static final class CachedMatch {
+        private final long generation;
+        private final List<InterfaceLogConfig> candidates;
+
+        private CachedMatch(long generation, List<InterfaceLogConfig> candidates) {
+            this.generation = generation;
+            this.candidates = candidates;
+        }
+
+        /**
+         * 路径和方法匹配的候选配置
+         *
+         * @return 候选配置，未匹配为空列表
+         */
+        public List<InterfaceLogConfig> getCandidates() {
+            return candidates;
+        }
+    }
+}
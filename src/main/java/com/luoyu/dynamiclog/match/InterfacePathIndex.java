@@ -0,0 +1,294 @@
+package com.luoyu.dynamiclog.match;
+
+import com.luoyu.dynamiclog.config.InterfaceLogConfig;
+import org.apache.commons.lang3.StringUtils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 接口路径匹配索引
+ * <p>
+ * 配置加载时把所有接口路径按"/"分段编译为一棵段树：普通段走哈希精确匹配，"*"匹配一个段，"**"匹配零个或多个段，
+ * 段内含"*"、"?"（或"{变量}"）的按字符通配匹配。查找时沿请求路径逐段推进活跃节点集合，
+ * 耗时只与路径长度和模式结构有关，与配置的接口数量无关。多个配置同时匹配时按配置顺序取第一个，与原有语义一致。
+ *
+ * @author system
+ * @date 2024-01-01
+ */
+public class InterfacePathIndex {
+    private static final InterfacePathIndex EMPTY = new InterfacePathIndex();
+
+    private final Node root = new Node();
+
+    private InterfacePathIndex() {
+    }
+
+    /**
+     * 空索引
+     *
+     * @return 不匹配任何路径的索引
+     */
+    public static InterfacePathIndex empty() {
+        return EMPTY;
+    }
+
+    /**
+     * 编译接口配置
+     *
+     * @param configs 接口配置（顺序即优先级）
+     * @return 路径索引
+     */
+    public static InterfacePathIndex build(List<InterfaceLogConfig> configs) {
+        InterfacePathIndex index = new InterfacePathIndex();
+        if (configs == null) {
+            return index;
+        }
+
+        for (int i = 0; i < configs.size(); i++) {
+            InterfaceLogConfig config = configs.get(i);
+            if (config != null && StringUtils.isNotBlank(config.getPath())) {
+                index.add(config.getPath().trim(), new Entry(i, config));
+            }
+        }
+        return index;
+    }
+
+    /**
+     * 查找匹配的接口配置
+     *
+     * @param path 请求路径
+     * @param method HTTP方法
+     * @return 按配置顺序第一个匹配的接口配置，未匹配时返回null
+     */
+    public InterfaceLogConfig match(String path, String method) {
+        List<InterfaceLogConfig> candidates = matchAll(path, method);
+        return candidates.isEmpty() ? null : candidates.get(0);
+    }
+
+    /**
+     * 查找路径和方法都匹配的全部接口配置（请求条件由调用方继续判断）
+     *
+     * @param path 请求路径
+     * @param method HTTP方法
+     * @return 按配置顺序排列的候选配置（不可修改），未匹配时返回空列表
+     */
+    public List<InterfaceLogConfig> matchAll(String path, String method) {
+        if (path == null) {
+            return Collections.emptyList();
+        }
+
+        List<Node> active = new ArrayList<>(4);
+        addWithClosure(active, root);
+
+        int length = path.length();
+        int start = 0;
+        while (start <= length && !active.isEmpty()) {
+            int end = path.indexOf('/', start);
+            if (end < 0) {
+                end = length;
+            }
+            if (end > start) {
+                active = step(active, path.substring(start, end));
+            }
+            start = end + 1;
+        }
+
+        List<Entry> matched = null;
+        for (Node node : active) {
+            for (Entry entry : node.entries) {
+                if (entry.matchesMethod(method)) {
+                    if (matched == null) {
+                        matched = new ArrayList<>(2);
+                    }
+                    matched.add(entry);
+                }
+            }
+        }
+        if (matched == null) {
+            return Collections.emptyList();
+        }
+        if (matched.size() == 1) {
+            return Collections.singletonList(matched.get(0).config);
+        }
+
+        matched.sort((a, b) -> Integer.compare(a.order, b.order));
+        List<InterfaceLogConfig> candidates = new ArrayList<>(matched.size());
+        for (Entry entry : matched) {
+            candidates.add(entry.config);
+        }
+        return Collections.unmodifiableList(candidates);
+    }
+
+    /**
+     * 消费一个路径段
+     *
+     * @param active 当前活跃节点
+     * @param segment 路径段
+     * @return 消费后的活跃节点
+     */
+    private List<Node> step(List<Node> active, String segment) {
+        List<Node> next = new ArrayList<>(4);
+        for (Node node : active) {
+            if (node.isDoubleWildcard) {
+                addWithClosure(next, node);
+            }
+
+            Node exact = node.exactChildren.get(segment);
+            if (exact != null) {
+                addWithClosure(next, exact);
+            }
+            if (node.singleWildcardChild != null) {
+                addWithClosure(next, node.singleWildcardChild);
+            }
+            for (SegmentPattern pattern : node.patternChildren) {
+                if (pattern.matches(segment)) {
+                    addWithClosure(next, pattern.node);
+                }
+            }
+        }
+        return next;
+    }
+
+    /**
+     * 加入节点及其通过"**"可零段到达的节点
+     *
+     * @param nodes 节点集合
+     * @param node 节点
+     */
+    private void addWithClosure(List<Node> nodes, Node node) {
+        while (node != null && !nodes.contains(node)) {
+            nodes.add(node);
+            node = node.doubleWildcardChild;
+        }
+    }
+
+    /**
+     * 加入一个模式
+     *
+     * @param pattern 路径模式
+     * @param entry 配置项
+     */
+    private void add(String pattern, Entry entry) {
+        Node node = root;
+        for (String segment : StringUtils.split(pattern, '/')) {
+            node = node.child(segment);
+        }
+        node.entries.add(entry);
+        Collections.sort(node.entries, (a, b) -> Integer.compare(a.order, b.order));
+    }
+
+    /**
+     * 段树节点
+     */
+    private static final class Node {
+        private final Map<String, Node> exactChildren = new HashMap<>();
+        private final List<SegmentPattern> patternChildren = new ArrayList<>();
+        private final List<Entry> entries = new ArrayList<>();
+        private Node singleWildcardChild;
+        private Node doubleWildcardChild;
+        private boolean isDoubleWildcard;
+
+        private Node child(String segment) {
+            if ("**".equals(segment)) {
+                if (doubleWildcardChild == null) {
+                    doubleWildcardChild = new Node();
+                    doubleWildcardChild.isDoubleWildcard = true;
+                }
+                return doubleWildcardChild;
+            }
+
+            String glob = toGlob(segment);
+            if ("*".equals(glob)) {
+                if (singleWildcardChild == null) {
+                    singleWildcardChild = new Node();
+                }
+                return singleWildcardChild;
+            }
+
+            if (glob.indexOf('*') >= 0 || glob.indexOf('?') >= 0) {
+                for (SegmentPattern pattern : patternChildren) {
+                    if (pattern.glob.equals(glob)) {
+                        return pattern.node;
+                    }
+                }
+                SegmentPattern pattern = new SegmentPattern(glob, new Node());
+                patternChildren.add(pattern);
+                return pattern.node;
+            }
+
+            return exactChildren.computeIfAbsent(segment, key -> new Node());
+        }
+
+        /**
+         * 把"{变量}"转换为"*"
+         *
+         * @param segment 模式段
+         * @return 通配表达式
+         */
+        private static String toGlob(String segment) {
+            if (segment.indexOf('{') < 0) {
+                return segment;
+            }
+            return segment.replaceAll("\\{[^/}]*}", "*");
+        }
+    }
+
+    /**
+     * 段内通配模式（"*"匹配任意个字符，"?"匹配一个字符）
+     */
+    private static final class SegmentPattern {
+        private final String glob;
+        private final Node node;
+
+        private SegmentPattern(String glob, Node node) {
+            this.glob = glob;
+            this.node = node;
+        }
+
+        private boolean matches(String segment) {
+            int p = 0;
+            int s = 0;
+            int starP = -1;
+            int starS = 0;
+            while (s < segment.length()) {
+                if (p < glob.length() && (glob.charAt(p) == '?' || glob.charAt(p) == segment.charAt(s))) {
+                    p++;
+                    s++;
+                } else if (p < glob.length() && glob.charAt(p) == '*') {
+                    starP = p++;
+                    starS = s;
+                } else if (starP >= 0) {
+                    p = starP + 1;
+                    s = ++starS;
+                } else {
+                    return false;
+                }
+            }
+            while (p < glob.length() && glob.charAt(p) == '*') {
+                p++;
+            }
+            return p == glob.length();
+        }
+    }
+
+    /**
+     * 配置项
+     */
+    private static final class Entry {
+        private final int order;
+        private final InterfaceLogConfig config;
+
+        private Entry(int order, InterfaceLogConfig config) {
+            this.order = order;
+            this.config = config;
+        }
+
+        private boolean matchesMethod(String method) {
+            return StringUtils.isBlank(config.getMethod()) || config.getMethod().equalsIgnoreCase(method);
+        }
+    }
+}
@@ -0,0 +1,189 @@
+package com.luoyu.dynamiclog.match;
+
+import com.luoyu.dynamiclog.config.MatchCondition;
+import org.apache.commons.lang3.StringUtils;
+
+import javax.servlet.http.HttpServletRequest;
+import java.io.UnsupportedEncodingException;
+import java.net.URLDecoder;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * 请求条件匹配器
+ * <p>
+ * 配置加载时把接口的匹配条件编译为一组判断（来源、比较方式解析完毕，集合转为HashSet），
+ * 只在路径和方法已经匹配之后对具体请求求值，多个条件之间为"且"的关系。
+ * 表单提交的请求只从查询字符串中取参数，不读取请求体（否则后续处理器读不到表单内容）。
+ *
+ * @author system
+ * @date 2024-01-01
+ */
+public class RequestConditionMatcher {
+    private static final String FORM_URLENCODED = "application/x-www-form-urlencoded";
+    private static final String MULTIPART_FORM_DATA = "multipart/form-data";
+
+    private final CompiledCondition[] conditions;
+
+    private RequestConditionMatcher(CompiledCondition[] conditions) {
+        this.conditions = conditions;
+    }
+
+    /**
+     * 编译匹配条件
+     *
+     * @param conditions 匹配条件
+     * @return 条件匹配器，未配置条件时返回null
+     * @throws IllegalArgumentException 条件配置不合法
+     */
+    public static RequestConditionMatcher compile(List<MatchCondition> conditions) {
+        if (conditions == null || conditions.isEmpty()) {
+            return null;
+        }
+
+        List<CompiledCondition> compiled = new ArrayList<>(conditions.size());
+        for (MatchCondition condition : conditions) {
+            if (condition != null) {
+                compiled.add(compile(condition));
+            }
+        }
+        return compiled.isEmpty() ? null : new RequestConditionMatcher(compiled.toArray(new CompiledCondition[0]));
+    }
+
+    /**
+     * 编译单个条件
+     *
+     * @param condition 匹配条件
+     * @return 编译后的条件
+     */
+    private static CompiledCondition compile(MatchCondition condition) {
+        ConditionSourceEnum source = ConditionSourceEnum.of(condition.getSource());
+        if (source == null) {
+            throw new IllegalArgumentException("Unknown match condition source: " + condition.getSource());
+        }
+        if (StringUtils.isBlank(condition.getName())) {
+            throw new IllegalArgumentException("Match condition name is blank, source: " + condition.getSource());
+        }
+
+        ConditionOperatorEnum operator = ConditionOperatorEnum.of(
+                StringUtils.isBlank(condition.getOperator()) ? ConditionOperatorEnum.EQ.getCode() : condition.getOperator());
+        if (operator == null) {
+            throw new IllegalArgumentException("Unknown match condition operator: " + condition.getOperator());
+        }
+
+        Set<String> values = null;
+        if (operator == ConditionOperatorEnum.IN) {
+            if (condition.getValues() == null || condition.getValues().isEmpty()) {
+                throw new IllegalArgumentException("Match condition 'in' requires values, name: " + condition.getName());
+            }
+            values = new HashSet<>(condition.getValues());
+        } else if (condition.getValue() == null) {
+            throw new IllegalArgumentException("Match condition requires value, name: " + condition.getName());
+        }
+        return new CompiledCondition(source, condition.getName(), operator, condition.getValue(), values);
+    }
+
+    /**
+     * 判断请求是否满足全部条件
+     *
+     * @param request HTTP请求
+     * @return 是否满足
+     */
+    public boolean matches(HttpServletRequest request) {
+        if (request == null) {
+            return false;
+        }
+        for (CompiledCondition condition : conditions) {
+            if (!condition.matches(request)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 编译后的单个条件
+     */
+    private static final class CompiledCondition {
+        private final ConditionSourceEnum source;
+        private final String name;
+        private final ConditionOperatorEnum operator;
+        private final String value;
+        private final Set<String> values;
+
+        private CompiledCondition(ConditionSourceEnum source, String name, ConditionOperatorEnum operator,
+                                  String value, Set<String> values) {
+            this.source = source;
+            this.name = name;
+            this.operator = operator;
+            this.value = value;
+            this.values = values;
+        }
+
+        private boolean matches(HttpServletRequest request) {
+            String actual = resolve(request);
+            if (actual == null) {
+                return false;
+            }
+            switch (operator) {
+                case PREFIX:
+                    return actual.startsWith(value);
+                case IN:
+                    return values.contains(actual);
+                default:
+                    return actual.equals(value);
+            }
+        }
+
+        private String resolve(HttpServletRequest request) {
+            switch (source) {
+                case HEADER:
+                    return request.getHeader(name);
+                case PARAM:
+                    return isFormBody(request) ? queryParameter(request.getQueryString(), name) : request.getParameter(name);
+                default:
+                    Object attribute = request.getAttribute(name);
+                    return attribute == null ? null : String.valueOf(attribute);
+            }
+        }
+    }
+
+    /**
+     * 请求体是否为表单（getParameter会读取并解析请求体）
+     *
+     * @param request HTTP请求
+     * @return 是否为表单
+     */
+    private static boolean isFormBody(HttpServletRequest request) {
+        String contentType = request.getContentType();
+        return contentType != null && (StringUtils.startsWithIgnoreCase(contentType, FORM_URLENCODED)
+                || StringUtils.startsWithIgnoreCase(contentType, MULTIPART_FORM_DATA));
+    }
+
+    /**
+     * 从查询字符串中取参数值
+     *
+     * @param queryString 查询字符串（可为null）
+     * @param name 参数名
+     * @return 第一个同名参数的值（无值时为空字符串），不存在时返回null
+     */
+    static String queryParameter(String queryString, String name) {
+        if (StringUtils.isEmpty(queryString)) {
+            return null;
+        }
+        for (String pair : StringUtils.split(queryString, '&')) {
+            int index = pair.indexOf('=');
+            String key = index < 0 ? pair : pair.substring(0, index);
+            try {
+                if (name.equals(URLDecoder.decode(key, "UTF-8"))) {
+                    return index < 0 ? "" : URLDecoder.decode(pair.substring(index + 1), "UTF-8");
+                }
+            } catch (IllegalArgumentException | UnsupportedEncodingException e) {
+                // 编码不合法的参数忽略
+            }
+        }
+        return null;
+    }
+}
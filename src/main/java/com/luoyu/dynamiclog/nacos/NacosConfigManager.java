@@ -1,54 +1,208 @@
 package com.luoyu.dynamiclog.nacos;
 
-import com.alibaba.nacos.api.NacosFactory;
-import com.alibaba.nacos.api.config.ConfigService;
-import com.alibaba.nacos.api.config.listener.Listener;
 import com.alibaba.nacos.api.exception.NacosException;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.luoyu.dynamiclog.config.ConfigValidator;
 import com.luoyu.dynamiclog.config.DynamicLogConfig;
+import com.luoyu.dynamiclog.config.DynamicLogSnapshot;
 import com.luoyu.dynamiclog.config.InterfaceLogConfig;
+import com.luoyu.dynamiclog.log.LevelChangeResult;
+import com.luoyu.dynamiclog.log.LogRateLimiter;
+import com.luoyu.dynamiclog.log.LoggerLevelManager;
+import com.luoyu.dynamiclog.match.InterfaceMatchCache;
+import com.luoyu.dynamiclog.match.RequestConditionMatcher;
+import com.luoyu.dynamiclog.quota.ClusterQuotaBackend;
+import com.luoyu.dynamiclog.quota.ClusterTraceBudget;
+import com.luoyu.dynamiclog.quota.InMemoryQuotaBackend;
+import com.luoyu.dynamiclog.quota.LocalFileQuotaBackend;
+import com.luoyu.dynamiclog.source.ConfigSource;
+import com.luoyu.dynamiclog.source.FileConfigSource;
+import com.luoyu.dynamiclog.source.InProcessConfigSource;
+import com.luoyu.dynamiclog.source.LocalSnapshotStore;
+import com.luoyu.dynamiclog.source.NacosConfigSource;
+import com.luoyu.dynamiclog.trace.TraceActivationPolicy;
+import com.luoyu.dynamiclog.trace.TraceBudget;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.StringUtils;
 
+import javax.servlet.http.HttpServletRequest;
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
 import java.util.List;
-import java.util.concurrent.Executor;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
 
 /**
- * Nacos配置管理器
+ * Nacos配置管理器（配置来源可为Nacos、本地文件或进程内，统一解析、编译并发布配置快照）
  *
  * @author system
  * @date 2024-01-01
  */
 @Slf4j
 public class NacosConfigManager {
-    private ConfigService configService;
+    private static final long EXPIRE_CHECK_INTERVAL_SECONDS = 5L;
+    private static final long QUOTA_EXPIRE_INTERVAL_MINUTES = 10L;
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private volatile ConfigSource configSource;
+    private LocalSnapshotStore snapshotStore;
+    private ClusterQuotaBackend quotaBackend;
+    private boolean closed = false;
     private DynamicLogConfig dynamicLogConfig;
-    private List<InterfaceLogConfig> interfaceConfigs = new ArrayList<>();
-    private ObjectMapper objectMapper = new ObjectMapper();
+    private String configVersion;
+    private volatile DynamicLogSnapshot snapshot = new DynamicLogSnapshot(0, false, null, null, null, null);
+    private InterfaceMatchCache matchCache = new InterfaceMatchCache(0);
+    /**
+     * 忽略未知字段：旧版本配置中已移除的字段（如currentCount、completed）不影响解析
+     */
+    private ObjectMapper objectMapper = new ObjectMapper()
+            .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+    private final ScheduledExecutorService reloadExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "dynamic-log-config-reload");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final AtomicReference<String> pendingContent = new AtomicReference<>();
+    private final Object reloadLock = new Object();
+    private ScheduledFuture<?> pendingReload;
+    private long reloadDebounceMillis = 500L;
+    /** 已从快照移除但仍有进行中追踪的会话，追踪全部结束后恢复其提升过的Logger */
+    private final List<InterfaceLogConfig> retiredSessions = new CopyOnWriteArrayList<>();
+    private final List<Consumer<DynamicLogSnapshot>> snapshotListeners = new CopyOnWriteArrayList<>();
+
+    /**
+     * 初始化：按配置创建配置来源（nacos、file 或 inline）
+     *
+     * @param config 动态日志配置
+     * @throws Exception 创建或订阅配置来源失败
+     */
+    public void init(DynamicLogConfig config) throws Exception {
+        init(config, null);
+    }
 
     /**
-     * 初始化Nacos配置服务
+     * 初始化：先加载本地快照，再（默认异步）连接配置来源，远程配置到达前不会阻塞应用启动
      *
      * @param config 动态日志配置
-     * @throws NacosException Nacos异常
+     * @param source 配置来源，为null时按配置创建
+     * @throws Exception 同步加载时创建或订阅配置来源失败
      */
-    public void init(DynamicLogConfig config) throws NacosException {
+    public void init(DynamicLogConfig config, ConfigSource source) throws Exception {
         this.dynamicLogConfig = config;
-        
-        if (StringUtils.isBlank(config.getNacosServerAddr())) {
-            log.warn("Nacos server address is blank, dynamic log plugin will not work");
+        this.snapshot = DynamicLogSnapshot.initial(config);
+        if (config.getConfigReloadDebounceMs() != null) {
+            this.reloadDebounceMillis = Math.max(config.getConfigReloadDebounceMs(), 0L);
+        }
+        if (quotaBackend == null) {
+            this.quotaBackend = createQuotaBackend(config);
+        }
+        if (config.getMatchCacheSize() != null) {
+            this.matchCache = new InterfaceMatchCache(config.getMatchCacheSize());
+        }
+
+        // 定期恢复已过生效结束时间的会话提升过的Logger（这类会话的名额可能永远用不完）
+        reloadExecutor.scheduleWithFixedDelay(this::restoreExpiredSessions,
+                EXPIRE_CHECK_INTERVAL_SECONDS, EXPIRE_CHECK_INTERVAL_SECONDS, TimeUnit.SECONDS);
+
+        // 定期清理长期未租用的集群配额计数（每次下发使用新的配额标识）
+        if (quotaBackend != null) {
+            reloadExecutor.scheduleWithFixedDelay(this::expireQuota,
+                    QUOTA_EXPIRE_INTERVAL_MINUTES, QUOTA_EXPIRE_INTERVAL_MINUTES, TimeUnit.MINUTES);
+        }
+
+        // 上次成功应用的配置立即生效
+        if (StringUtils.isNotBlank(config.getConfigSnapshotFile())) {
+            snapshotStore = new LocalSnapshotStore(Paths.get(config.getConfigSnapshotFile()));
+            String content = snapshotStore.read();
+            if (StringUtils.isNotBlank(content) && parseConfig(content)) {
+                log.info("Loaded dynamic log config snapshot: {}", snapshotStore.getFile());
+            }
+        }
+
+        if (Boolean.FALSE.equals(config.getConfigLoadAsync())) {
+            startConfigSource(source);
             return;
         }
 
-        // 创建Nacos配置服务
-        configService = NacosFactory.createConfigService(config.getNacosServerAddr());
+        Thread loader = new Thread(() -> {
+            try {
+                startConfigSource(source);
+            } catch (Exception e) {
+                log.error("Failed to start dynamic log config source", e);
+            }
+        }, "dynamic-log-config-loader");
+        loader.setDaemon(true);
+        loader.start();
+    }
+
+    /**
+     * 创建配置来源、加载初始配置并订阅变更
+     *
+     * @param source 配置来源，为null时按配置创建
+     * @throws Exception 创建或订阅配置来源失败
+     */
+    private void startConfigSource(ConfigSource source) throws Exception {
+        ConfigSource created = source != null ? source : createConfigSource(dynamicLogConfig);
+        if (created == null) {
+            return;
+        }
+
+        synchronized (this) {
+            // 启动过程中应用已关闭
+            if (closed) {
+                created.close();
+                return;
+            }
+            configSource = created;
+        }
 
         // 初始化加载配置
         loadConfig();
 
-        // 添加配置监听器
-        addConfigListener();
+        // 订阅配置变更（回调只登记内容，在重载线程上防抖后应用）
+        created.subscribe(this::scheduleReload);
+    }
+
+    /**
+     * 按配置创建配置来源
+     *
+     * @param config 动态日志配置
+     * @return 配置来源，缺少必要配置时返回null
+     * @throws NacosException 创建Nacos配置服务失败
+     */
+    private ConfigSource createConfigSource(DynamicLogConfig config) throws NacosException {
+        if ("file".equalsIgnoreCase(config.getConfigSource())) {
+            if (StringUtils.isBlank(config.getConfigFile())) {
+                log.warn("Dynamic log config file is blank, dynamic log plugin will not work");
+                return null;
+            }
+            return new FileConfigSource(Paths.get(config.getConfigFile()));
+        }
+
+        if ("inline".equalsIgnoreCase(config.getConfigSource())) {
+            return new InProcessConfigSource(config.getConfigContent());
+        }
+
+        if (StringUtils.isBlank(config.getNacosServerAddr())) {
+            log.warn("Nacos server address is blank, dynamic log plugin will not work");
+            return null;
+        }
+        return new NacosConfigSource(config);
     }
 
     /**
@@ -56,155 +210,579 @@ public class NacosConfigManager {
      */
     private void loadConfig() {
         try {
-            String content = configService.getConfig(
-                    dynamicLogConfig.getNacosDataId(),
-                    dynamicLogConfig.getNacosGroup(),
-                    5000
-            );
-
+            String content = configSource.load();
             if (StringUtils.isNotBlank(content)) {
-                parseConfig(content);
+                applyConfig(content);
             }
-        } catch (NacosException e) {
-            log.error("Failed to load config from Nacos", e);
+        } catch (Exception e) {
+            log.error("Failed to load config from {}", configSource.getName(), e);
         }
     }
 
     /**
-     * 解析配置内容
+     * 配置变更回调：记录最新内容，在专用线程上防抖后应用，连续多次修改只应用最后一次
      *
      * @param content 配置内容（JSON格式）
      */
-    private void parseConfig(String content) {
-        try {
-            NacosConfigData configData = objectMapper.readValue(content, NacosConfigData.class);
-            
-            if (configData.getEnabled() != null) {
-                dynamicLogConfig.setEnabled(configData.getEnabled());
-            }
-            
-            if (configData.getRemoteCallType() != null) {
-                dynamicLogConfig.setRemoteCallType(configData.getRemoteCallType());
-            }
-            
-            if (configData.getLogOutputPath() != null) {
-                dynamicLogConfig.setLogOutputPath(configData.getLogOutputPath());
-            }
-            
-            if (configData.getLogFileName() != null) {
-                dynamicLogConfig.setLogFileName(configData.getLogFileName());
-            }
-            
-            if (configData.getInterfaces() != null) {
-                interfaceConfigs = configData.getInterfaces();
-                // 重置所有接口的计数
-                interfaceConfigs.forEach(ifc -> {
-                    ifc.setCurrentCount(0);
-                    ifc.setCompleted(false);
-                });
+    private void scheduleReload(String content) {
+        pendingContent.set(content);
+        synchronized (reloadLock) {
+            if (pendingReload != null) {
+                pendingReload.cancel(false);
             }
+            try {
+                pendingReload = reloadExecutor.schedule(this::reloadPending, reloadDebounceMillis, TimeUnit.MILLISECONDS);
+            } catch (RejectedExecutionException e) {
+                log.debug("Dynamic log config reload executor is shut down, ignore config change");
+            }
+        }
+    }
+
+    /**
+     * 应用待处理的最新配置
+     */
+    private void reloadPending() {
+        String content = pendingContent.getAndSet(null);
+        if (content != null) {
+            applyConfig(content);
+        }
+    }
+
+    /**
+     * 应用配置来源下发的配置，成功后保存为本地快照
+     *
+     * @param content 配置内容（JSON格式）
+     */
+    private void applyConfig(String content) {
+        if (parseConfig(content) && snapshotStore != null) {
+            snapshotStore.write(content);
+        }
+    }
+
+    /**
+     * 解析配置内容并发布新的配置快照
+     *
+     * @param content 配置内容（JSON格式）
+     * @return 是否成功（校验失败时当前快照保持不变）
+     */
+    private synchronized boolean parseConfig(String content) {
+        try {
+            return publish(objectMapper.readValue(content, NacosConfigData.class), null);
         } catch (Exception e) {
             log.error("Failed to parse config content", e);
+            return false;
         }
     }
 
     /**
-     * 添加配置监听器
+     * 在本实例上开始一个接口会话，不经过配置来源（已有相同路径和方法的会话时替换为新会话，重新开始计数）
+     * <p>
+     * 只作用于进程内的配置快照，不写入本地快照；配置来源下一次下发配置时以下发的接口列表为准。
+     *
+     * @param session 接口配置
+     * @return 是否成功（校验失败时当前快照保持不变）
      */
-    private void addConfigListener() {
+    public synchronized boolean startSession(InterfaceLogConfig session) {
+        List<InterfaceLogConfig> interfaces = new ArrayList<>();
+        for (InterfaceLogConfig config : snapshot.getInterfaces()) {
+            if (!isSameInterface(config, session.getPath(), session.getMethod())) {
+                interfaces.add(config);
+            }
+        }
+        interfaces.add(session);
+
+        NacosConfigData configData = new NacosConfigData();
+        configData.setInterfaces(interfaces);
         try {
-            configService.addListener(
-                    dynamicLogConfig.getNacosDataId(),
-                    dynamicLogConfig.getNacosGroup(),
-                    new Listener() {
-                        @Override
-                        public Executor getExecutor() {
-                            return null;
-                        }
+            return publish(configData, session);
+        } catch (Exception e) {
+            log.error("Failed to start dynamic log session {} {}", session.getMethod(), session.getPath(), e);
+            return false;
+        }
+    }
+
+    /**
+     * 在本实例上结束指定路径和方法的接口会话，不经过配置来源
+     *
+     * @param path 接口路径
+     * @param method HTTP方法（为空时只匹配未限定方法的会话）
+     * @return 是否有会话被结束
+     */
+    public synchronized boolean stopSession(String path, String method) {
+        List<InterfaceLogConfig> interfaces = new ArrayList<>();
+        for (InterfaceLogConfig config : snapshot.getInterfaces()) {
+            if (!isSameInterface(config, path, method)) {
+                interfaces.add(config);
+            }
+        }
+        if (interfaces.size() == snapshot.getInterfaces().size()) {
+            return false;
+        }
 
-                        @Override
-                        public void receiveConfigInfo(String configInfo) {
-                            log.info("Received config change from Nacos, reloading...");
-                            parseConfig(configInfo);
-                        }
-                    }
-            );
-        } catch (NacosException e) {
-            log.error("Failed to add config listener", e);
+        NacosConfigData configData = new NacosConfigData();
+        configData.setInterfaces(interfaces);
+        try {
+            return publish(configData, null);
+        } catch (Exception e) {
+            log.error("Failed to stop dynamic log session {} {}", method, path, e);
+            return false;
         }
     }
 
     /**
-     * 获取接口配置
+     * 是否为同一接口（路径相同，方法忽略大小写相同）
      *
+     * @param config 接口配置
      * @param path 接口路径
      * @param method HTTP方法
-     * @return 接口配置，如果未匹配则返回null
+     * @return 是否相同
      */
-    public InterfaceLogConfig getInterfaceConfig(String path, String method) {
-        if (!dynamicLogConfig.getEnabled()) {
-            return null;
+    private static boolean isSameInterface(InterfaceLogConfig config, String path, String method) {
+        return StringUtils.equals(config.getPath(), path) && StringUtils.equalsIgnoreCase(config.getMethod(), method);
+    }
+
+    /**
+     * 校验配置，与当前快照逐个接口比较后编译为新的配置快照整体发布。
+     * 未变化的接口沿用原对象（保留计数、限流器和进行中的追踪），只有新增或修改的接口重新开始会话。
+     *
+     * @param configData 配置数据（为null的字段沿用当前快照）
+     * @param restarted 即使与当前配置相同也重新开始会话的接口配置（可为null）
+     * @return 是否成功（校验失败时当前快照保持不变）
+     */
+    private boolean publish(NacosConfigData configData, InterfaceLogConfig restarted) {
+        DynamicLogSnapshot current = snapshot;
+
+        String remoteCallType = configData.getRemoteCallType() != null
+                ? configData.getRemoteCallType() : current.getRemoteCallType();
+        List<String> errors = ConfigValidator.validate(remoteCallType, configData.getInterfaces());
+        if (!errors.isEmpty()) {
+            log.error("Rejected invalid dynamic log config, keep generation {}: {}", current.getGeneration(), errors);
+            return false;
         }
 
-        for (InterfaceLogConfig config : interfaceConfigs) {
-            if (matches(config, path, method)) {
-                return config;
+        // 配置版本变化时所有接口重新开始会话
+        String version = configData.getVersion() != null ? configData.getVersion() : configVersion;
+        boolean restartAll = !StringUtils.equals(version, configVersion);
+
+        List<InterfaceLogConfig> interfaces = current.getInterfaces();
+        List<InterfaceLogConfig> created = Collections.emptyList();
+        List<InterfaceLogConfig> removed = Collections.emptyList();
+        if (configData.getInterfaces() != null) {
+            created = new ArrayList<>();
+            removed = new ArrayList<>();
+            interfaces = mergeInterfaces(current.getInterfaces(), configData.getInterfaces(), restarted, restartAll,
+                    created, removed);
+
+            // 新增或修改的接口编译请求条件和激活策略，并分配追踪名额（本实例上开始的会话使用独立的集群配额）
+            long loadTime = System.currentTimeMillis();
+            for (InterfaceLogConfig ifc : created) {
+                ifc.setConditionMatcher(RequestConditionMatcher.compile(ifc.getConditions()));
+                ifc.setTraceBudget(createTraceBudget(ifc,
+                        ifc == restarted ? "local-" + UUID.randomUUID() : StringUtils.defaultString(version)));
+                ifc.setActivationPolicy(TraceActivationPolicy.create(ifc, loadTime));
+            }
+        }
+        configVersion = version;
+
+        boolean enabled = configData.getEnabled() != null ? configData.getEnabled() : current.isEnabled();
+        String logOutputPath = configData.getLogOutputPath() != null
+                ? configData.getLogOutputPath() : current.getLogOutputPath();
+        String logFileName = configData.getLogFileName() != null
+                ? configData.getLogFileName() : current.getLogFileName();
+        if (created.isEmpty() && removed.isEmpty() && interfaces.equals(current.getInterfaces())
+                && enabled == current.isEnabled()
+                && StringUtils.equals(remoteCallType, current.getRemoteCallType())
+                && StringUtils.equals(logOutputPath, current.getLogOutputPath())
+                && StringUtils.equals(logFileName, current.getLogFileName())) {
+            log.info("Dynamic log config unchanged, keep generation {}", current.getGeneration());
+            return true;
+        }
+
+        DynamicLogSnapshot next = new DynamicLogSnapshot(current.getGeneration() + 1, enabled, remoteCallType,
+                logOutputPath, logFileName, interfaces);
+
+        // 被删除会话提升过、且保留的会话不再使用的Logger整批恢复（差量应用，失败时整批回滚并保持当前快照）；
+        // 还有进行中追踪的会话等追踪结束后再恢复
+        List<InterfaceLogConfig> inProgress = new ArrayList<>();
+        List<InterfaceLogConfig> idle = new ArrayList<>();
+        Set<String> restoredLoggers = new LinkedHashSet<>();
+        for (InterfaceLogConfig ifc : removed) {
+            if (hasTraceInProgress(ifc)) {
+                inProgress.add(ifc);
+                continue;
+            }
+            idle.add(ifc);
+            for (String loggerName : ifc.getElevatedLoggers()) {
+                if (!isElevatedByOthers(loggerName, ifc, next.getInterfaces())) {
+                    restoredLoggers.add(loggerName);
+                }
+            }
+        }
+        LevelChangeResult levelChanges = restoredLoggers.isEmpty() ? null
+                : LoggerLevelManager.restoreLoggerLevels(restoredLoggers);
+        if (levelChanges != null && levelChanges.isRolledBack()) {
+            log.error("Failed to restore logger levels {}, keep generation {}", restoredLoggers, current.getGeneration());
+            return false;
+        }
+
+        try {
+            created.forEach(ifc -> ifc.setRateLimiter(LogRateLimiter.create(ifc)));
+        } catch (RuntimeException e) {
+            LoggerLevelManager.rollbackLoggerLevels(levelChanges);
+            throw e;
+        }
+
+        // 结束被删除或修改的会话的限流统计和Logger登记
+        removed.forEach(ifc -> {
+            if (ifc.getRateLimiter() != null) {
+                ifc.getRateLimiter().close();
+            }
+        });
+        idle.forEach(ifc -> ifc.getElevatedLoggers().clear());
+        retiredSessions.addAll(inProgress);
+
+        snapshot = next;
+        matchCache.clear();
+        log.info("Applied dynamic log config generation {}: {} interfaces, {} new or changed, {} removed, "
+                        + "{} logger level(s) restored in {}ms", next.getGeneration(), interfaces.size(), created.size(),
+                removed.size(), levelChanges == null ? 0 : levelChanges.getChangedCount(),
+                levelChanges == null ? 0 : levelChanges.getCostMillis());
+        for (Consumer<DynamicLogSnapshot> listener : snapshotListeners) {
+            try {
+                listener.accept(next);
+            } catch (Exception e) {
+                log.error("Dynamic log snapshot listener failed for generation {}", next.getGeneration(), e);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 创建追踪次数预算：配置了集群配额时从集群共享计数中租用名额，否则只在本实例计数
+     *
+     * @param config 接口配置
+     * @param publication 下发标识（配置版本，本实例上开始的会话为随机标识）
+     * @return 追踪次数预算
+     */
+    private TraceBudget createTraceBudget(InterfaceLogConfig config, String publication) {
+        if (quotaBackend == null) {
+            return new TraceBudget(config.getCount());
+        }
+
+        // 同一版本的同一份接口配置在各实例上（包括之后启动的实例）得到相同的标识，
+        // 配置内容或版本变化后标识随之变化，开始新的集群会话
+        String quotaKey = dynamicLogConfig.getNacosDataId() + ":" + publication + ":" + config.getMethod() + " "
+                + config.getPath() + "#" + contentDigest(config);
+        int batchSize = dynamicLogConfig.getClusterQuotaBatchSize() == null ? 1 : dynamicLogConfig.getClusterQuotaBatchSize();
+        return new ClusterTraceBudget(quotaBackend, quotaKey, config.getCount(), batchSize);
+    }
+
+    /**
+     * 接口配置内容摘要（JSON序列化后的MD5，不含运行时状态）
+     *
+     * @param config 接口配置
+     * @return 十六进制摘要
+     */
+    private String contentDigest(InterfaceLogConfig config) {
+        try {
+            byte[] digest = MessageDigest.getInstance("MD5").digest(objectMapper.writeValueAsBytes(config));
+            StringBuilder hex = new StringBuilder(digest.length * 2);
+            for (byte b : digest) {
+                hex.append(HEX[(b >> 4) & 0xF]).append(HEX[b & 0xF]);
+            }
+            return hex.toString();
+        } catch (JsonProcessingException | NoSuchAlgorithmException e) {
+            throw new IllegalStateException("Failed to digest interface config " + config.getPath(), e);
+        }
+    }
+
+    /**
+     * 清理超过保留时长未被租用的集群配额计数
+     */
+    private void expireQuota() {
+        Integer hours = dynamicLogConfig.getClusterQuotaExpireHours();
+        if (hours == null || hours <= 0) {
+            return;
+        }
+        try {
+            quotaBackend.expire(System.currentTimeMillis() - TimeUnit.HOURS.toMillis(hours));
+        } catch (Exception e) {
+            log.warn("Failed to expire cluster trace quota", e);
+        }
+    }
+
+    /**
+     * 创建集群配额后端
+     *
+     * @param config 动态日志配置
+     * @return 配额后端，未启用集群配额时返回null
+     * @throws IOException 创建本地文件后端失败
+     */
+    private ClusterQuotaBackend createQuotaBackend(DynamicLogConfig config) throws IOException {
+        if ("memory".equalsIgnoreCase(config.getClusterQuota())) {
+            return new InMemoryQuotaBackend();
+        }
+        if ("file".equalsIgnoreCase(config.getClusterQuota())) {
+            if (StringUtils.isBlank(config.getClusterQuotaDir())) {
+                log.warn("Cluster quota directory is blank, trace count is enforced per instance");
+                return null;
             }
+            return new LocalFileQuotaBackend(Paths.get(config.getClusterQuotaDir()));
         }
         return null;
     }
 
     /**
-     * 判断接口是否匹配
+     * 逐个接口比较新旧配置：与旧配置相等（不含运行时状态）的沿用旧对象
      *
-     * @param config 配置
-     * @param path 请求路径
-     * @param method HTTP方法
-     * @return 是否匹配
+     * @param previous 当前生效的接口配置
+     * @param latest 新下发的接口配置
+     * @param restarted 不沿用旧对象、重新开始会话的接口配置（可为null）
+     * @param restartAll 是否所有接口都不沿用旧对象
+     * @param created 输出：新增或修改的接口配置
+     * @param removed 输出：被删除或修改的旧接口配置
+     * @return 合并后的接口配置（按新配置顺序）
      */
-    private boolean matches(InterfaceLogConfig config, String path, String method) {
-        // 路径匹配（支持Ant风格）
-        if (!matchPath(config.getPath(), path)) {
-            return false;
+    private List<InterfaceLogConfig> mergeInterfaces(List<InterfaceLogConfig> previous, List<InterfaceLogConfig> latest,
+                                                     InterfaceLogConfig restarted, boolean restartAll,
+                                                     List<InterfaceLogConfig> created, List<InterfaceLogConfig> removed) {
+        boolean[] reused = new boolean[previous.size()];
+        List<InterfaceLogConfig> merged = new ArrayList<>(latest.size());
+        for (InterfaceLogConfig config : latest) {
+            int index = -1;
+            for (int i = 0; !restartAll && config != restarted && i < previous.size(); i++) {
+                if (!reused[i] && previous.get(i).equals(config)) {
+                    index = i;
+                    break;
+                }
+            }
+
+            if (index >= 0) {
+                reused[index] = true;
+                merged.add(previous.get(index));
+            } else {
+                merged.add(config);
+                created.add(config);
+            }
         }
 
-        // 方法匹配
-        if (StringUtils.isNotBlank(config.getMethod())) {
-            if (!config.getMethod().equalsIgnoreCase(method)) {
-                return false;
+        for (int i = 0; i < previous.size(); i++) {
+            if (!reused[i]) {
+                removed.add(previous.get(i));
             }
         }
+        return merged;
+    }
 
-        return true;
+    /**
+     * 恢复已过生效结束时间且没有进行中追踪的会话提升过的Logger
+     * <p>
+     * 会话只在最后一个名额结束时恢复级别，因结束时间、有效时长到期、采样或流量少而用不完名额的会话需要在这里恢复。
+     * 已从快照移除的会话在进行中的追踪全部结束后也在这里恢复。
+     */
+    synchronized void restoreExpiredSessions() {
+        try {
+            long now = System.currentTimeMillis();
+            List<InterfaceLogConfig> interfaces = snapshot.getInterfaces();
+            for (InterfaceLogConfig config : interfaces) {
+                TraceActivationPolicy policy = config.getActivationPolicy();
+                if (policy == null || !policy.isExpired(now) || config.getElevatedLoggers().isEmpty()
+                        || hasTraceInProgress(config)) {
+                    continue;
+                }
+                log.info("Dynamic log session expired, restore logger levels: {} {}", config.getMethod(), config.getPath());
+                restoreSessionLoggers(config, interfaces);
+            }
+
+            for (InterfaceLogConfig config : retiredSessions) {
+                if (!hasTraceInProgress(config)) {
+                    retiredSessions.removeIf(retired -> retired == config);
+                    restoreSessionLoggers(config, interfaces);
+                }
+            }
+        } catch (Exception e) {
+            log.error("Failed to restore expired dynamic log sessions", e);
+        }
     }
 
     /**
-     * 路径匹配（简单Ant风格实现）
+     * 恢复会话提升过的Logger并清空登记（之后匹配的请求会重新提升）
+     * <p>
+     * 当前快照中其它会话或已移除但仍在追踪的会话也提升过的Logger不恢复，由那些会话结束时恢复。
      *
-     * @param pattern 模式
-     * @param path 路径
-     * @return 是否匹配
+     * @param session 接口配置
      */
-    private boolean matchPath(String pattern, String path) {
-        if (StringUtils.isBlank(pattern)) {
-            return false;
+    public void restoreSessionLoggers(InterfaceLogConfig session) {
+        restoreSessionLoggers(session, snapshot.getInterfaces());
+    }
+
+    /**
+     * 恢复会话提升过的Logger，跳过其它会话仍在使用的Logger
+     *
+     * @param session 接口配置
+     * @param others 其它会话（可包含session本身）
+     */
+    private void restoreSessionLoggers(InterfaceLogConfig session, List<InterfaceLogConfig> others) {
+        Set<String> elevated = session.getElevatedLoggers();
+        List<String> restored = new ArrayList<>();
+        for (String loggerName : new ArrayList<>(elevated)) {
+            // 先从本会话移除，多个会话同时恢复同一个Logger时最后一个移除的会话负责恢复
+            elevated.remove(loggerName);
+            if (!isElevatedByOthers(loggerName, session, others)) {
+                restored.add(loggerName);
+            }
+        }
+        if (restored.isEmpty()) {
+            return;
         }
 
-        // 完全匹配
-        if (pattern.equals(path)) {
-            return true;
+        // 整批恢复失败时放回登记，由之后的到期检查或会话结束重试
+        LevelChangeResult result = LoggerLevelManager.restoreLoggerLevels(restored);
+        if (result.isRolledBack()) {
+            elevated.addAll(restored);
+            log.warn("Failed to restore logger levels of session {} {}: {}", session.getMethod(), session.getPath(), restored);
+        } else {
+            log.info("Restored {} logger level(s) of session {} {} in {}ms", result.getChangedCount(),
+                    session.getMethod(), session.getPath(), result.getCostMillis());
+        }
+    }
+
+    /**
+     * 清空所有会话的Logger提升登记（日志级别由调用方统一恢复，之后匹配的请求和远程调用会重新提升）
+     */
+    public void clearElevatedLoggers() {
+        for (InterfaceLogConfig config : snapshot.getInterfaces()) {
+            config.getElevatedLoggers().clear();
+        }
+        for (InterfaceLogConfig config : retiredSessions) {
+            config.getElevatedLoggers().clear();
+        }
+    }
+
+    /**
+     * Logger是否被其它会话提升
+     *
+     * @param loggerName Logger名称
+     * @param session 当前会话
+     * @param others 其它会话
+     * @return 是否被其它会话提升
+     */
+    private boolean isElevatedByOthers(String loggerName, InterfaceLogConfig session, List<InterfaceLogConfig> others) {
+        return isElevatedBy(loggerName, session, others) || isElevatedBy(loggerName, session, retiredSessions);
+    }
+
+    /**
+     * Logger是否被给定会话中除当前会话外的某个会话提升
+     *
+     * @param loggerName Logger名称
+     * @param session 当前会话
+     * @param sessions 会话
+     * @return 是否被提升
+     */
+    private static boolean isElevatedBy(String loggerName, InterfaceLogConfig session, List<InterfaceLogConfig> sessions) {
+        for (InterfaceLogConfig other : sessions) {
+            if (other != session && other.getElevatedLoggers().contains(loggerName)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 会话是否正在追踪请求
+     *
+     * @param config 接口配置
+     * @return 是否有进行中的追踪
+     */
+    private static boolean hasTraceInProgress(InterfaceLogConfig config) {
+        TraceBudget budget = config.getTraceBudget();
+        return budget != null && budget.getReserved() > budget.getFinished();
+    }
+
+    /**
+     * 获取接口配置（按路径、方法和请求条件匹配）
+     *
+     * @param request HTTP请求
+     * @return 按配置顺序第一个满足全部条件的接口配置，如果未匹配则返回null
+     */
+    public InterfaceLogConfig getInterfaceConfig(HttpServletRequest request) {
+        for (InterfaceLogConfig config : getCandidates(request.getRequestURI(), request.getMethod())) {
+            RequestConditionMatcher matcher = config.getConditionMatcher();
+            if (matcher == null || matcher.matches(request)) {
+                return config;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 获取接口配置（仅按路径和方法匹配，配置了请求条件的接口不会返回）
+     *
+     * @param path 接口路径
+     * @param method HTTP方法
+     * @return 接口配置，如果未匹配则返回null
+     */
+    public InterfaceLogConfig getInterfaceConfig(String path, String method) {
+        for (InterfaceLogConfig config : getCandidates(path, method)) {
+            if (config.getConditionMatcher() == null) {
+                return config;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 获取路径和方法匹配的候选配置（优先读缓存）
+     *
+     * @param path 接口路径
+     * @param method HTTP方法
+     * @return 按配置顺序排列的候选配置
+     */
+    private List<InterfaceLogConfig> getCandidates(String path, String method) {
+        DynamicLogSnapshot current = snapshot;
+        if (!current.isActive()) {
+            return Collections.emptyList();
         }
 
-        // 通配符匹配
-        pattern = pattern.replace(".", "\\.");
-        pattern = pattern.replace("*", ".*");
-        pattern = pattern.replace("?", ".?");
+        InterfaceMatchCache.CachedMatch cached = matchCache.get(method, path, current.getGeneration());
+        if (cached != null) {
+            return cached.getCandidates();
+        }
 
-        return path.matches(pattern);
+        List<InterfaceLogConfig> candidates = current.getPathIndex().matchAll(path, method);
+        matchCache.put(method, path, current.getGeneration(), candidates);
+        return candidates;
     }
 
     /**
-     * 获取动态日志配置
+     * 是否有需要处理的接口（仅一次volatile读，供请求入口快速放行）
+     *
+     * @return 是否活跃
+     */
+    public boolean isActive() {
+        return snapshot.isActive();
+    }
+
+    /**
+     * 获取当前生效的配置快照
+     *
+     * @return 配置快照
+     */
+    public DynamicLogSnapshot getSnapshot() {
+        return snapshot;
+    }
+
+    /**
+     * 获取接口匹配结果缓存（可读取命中/未命中统计）
+     *
+     * @return 匹配结果缓存
+     */
+    public InterfaceMatchCache getMatchCache() {
+        return matchCache;
+    }
+
+    /**
+     * 获取动态日志配置（本地启动配置，远程下发的值见{@link #getSnapshot()}）
      *
      * @return 动态日志配置
      */
@@ -213,24 +791,54 @@ public class NacosConfigManager {
     }
 
     /**
-     * 关闭配置服务
+     * 注册配置快照监听器：每次发布新的配置快照后在发布线程上回调，注册时先以当前快照回调一次
+     *
+     * @param listener 监听器
+     */
+    public synchronized void addSnapshotListener(Consumer<DynamicLogSnapshot> listener) {
+        snapshotListeners.add(listener);
+        listener.accept(snapshot);
+    }
+
+    /**
+     * 设置集群配额后端（需在初始化之前调用，未设置时按配置创建）
+     *
+     * @param quotaBackend 配额后端
      */
-    public void shutdown() {
-        if (configService != null) {
-            try {
-                configService.shutDown();
-            } catch (NacosException e) {
-                log.error("Failed to shutdown Nacos config service", e);
-            }
+    public void setQuotaBackend(ClusterQuotaBackend quotaBackend) {
+        this.quotaBackend = quotaBackend;
+    }
+
+    /**
+     * 获取配置来源
+     *
+     * @return 配置来源，未创建时返回null
+     */
+    public ConfigSource getConfigSource() {
+        return configSource;
+    }
+
+    /**
+     * 关闭配置来源
+     */
+    public synchronized void shutdown() {
+        closed = true;
+        reloadExecutor.shutdownNow();
+        if (quotaBackend != null) {
+            quotaBackend.close();
+        }
+        if (configSource != null) {
+            configSource.close();
         }
     }
 
     /**
-     * Nacos配置数据类
+     * 配置数据类
      */
     @lombok.Data
     private static class NacosConfigData {
         private Boolean enabled;
+        private String version;
         private String remoteCallType;
         private String logOutputPath;
         private String logFileName;
@@ -0,0 +1,41 @@
+package com.luoyu.dynamiclog.quota;
+
+/**
+ * 集群追踪配额后端
+ * <p>
+ * 所有实例共享同一组计数器，每个实例按小批量从中租用追踪名额，使整个集群的追踪总数不超过配置的次数。
+ * 实现需保证{@link #acquire(String, int, int)}对同一配额的并发调用（跨进程）是原子的。
+ *
+ * @author system
+ * @date 2024-01-01
+ */
+public interface ClusterQuotaBackend {
+
+    /**
+     * 租用名额
+     *
+     * @param quotaKey 配额标识（同一次下发的同一接口配置在各实例上相同）
+     * @param limit 集群名额总数
+     * @param batchSize 本次希望租用的名额数
+     * @return 实际租到的名额数，已耗尽时返回0
+     * @throws Exception 访问共享计数器失败
+     */
+    int acquire(String quotaKey, int limit, int batchSize) throws Exception;
+
+    /**
+     * 清理最后一次租用早于指定时间的配额计数（配额标识随每次下发变化，旧计数不会再被使用）
+     * <p>
+     * 默认不清理，Redis等自带过期机制的实现可在租用时设置过期时间。
+     *
+     * @param expireBefore 时间戳（毫秒）
+     * @throws Exception 访问共享计数器失败
+     */
+    default void expire(long expireBefore) throws Exception {
+    }
+
+    /**
+     * 关闭后端，释放连接等资源
+     */
+    default void close() {
+    }
+}
@@ -0,0 +1,113 @@
+package com.luoyu.dynamiclog.quota;
+
+import com.luoyu.dynamiclog.trace.TraceBudget;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * 集群追踪次数预算
+ * <p>
+ * 本地名额用完时从{@link ClusterQuotaBackend}按小批量租用，租到的名额加入本地上限后仍按CAS预占；
+ * 集群名额耗尽（或后端不可用）后本会话不再租用。实例上租到但未用完的名额不会归还给集群，
+ * 批量越小集群总数越精确，访问后端越频繁。
+ *
+ * @author system
+ * @date 2024-01-01
+ */
+@Slf4j
+public class ClusterTraceBudget extends TraceBudget {
+    private final ClusterQuotaBackend backend;
+    private final String quotaKey;
+    private final int clusterLimit;
+    private final int batchSize;
+    private final Object leaseLock = new Object();
+    private volatile boolean clusterExhausted;
+
+    /**
+     * 构造函数
+     *
+     * @param backend 配额后端
+     * @param quotaKey 配额标识
+     * @param clusterLimit 集群名额总数
+     * @param batchSize 每次租用的名额数
+     */
+    public ClusterTraceBudget(ClusterQuotaBackend backend, String quotaKey, Integer clusterLimit, int batchSize) {
+        super(0);
+        this.backend = backend;
+        this.quotaKey = quotaKey;
+        this.clusterLimit = clusterLimit == null ? 0 : Math.max(clusterLimit, 0);
+        this.batchSize = Math.max(batchSize, 1);
+        this.clusterExhausted = this.clusterLimit == 0;
+    }
+
+    @Override
+    public boolean tryReserve() {
+        for (;;) {
+            if (super.tryReserve()) {
+                return true;
+            }
+            if (clusterExhausted || !lease()) {
+                return false;
+            }
+        }
+    }
+
+    /**
+     * 从集群租用一批名额
+     *
+     * @return 是否租到名额
+     */
+    private boolean lease() {
+        synchronized (leaseLock) {
+            // 等锁期间其它线程已租到名额
+            if (!super.isExhausted()) {
+                return true;
+            }
+            if (clusterExhausted) {
+                return false;
+            }
+
+            int granted;
+            try {
+                granted = backend.acquire(quotaKey, clusterLimit, batchSize);
+            } catch (Exception e) {
+                log.warn("Failed to acquire cluster trace quota, stop tracing for this session: {}", quotaKey, e);
+                granted = 0;
+            }
+
+            if (granted <= 0) {
+                clusterExhausted = true;
+                return false;
+            }
+            grow(granted);
+            return true;
+        }
+    }
+
+    @Override
+    public boolean isExhausted() {
+        return clusterExhausted && super.isExhausted();
+    }
+
+    @Override
+    public boolean isCompleted() {
+        return clusterExhausted && super.isCompleted();
+    }
+
+    /**
+     * 配额标识
+     *
+     * @return 配额标识
+     */
+    public String getQuotaKey() {
+        return quotaKey;
+    }
+
+    /**
+     * 集群名额总数
+     *
+     * @return 集群名额总数
+     */
+    public int getClusterLimit() {
+        return clusterLimit;
+    }
+}
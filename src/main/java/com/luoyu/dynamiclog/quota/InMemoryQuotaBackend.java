@@ -0,0 +1,56 @@
+package com.luoyu.dynamiclog.quota;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 进程内配额后端
+ * <p>
+ * 计数器保存在当前进程内存中，只在共享同一实例的配置管理器之间生效，用于测试或单进程多应用上下文的场景。
+ *
+ * @author system
+ * @date 2024-01-01
+ */
+public class InMemoryQuotaBackend implements ClusterQuotaBackend {
+    private final ConcurrentHashMap<String, Counter> counters = new ConcurrentHashMap<>();
+
+    @Override
+    public int acquire(String quotaKey, int limit, int batchSize) {
+        int[] granted = new int[1];
+        // 租用和清理都在compute中进行，同一配额的读改写互斥
+        counters.compute(quotaKey, (key, counter) -> {
+            Counter current = counter == null ? new Counter() : counter;
+            granted[0] = Math.max(Math.min(batchSize, limit - current.used), 0);
+            current.used += granted[0];
+            current.lastAcquireTime = System.currentTimeMillis();
+            return current;
+        });
+        return granted[0];
+    }
+
+    @Override
+    public void expire(long expireBefore) {
+        for (String quotaKey : counters.keySet()) {
+            counters.computeIfPresent(quotaKey,
+                    (key, counter) -> counter.lastAcquireTime < expireBefore ? null : counter);
+        }
+    }
+
+    /**
+     * 已租出的名额数
+     *
+     * @param quotaKey 配额标识
+     * @return 已租出数
+     */
+    public int getUsed(String quotaKey) {
+        Counter counter = counters.get(quotaKey);
+        return counter == null ? 0 : counter.used;
+    }
+
+    /**
+     * 配额计数
+     */
+    private static class Counter {
+        private volatile int used;
+        private volatile long lastAcquireTime;
+    }
+}
@@ -0,0 +1,127 @@
+package com.luoyu.dynamiclog.quota;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * 本地文件配额后端
+ * <p>
+ * 每个配额一个计数文件，读改写过程持有文件锁，同一主机（或共享文件系统）上的多个进程共享计数，
+ * 适合本地多实例联调和测试（同一进程内的并发租用由方法级同步串行化，避免文件锁重叠）。
+ * 长期未租用的计数文件由{@link #expire(long)}删除。
+ *
+ * @author system
+ * @date 2024-01-01
+ */
+public class LocalFileQuotaBackend implements ClusterQuotaBackend {
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private final Path directory;
+
+    /**
+     * 构造函数
+     *
+     * @param directory 计数文件目录
+     * @throws IOException 创建目录失败
+     */
+    public LocalFileQuotaBackend(Path directory) throws IOException {
+        this.directory = Files.createDirectories(directory.toAbsolutePath().normalize());
+    }
+
+    @Override
+    public synchronized int acquire(String quotaKey, int limit, int batchSize) throws IOException {
+        Path file = directory.resolve(fileName(quotaKey));
+        for (;;) {
+            try (FileChannel channel = FileChannel.open(file,
+                    StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+                 FileLock ignored = channel.lock()) {
+                // 等锁期间计数文件被其它进程清理，重新打开
+                if (!Files.exists(file)) {
+                    continue;
+                }
+
+                int used = readCount(channel);
+                int granted = Math.min(batchSize, limit - used);
+                if (granted <= 0) {
+                    return 0;
+                }
+
+                byte[] bytes = Integer.toString(used + granted).getBytes(StandardCharsets.US_ASCII);
+                channel.truncate(0);
+                channel.write(ByteBuffer.wrap(bytes), 0);
+                return granted;
+            }
+        }
+    }
+
+    /**
+     * 删除最后修改时间早于指定时间的计数文件（持有文件锁后再次检查，不删除刚被租用的计数）
+     *
+     * @param expireBefore 时间戳（毫秒）
+     * @throws IOException 遍历目录失败
+     */
+    @Override
+    public synchronized void expire(long expireBefore) throws IOException {
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*.quota")) {
+            for (Path file : files) {
+                try {
+                    if (Files.getLastModifiedTime(file).toMillis() >= expireBefore) {
+                        continue;
+                    }
+                    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE);
+                         FileLock ignored = channel.lock()) {
+                        if (Files.getLastModifiedTime(file).toMillis() < expireBefore) {
+                            Files.delete(file);
+                        }
+                    }
+                } catch (NoSuchFileException e) {
+                    // 已被其它进程清理
+                }
+            }
+        }
+    }
+
+    /**
+     * 读取已租出的名额数
+     *
+     * @param channel 计数文件通道
+     * @return 已租出数（空文件为0）
+     * @throws IOException 读取失败
+     */
+    private int readCount(FileChannel channel) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(16);
+        channel.read(buffer, 0);
+        buffer.flip();
+        String text = StandardCharsets.US_ASCII.decode(buffer).toString().trim();
+        return text.isEmpty() ? 0 : Integer.parseInt(text);
+    }
+
+    /**
+     * 配额标识转为文件名
+     *
+     * @param quotaKey 配额标识
+     * @return 文件名
+     */
+    private String fileName(String quotaKey) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-1").digest(quotaKey.getBytes(StandardCharsets.UTF_8));
+            StringBuilder name = new StringBuilder(digest.length * 2 + 6);
+            for (byte b : digest) {
+                name.append(HEX[(b >> 4) & 0xF]).append(HEX[b & 0xF]);
+            }
+            return name.append(".quota").toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -1,6 +1,6 @@
 package com.luoyu.dynamiclog.remote;
 
-import com.luoyu.dynamiclog.config.DynamicLogConfig;
+import com.luoyu.dynamiclog.config.InterfaceLogConfig;
 import com.luoyu.dynamiclog.log.LoggerLevelManager;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.StringUtils;
@@ -13,33 +13,29 @@ import org.apache.commons.lang3.StringUtils;
  */
 @Slf4j
 public class FeignInterceptor {
-    private DynamicLogConfig config;
-
-    public FeignInterceptor(DynamicLogConfig config) {
-        this.config = config;
-    }
-
     /**
-     * 拦截Feign调用
+     * 拦截Feign调用：按会话提升相关Logger的级别，同一会话内每个Logger只提升一次，会话结束时随接口一起恢复
      *
+     * @param interfaceConfig 当前请求已匹配的接口配置
      * @param serviceName 服务名
      * @param methodName 方法名
-     * @param logLevel 日志级别
      */
-    public void intercept(String serviceName, String methodName, String logLevel) {
-        if (!"feign".equalsIgnoreCase(config.getRemoteCallType())) {
-            return;
-        }
-
+    public void intercept(InterfaceLogConfig interfaceConfig, String serviceName, String methodName) {
+        String logLevel = interfaceConfig.getLogLevel();
         if (StringUtils.isBlank(logLevel)) {
             return;
         }
 
         // 修改Feign相关的Logger级别
-        String loggerName = "feign." + serviceName + "." + methodName;
-        LoggerLevelManager.setLoggerLevel(loggerName, logLevel);
+        elevate(interfaceConfig, "feign." + serviceName + "." + methodName, logLevel);
 
         // Feign使用feign.Logger，需要修改feign包的日志级别
-        LoggerLevelManager.setLoggerLevel("feign", logLevel);
+        elevate(interfaceConfig, "feign", logLevel);
+    }
+
+    private void elevate(InterfaceLogConfig interfaceConfig, String loggerName, String logLevel) {
+        if (interfaceConfig.getElevatedLoggers().add(loggerName)) {
+            LoggerLevelManager.setLoggerLevel(loggerName, logLevel);
+        }
     }
 }
@@ -1,11 +1,18 @@
 package com.luoyu.dynamiclog.remote;
 
+import com.luoyu.dynamiclog.agent.MethodInterceptor;
 import com.luoyu.dynamiclog.config.DynamicLogConfig;
 import com.luoyu.dynamiclog.config.InterfaceLogConfig;
-import com.luoyu.dynamiclog.log.LoggerLevelManager;
 import com.luoyu.dynamiclog.nacos.NacosConfigManager;
+import com.luoyu.dynamiclog.trace.TraceContext;
+import com.luoyu.dynamiclog.trace.TraceManager;
+import com.luoyu.dynamiclog.trace.TraceNode;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.StringUtils;
+import org.springframework.util.ClassUtils;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * 远程调用拦截器（统一入口）
@@ -19,56 +26,113 @@ public class RemoteCallInterceptor {
     private DynamicLogConfig dynamicLogConfig;
     private RpcInterceptor rpcInterceptor;
     private FeignInterceptor feignInterceptor;
+    private TraceManager traceManager;
+    private final Map<Class<?>, String> serviceNames = new ConcurrentHashMap<>();
 
     public RemoteCallInterceptor(NacosConfigManager nacosConfigManager, 
                                   DynamicLogConfig dynamicLogConfig,
                                   RpcInterceptor rpcInterceptor,
-                                  FeignInterceptor feignInterceptor) {
+                                  FeignInterceptor feignInterceptor,
+                                  TraceManager traceManager) {
         this.nacosConfigManager = nacosConfigManager;
         this.dynamicLogConfig = dynamicLogConfig;
         this.rpcInterceptor = rpcInterceptor;
         this.feignInterceptor = feignInterceptor;
+        this.traceManager = traceManager;
     }
 
     /**
-     * 拦截RPC调用
+     * 开始记录一次远程调用（当前线程正在追踪时作为当前节点的子节点）
      *
+     * @param remoteType 远程调用类型（feign、rpc）
      * @param serviceName 服务名
      * @param methodName 方法名
-     * @param currentPath 当前请求路径
-     * @param currentMethod 当前HTTP方法
+     * @return 远程调用节点，当前线程未在追踪时返回null
+     */
+    public TraceNode beginRemoteCall(String remoteType, String serviceName, String methodName) {
+        TraceContext context = MethodInterceptor.getTraceContext();
+        if (context == null) {
+            return null;
+        }
+        return traceManager.enterRemoteCall(context, remoteType, serviceName, methodName);
+    }
+
+    /**
+     * 结束记录一次远程调用
+     *
+     * @param node 远程调用节点（为null时忽略）
+     * @param requestBytes 请求字节数（未知时为null）
+     * @param responseBytes 响应字节数（未知时为null）
+     * @param outcome 调用结果
      */
-    public void interceptRpc(String serviceName, String methodName, String currentPath, String currentMethod) {
-        // 检查当前请求是否匹配动态日志配置
-        InterfaceLogConfig interfaceConfig = nacosConfigManager.getInterfaceConfig(currentPath, currentMethod);
-        if (interfaceConfig == null || interfaceConfig.getCompleted()) {
+    public void endRemoteCall(TraceNode node, Long requestBytes, Long responseBytes, String outcome) {
+        if (node == null) {
             return;
         }
+        traceManager.exitRemoteCall(MethodInterceptor.getTraceContext(), node, requestBytes, responseBytes, outcome);
+    }
+
+    /**
+     * 获取当前线程正在追踪的请求已匹配的接口配置（复用请求开始时的匹配结果，不再重复匹配）
+     *
+     * @return 接口配置，当前线程未在追踪时返回null
+     */
+    public InterfaceLogConfig getCurrentInterfaceConfig() {
+        TraceContext context = MethodInterceptor.getTraceContext();
+        return context == null ? null : context.getInterfaceConfig();
+    }
 
-        String logLevel = interfaceConfig.getLogLevel();
-        if (StringUtils.isNotBlank(logLevel)) {
-            rpcInterceptor.intercept(serviceName, methodName, logLevel);
+    /**
+     * 获取当前线程正在追踪的请求需要向下游传播的会话
+     *
+     * @return 追踪上下文，当前线程未在追踪或不需要传播时返回null
+     */
+    public TraceContext getPropagatingContext() {
+        TraceContext context = MethodInterceptor.getTraceContext();
+        if (context == null || context.getPropagateDepth() <= 0 || context.getInterfaceConfig() == null
+                || StringUtils.isBlank(context.getInterfaceConfig().getLogLevel())) {
+            return null;
         }
+        return context;
     }
 
     /**
-     * 拦截Feign调用
+     * 获取服务名（按目标类缓存）
+     *
+     * @param targetClass 目标类
+     * @return 服务名（类的简单名称）
+     */
+    public String getServiceName(Class<?> targetClass) {
+        return serviceNames.computeIfAbsent(targetClass, type -> ClassUtils.getUserClass(type).getSimpleName());
+    }
+
+    /**
+     * 拦截RPC调用
      *
+     * @param interfaceConfig 当前请求已匹配的接口配置
      * @param serviceName 服务名
      * @param methodName 方法名
-     * @param currentPath 当前请求路径
-     * @param currentMethod 当前HTTP方法
      */
-    public void interceptFeign(String serviceName, String methodName, String currentPath, String currentMethod) {
-        // 检查当前请求是否匹配动态日志配置
-        InterfaceLogConfig interfaceConfig = nacosConfigManager.getInterfaceConfig(currentPath, currentMethod);
-        if (interfaceConfig == null || interfaceConfig.getCompleted()) {
+    public void interceptRpc(InterfaceLogConfig interfaceConfig, String serviceName, String methodName) {
+        // 远程调用类型以当前生效的配置快照为准
+        if (interfaceConfig == null || !"rpc".equalsIgnoreCase(nacosConfigManager.getSnapshot().getRemoteCallType())) {
             return;
         }
+        rpcInterceptor.intercept(interfaceConfig, serviceName, methodName);
+    }
 
-        String logLevel = interfaceConfig.getLogLevel();
-        if (StringUtils.isNotBlank(logLevel)) {
-            feignInterceptor.intercept(serviceName, methodName, logLevel);
+    /**
+     * 拦截Feign调用
+     *
+     * @param interfaceConfig 当前请求已匹配的接口配置
+     * @param serviceName 服务名
+     * @param methodName 方法名
+     */
+    public void interceptFeign(InterfaceLogConfig interfaceConfig, String serviceName, String methodName) {
+        // 远程调用类型以当前生效的配置快照为准
+        if (interfaceConfig == null || !"feign".equalsIgnoreCase(nacosConfigManager.getSnapshot().getRemoteCallType())) {
+            return;
         }
+        feignInterceptor.intercept(interfaceConfig, serviceName, methodName);
     }
 }
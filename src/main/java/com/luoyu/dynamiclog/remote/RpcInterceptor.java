@@ -1,6 +1,6 @@
 package com.luoyu.dynamiclog.remote;
 
-import com.luoyu.dynamiclog.config.DynamicLogConfig;
+import com.luoyu.dynamiclog.config.InterfaceLogConfig;
 import com.luoyu.dynamiclog.log.LoggerLevelManager;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.StringUtils;
@@ -13,30 +13,26 @@ import org.apache.commons.lang3.StringUtils;
  */
 @Slf4j
 public class RpcInterceptor {
-    private DynamicLogConfig config;
-
-    public RpcInterceptor(DynamicLogConfig config) {
-        this.config = config;
-    }
-
     /**
-     * 拦截RPC调用
+     * 拦截RPC调用：按会话提升相关Logger的级别，同一会话内每个Logger只提升一次，会话结束时随接口一起恢复
      *
+     * @param interfaceConfig 当前请求已匹配的接口配置
      * @param serviceName 服务名
      * @param methodName 方法名
-     * @param logLevel 日志级别
      */
-    public void intercept(String serviceName, String methodName, String logLevel) {
-        if (!"rpc".equalsIgnoreCase(config.getRemoteCallType())) {
-            return;
-        }
-
+    public void intercept(InterfaceLogConfig interfaceConfig, String serviceName, String methodName) {
+        String logLevel = interfaceConfig.getLogLevel();
         if (StringUtils.isBlank(logLevel)) {
             return;
         }
 
         // 修改RPC相关的Logger级别
-        String loggerName = "rpc." + serviceName + "." + methodName;
-        LoggerLevelManager.setLoggerLevel(loggerName, logLevel);
+        elevate(interfaceConfig, "rpc." + serviceName + "." + methodName, logLevel);
+    }
+
+    private void elevate(InterfaceLogConfig interfaceConfig, String loggerName, String logLevel) {
+        if (interfaceConfig.getElevatedLoggers().add(loggerName)) {
+            LoggerLevelManager.setLoggerLevel(loggerName, logLevel);
+        }
     }
 }
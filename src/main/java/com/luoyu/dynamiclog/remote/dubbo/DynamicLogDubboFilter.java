@@ -0,0 +1,79 @@
+package com.luoyu.dynamiclog.remote.dubbo;
+
+import com.luoyu.dynamiclog.config.InterfaceLogConfig;
+import com.luoyu.dynamiclog.remote.RemoteCallInterceptor;
+import com.luoyu.dynamiclog.trace.TraceContext;
+import com.luoyu.dynamiclog.trace.TraceNode;
+import com.luoyu.dynamiclog.trace.TracePropagation;
+import org.apache.dubbo.common.constants.CommonConstants;
+import org.apache.dubbo.common.extension.Activate;
+import org.apache.dubbo.rpc.AsyncRpcResult;
+import org.apache.dubbo.rpc.Filter;
+import org.apache.dubbo.rpc.Invocation;
+import org.apache.dubbo.rpc.Invoker;
+import org.apache.dubbo.rpc.Result;
+import org.apache.dubbo.rpc.RpcException;
+
+/**
+ * 动态日志Dubbo消费端过滤器
+ * <p>
+ * 通过Dubbo的Filter SPI（META-INF/dubbo/org.apache.dubbo.rpc.Filter）在消费端自动激活，
+ * 追踪中的请求发起的每次调用提升RPC相关Logger的级别并记录为远程调用节点，配置了传播深度时通过附件把会话传给下游服务。
+ * 过滤器由Dubbo创建，远程调用拦截器由自动配置通过{@link #setRemoteCallInterceptor}注入。
+ *
+ * @author system
+ * @date 2024-01-01
+ */
+@Activate(group = CommonConstants.CONSUMER)
+public class DynamicLogDubboFilter implements Filter {
+    private static volatile RemoteCallInterceptor remoteCallInterceptor;
+
+    /**
+     * 设置远程调用拦截器（自动配置时调用）
+     *
+     * @param interceptor 远程调用拦截器
+     */
+    public static void setRemoteCallInterceptor(RemoteCallInterceptor interceptor) {
+        remoteCallInterceptor = interceptor;
+    }
+
+    @Override
+    public Result invoke(Invoker<?> invoker, Invocation invocation) throws RpcException {
+        RemoteCallInterceptor interceptor = remoteCallInterceptor;
+        // 复用请求开始时的匹配结果，未在追踪的请求只多一次ThreadLocal读取
+        InterfaceLogConfig interfaceConfig = interceptor == null ? null : interceptor.getCurrentInterfaceConfig();
+        if (interfaceConfig == null) {
+            return invoker.invoke(invocation);
+        }
+
+        String serviceName = interceptor.getServiceName(invoker.getInterface());
+        String methodName = invocation.getMethodName();
+        interceptor.interceptRpc(interfaceConfig, serviceName, methodName);
+
+        // 向下游传播会话
+        TraceContext context = interceptor.getPropagatingContext();
+        if (context != null) {
+            invocation.setAttachment(TracePropagation.ATTACHMENT_LEVEL, interfaceConfig.getLogLevel());
+            invocation.setAttachment(TracePropagation.ATTACHMENT_TRACE_ID, context.getTraceId());
+            invocation.setAttachment(TracePropagation.ATTACHMENT_DEPTH, String.valueOf(context.getPropagateDepth()));
+        }
+
+        TraceNode node = interceptor.beginRemoteCall("rpc", serviceName, methodName);
+        String outcome = null;
+        try {
+            Result result = invoker.invoke(invocation);
+            if (result instanceof AsyncRpcResult && !((AsyncRpcResult) result).getResponseFuture().isDone()) {
+                // 异步调用只记录发出请求的耗时
+                outcome = "ASYNC";
+            } else {
+                outcome = result.hasException() ? result.getException().getClass().getSimpleName() : "OK";
+            }
+            return result;
+        } catch (RuntimeException | Error e) {
+            outcome = e.getClass().getSimpleName();
+            throw e;
+        } finally {
+            interceptor.endRemoteCall(node, null, null, outcome);
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package com.luoyu.dynamiclog.remote.dubbo;
+
+import com.luoyu.dynamiclog.agent.MethodInterceptor;
+import com.luoyu.dynamiclog.interceptor.RequestTraceLifecycle;
+import com.luoyu.dynamiclog.trace.TraceContext;
+import com.luoyu.dynamiclog.trace.TracePropagation;
+import org.apache.dubbo.common.constants.CommonConstants;
+import org.apache.dubbo.common.extension.Activate;
+import org.apache.dubbo.rpc.AsyncRpcResult;
+import org.apache.dubbo.rpc.Filter;
+import org.apache.dubbo.rpc.Invocation;
+import org.apache.dubbo.rpc.Invoker;
+import org.apache.dubbo.rpc.Result;
+import org.apache.dubbo.rpc.RpcException;
+import org.apache.dubbo.rpc.model.ServiceModel;
+import org.springframework.aop.support.AopUtils;
+
+/**
+ * 动态日志Dubbo服务端过滤器
+ * <p>
+ * 接收上游通过附件传播过来的动态日志会话，只追踪这些被传播的调用（需开启accept-propagation）。
+ * 过滤器由Dubbo创建，请求追踪生命周期由自动配置通过{@link #setLifecycle}注入。
+ * 异步服务在返回的结果完成时才结束追踪；按实现类推导Logger需要Dubbo 3，Dubbo 2.7按服务接口推导。
+ *
+ * @author system
+ * @date 2024-01-01
+ */
+@Activate(group = CommonConstants.PROVIDER)
+public class DynamicLogDubboProviderFilter implements Filter {
+    private static final boolean SERVICE_MODEL_SUPPORTED = isServiceModelSupported();
+    private static volatile RequestTraceLifecycle lifecycle;
+
+    /**
+     * 设置请求追踪生命周期（自动配置时调用）
+     *
+     * @param traceLifecycle 请求追踪生命周期
+     */
+    public static void setLifecycle(RequestTraceLifecycle traceLifecycle) {
+        lifecycle = traceLifecycle;
+    }
+
+    @Override
+    public Result invoke(Invoker<?> invoker, Invocation invocation) throws RpcException {
+        RequestTraceLifecycle traceLifecycle = lifecycle;
+        String level = traceLifecycle == null ? null : invocation.getAttachment(TracePropagation.ATTACHMENT_LEVEL);
+        // 当前线程已在追踪（如本地调用）时不再重复开始
+        if (level == null || MethodInterceptor.getTraceContext() != null) {
+            return invoker.invoke(invocation);
+        }
+
+        TraceContext traceContext = traceLifecycle.beginPropagated(null, serviceClass(invoker, invocation), level,
+                invocation.getAttachment(TracePropagation.ATTACHMENT_TRACE_ID),
+                TracePropagation.parseDepth(invocation.getAttachment(TracePropagation.ATTACHMENT_DEPTH)),
+                invoker.getInterface().getName(), invocation.getMethodName());
+        if (traceContext == null) {
+            return invoker.invoke(invocation);
+        }
+
+        Result result;
+        try {
+            result = invoker.invoke(invocation);
+        } catch (RuntimeException | Error e) {
+            traceLifecycle.endDetached(traceContext);
+            throw e;
+        }
+
+        // 异步服务：先从当前线程摘下，结果完成时再结束追踪
+        if (result instanceof AsyncRpcResult && !((AsyncRpcResult) result).getResponseFuture().isDone()) {
+            traceLifecycle.detachCurrentThread();
+            return ((AsyncRpcResult) result).whenCompleteWithContext(
+                    (response, throwable) -> traceLifecycle.completeDetached(traceContext));
+        }
+        traceLifecycle.endDetached(traceContext);
+        return result;
+    }
+
+    /**
+     * 服务实现类（按实现类推导需要提升级别的Logger，接口通常在单独的API包中）
+     *
+     * @param invoker 服务调用者
+     * @param invocation 调用信息
+     * @return 服务实现类，取不到时返回服务接口
+     */
+    private static Class<?> serviceClass(Invoker<?> invoker, Invocation invocation) {
+        Object service = SERVICE_MODEL_SUPPORTED ? ServiceModelAccessor.serviceObject(invocation) : null;
+        return service == null ? invoker.getInterface() : AopUtils.getTargetClass(service);
+    }
+
+    /**
+     * 当前Dubbo版本是否提供服务模型（Dubbo 3才有{@code Invocation#getServiceModel}）
+     *
+     * @return 是否提供
+     */
+    private static boolean isServiceModelSupported() {
+        try {
+            Invocation.class.getMethod("getServiceModel");
+            return true;
+        } catch (NoSuchMethodException e) {
+            return false;
+        }
+    }
+
+    /**
+     * 访问Dubbo 3服务模型（单独的类，Dubbo 2.7下不会加载）
+     */
+    private static final class ServiceModelAccessor {
+        private static Object serviceObject(Invocation invocation) {
+            ServiceModel serviceModel = invocation.getServiceModel();
+            return serviceModel == null ? null : serviceModel.getProxyObject();
+        }
+    }
+}
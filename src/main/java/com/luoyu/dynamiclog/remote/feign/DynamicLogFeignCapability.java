@@ -0,0 +1,30 @@
+package com.luoyu.dynamiclog.remote.feign;
+
+import com.luoyu.dynamiclog.remote.RemoteCallInterceptor;
+import feign.Capability;
+import feign.Client;
+
+/**
+ * 动态日志Feign扩展
+ * <p>
+ * 通过Feign的{@link Capability}在构建客户端时包装最终使用的{@link Client}，
+ * 不改变容器中的Client Bean，负载均衡客户端按url直连时的拆包逻辑不受影响。
+ *
+ * @author system
+ * @date 2024-01-01
+ */
+public class DynamicLogFeignCapability implements Capability {
+    private final RemoteCallInterceptor remoteCallInterceptor;
+
+    public DynamicLogFeignCapability(RemoteCallInterceptor remoteCallInterceptor) {
+        this.remoteCallInterceptor = remoteCallInterceptor;
+    }
+
+    @Override
+    public Client enrich(Client client) {
+        if (client instanceof DynamicLogFeignClient) {
+            return client;
+        }
+        return new DynamicLogFeignClient(client, remoteCallInterceptor);
+    }
+}
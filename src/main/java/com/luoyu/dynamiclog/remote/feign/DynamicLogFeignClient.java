@@ -0,0 +1,100 @@
+package com.luoyu.dynamiclog.remote.feign;
+
+import com.luoyu.dynamiclog.remote.RemoteCallInterceptor;
+import com.luoyu.dynamiclog.trace.TraceNode;
+import feign.Client;
+import feign.Request;
+import feign.RequestTemplate;
+import feign.Response;
+
+import java.io.IOException;
+
+/**
+ * 动态日志Feign客户端装饰器
+ * <p>
+ * 包装实际发出HTTP请求的{@link Client}，追踪中的请求发起的每次调用记录为远程调用节点（耗时、请求响应大小、状态码），
+ * 未在追踪的请求只多一次ThreadLocal读取。
+ *
+ * @author system
+ * @date 2024-01-01
+ */
+public class DynamicLogFeignClient implements Client {
+    private final Client delegate;
+    private final RemoteCallInterceptor remoteCallInterceptor;
+
+    public DynamicLogFeignClient(Client delegate, RemoteCallInterceptor remoteCallInterceptor) {
+        this.delegate = delegate;
+        this.remoteCallInterceptor = remoteCallInterceptor;
+    }
+
+    @Override
+    public Response execute(Request request, Request.Options options) throws IOException {
+        TraceNode node = remoteCallInterceptor.beginRemoteCall("feign", getServiceName(request),
+                request.httpMethod() + " " + getRequestPath(request));
+        if (node == null) {
+            return delegate.execute(request, options);
+        }
+
+        Long requestBytes = request.body() == null ? 0L : (long) request.body().length;
+        Long responseBytes = null;
+        String outcome = null;
+        try {
+            Response response = delegate.execute(request, options);
+            outcome = "HTTP " + response.status();
+            if (response.body() != null && response.body().length() != null) {
+                responseBytes = response.body().length().longValue();
+            }
+            return response;
+        } catch (IOException | RuntimeException | Error e) {
+            outcome = e.getClass().getSimpleName();
+            throw e;
+        } finally {
+            remoteCallInterceptor.endRemoteCall(node, requestBytes, responseBytes, outcome);
+        }
+    }
+
+    /**
+     * 被包装的客户端
+     *
+     * @return 客户端
+     */
+    public Client getDelegate() {
+        return delegate;
+    }
+
+    /**
+     * 获取服务名：优先使用Feign客户端声明的名称，取不到时使用目标主机
+     *
+     * @param request Feign请求
+     * @return 服务名
+     */
+    private String getServiceName(Request request) {
+        RequestTemplate template = request.requestTemplate();
+        if (template != null && template.feignTarget() != null) {
+            return template.feignTarget().name();
+        }
+
+        String url = request.url();
+        int start = url.indexOf("://");
+        start = start < 0 ? 0 : start + 3;
+        int end = url.indexOf('/', start);
+        return end < 0 ? url.substring(start) : url.substring(start, end);
+    }
+
+    /**
+     * 获取请求路径（不含查询参数）
+     *
+     * @param request Feign请求
+     * @return 请求路径
+     */
+    private String getRequestPath(Request request) {
+        String url = request.url();
+        int start = url.indexOf("://");
+        start = url.indexOf('/', start < 0 ? 0 : start + 3);
+        if (start < 0) {
+            return "/";
+        }
+        int end = url.indexOf('?', start);
+        return end < 0 ? url.substring(start) : url.substring(start, end);
+    }
+}
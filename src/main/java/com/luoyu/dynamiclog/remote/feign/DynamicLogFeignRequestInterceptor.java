@@ -0,0 +1,46 @@
+package com.luoyu.dynamiclog.remote.feign;
+
+import com.luoyu.dynamiclog.config.InterfaceLogConfig;
+import com.luoyu.dynamiclog.remote.RemoteCallInterceptor;
+import com.luoyu.dynamiclog.trace.TraceContext;
+import com.luoyu.dynamiclog.trace.TracePropagation;
+import feign.RequestInterceptor;
+import feign.RequestTemplate;
+
+/**
+ * 动态日志Feign请求拦截器
+ * <p>
+ * 每次Feign调用构建请求时调用一次：追踪中的请求按会话提升Feign相关Logger的级别，
+ * 配置了传播深度时通过请求头把会话传给下游服务。
+ *
+ * @author system
+ * @date 2024-01-01
+ */
+public class DynamicLogFeignRequestInterceptor implements RequestInterceptor {
+    private final RemoteCallInterceptor remoteCallInterceptor;
+
+    public DynamicLogFeignRequestInterceptor(RemoteCallInterceptor remoteCallInterceptor) {
+        this.remoteCallInterceptor = remoteCallInterceptor;
+    }
+
+    @Override
+    public void apply(RequestTemplate template) {
+        // 复用请求开始时的匹配结果，未在追踪的请求只多一次ThreadLocal读取
+        InterfaceLogConfig interfaceConfig = remoteCallInterceptor.getCurrentInterfaceConfig();
+        if (interfaceConfig == null) {
+            return;
+        }
+
+        String serviceName = template.feignTarget() == null ? "unknown" : template.feignTarget().name();
+        String methodName = template.methodMetadata() == null ? "unknown" : template.methodMetadata().method().getName();
+        remoteCallInterceptor.interceptFeign(interfaceConfig, serviceName, methodName);
+
+        // 向下游传播会话
+        TraceContext context = remoteCallInterceptor.getPropagatingContext();
+        if (context != null) {
+            template.header(TracePropagation.HEADER_LEVEL, interfaceConfig.getLogLevel());
+            template.header(TracePropagation.HEADER_TRACE_ID, context.getTraceId());
+            template.header(TracePropagation.HEADER_DEPTH, String.valueOf(context.getPropagateDepth()));
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package com.luoyu.dynamiclog.source;
+
+import java.util.function.Consumer;
+
+/**
+ * 动态日志配置来源
+ * <p>
+ * 各实现只负责取得配置内容（JSON格式）并在变更时通知，解析、编译和发布统一由配置管理器完成。
+ *
+ * @author system
+ * @date 2024-01-01
+ */
+public interface ConfigSource {
+
+    /**
+     * 配置来源名称（用于日志）
+     *
+     * @return 名称
+     */
+    String getName();
+
+    /**
+     * 读取当前配置内容
+     *
+     * @return 配置内容，暂无配置时返回null
+     * @throws Exception 读取失败
+     */
+    String load() throws Exception;
+
+    /**
+     * 订阅配置变更
+     *
+     * @param listener 配置变更回调，参数为新的配置内容
+     * @throws Exception 订阅失败
+     */
+    void subscribe(Consumer<String> listener) throws Exception;
+
+    /**
+     * 关闭配置来源，释放连接和线程
+     */
+    void close();
+}
@@ -0,0 +1,136 @@
+package com.luoyu.dynamiclog.source;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.Objects;
+import java.util.function.Consumer;
+
+/**
+ * 本地文件配置来源
+ * <p>
+ * 读取本地JSON文件，并通过{@link WatchService}监听所在目录，文件被修改、新建或整体替换时重新读取；
+ * 内容未变化的事件（编辑器保存时常见的重复通知）不会触发回调。
+ *
+ * @author system
+ * @date 2024-01-01
+ */
+@Slf4j
+public class FileConfigSource implements ConfigSource {
+    private final Path file;
+    private volatile WatchService watchService;
+    private volatile String lastContent;
+
+    /**
+     * 构造函数
+     *
+     * @param file 配置文件路径
+     */
+    public FileConfigSource(Path file) {
+        this.file = file.toAbsolutePath().normalize();
+    }
+
+    @Override
+    public String getName() {
+        return "file:" + file;
+    }
+
+    @Override
+    public String load() throws IOException {
+        if (!Files.isRegularFile(file)) {
+            log.warn("Dynamic log config file does not exist: {}", file);
+            return null;
+        }
+        String content = new String(Files.readAllBytes(file), StandardCharsets.UTF_8);
+        lastContent = content;
+        return content;
+    }
+
+    @Override
+    public void subscribe(Consumer<String> listener) throws IOException {
+        Path dir = file.getParent();
+        WatchService service = FileSystems.getDefault().newWatchService();
+        dir.register(service, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+        watchService = service;
+
+        Thread watcher = new Thread(() -> watch(service, listener), "dynamic-log-config-watcher");
+        watcher.setDaemon(true);
+        watcher.start();
+    }
+
+    /**
+     * 监听循环
+     *
+     * @param service 监听服务
+     * @param listener 配置变更回调
+     */
+    private void watch(WatchService service, Consumer<String> listener) {
+        Path fileName = file.getFileName();
+        try {
+            while (true) {
+                WatchKey key = service.take();
+                boolean changed = false;
+                for (WatchEvent<?> event : key.pollEvents()) {
+                    if (fileName.equals(event.context())) {
+                        changed = true;
+                    }
+                }
+                key.reset();
+
+                if (changed) {
+                    notifyChange(listener);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ClosedWatchServiceException e) {
+            // 已关闭
+        }
+    }
+
+    /**
+     * 重新读取文件，内容变化时回调
+     *
+     * @param listener 配置变更回调
+     */
+    private void notifyChange(Consumer<String> listener) {
+        try {
+            if (!Files.isRegularFile(file)) {
+                return;
+            }
+            String content = new String(Files.readAllBytes(file), StandardCharsets.UTF_8);
+            if (Objects.equals(content, lastContent)) {
+                return;
+            }
+            lastContent = content;
+            log.info("Dynamic log config file changed, reloading: {}", file);
+            listener.accept(content);
+        } catch (IOException e) {
+            log.error("Failed to read dynamic log config file: {}", file, e);
+        } catch (RuntimeException e) {
+            log.error("Failed to apply dynamic log config file: {}", file, e);
+        }
+    }
+
+    @Override
+    public void close() {
+        WatchService service = watchService;
+        if (service != null) {
+            watchService = null;
+            try {
+                service.close();
+            } catch (IOException e) {
+                log.warn("Failed to close config file watcher", e);
+            }
+        }
+    }
+}
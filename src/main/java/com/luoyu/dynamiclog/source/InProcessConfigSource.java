@@ -0,0 +1,62 @@
+package com.luoyu.dynamiclog.source;
+
+import java.util.function.Consumer;
+
+/**
+ * 进程内配置来源
+ * <p>
+ * 初始内容来自Spring Environment（{@code luoyu.dynamic-log.config-content}）或构造参数，
+ * 之后通过{@link #publish(String)}以编程方式下发，适合本地调试、集成测试和性能测试时代替Nacos。
+ *
+ * @author system
+ * @date 2024-01-01
+ */
+public class InProcessConfigSource implements ConfigSource {
+    private volatile String content;
+    private volatile Consumer<String> listener;
+
+    public InProcessConfigSource() {
+    }
+
+    /**
+     * 构造函数
+     *
+     * @param content 初始配置内容（JSON格式，可为null）
+     */
+    public InProcessConfigSource(String content) {
+        this.content = content;
+    }
+
+    @Override
+    public String getName() {
+        return "in-process";
+    }
+
+    @Override
+    public String load() {
+        return content;
+    }
+
+    @Override
+    public void subscribe(Consumer<String> listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * 下发新的配置内容
+     *
+     * @param content 配置内容（JSON格式）
+     */
+    public void publish(String content) {
+        this.content = content;
+        Consumer<String> current = listener;
+        if (current != null) {
+            current.accept(content);
+        }
+    }
+
+    @Override
+    public void close() {
+        listener = null;
+    }
+}
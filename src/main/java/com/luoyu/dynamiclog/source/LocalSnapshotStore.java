@@ -0,0 +1,88 @@
+package com.luoyu.dynamiclog.source;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Objects;
+
+/**
+ * 本地配置快照存储
+ * <p>
+ * 保存最近一次成功应用的远程配置内容，启动时立即加载，远程配置到达前插件按上次的配置工作；
+ * 写入时先写临时文件再原子替换，进程中途退出也不会留下半个文件。
+ *
+ * @author system
+ * @date 2024-01-01
+ */
+@Slf4j
+public class LocalSnapshotStore {
+    private final Path file;
+    private volatile String lastSaved;
+
+    /**
+     * 构造函数
+     *
+     * @param file 快照文件路径
+     */
+    public LocalSnapshotStore(Path file) {
+        this.file = file.toAbsolutePath().normalize();
+    }
+
+    /**
+     * 读取快照
+     *
+     * @return 快照内容，文件不存在或读取失败时返回null
+     */
+    public String read() {
+        if (!Files.isRegularFile(file)) {
+            return null;
+        }
+        try {
+            String content = new String(Files.readAllBytes(file), StandardCharsets.UTF_8);
+            lastSaved = content;
+            return content;
+        } catch (IOException e) {
+            log.warn("Failed to read dynamic log config snapshot: {}", file, e);
+            return null;
+        }
+    }
+
+    /**
+     * 保存快照（内容与上次相同时跳过）
+     *
+     * @param content 配置内容
+     */
+    public void write(String content) {
+        if (content == null || Objects.equals(content, lastSaved)) {
+            return;
+        }
+
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        try {
+            Files.createDirectories(file.getParent());
+            Files.write(tmp, content.getBytes(StandardCharsets.UTF_8));
+            try {
+                Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+            lastSaved = content;
+        } catch (IOException e) {
+            log.warn("Failed to write dynamic log config snapshot: {}", file, e);
+        }
+    }
+
+    /**
+     * 快照文件路径
+     *
+     * @return 文件路径
+     */
+    public Path getFile() {
+        return file;
+    }
+}
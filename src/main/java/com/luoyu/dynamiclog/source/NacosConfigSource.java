@@ -0,0 +1,82 @@
+package com.luoyu.dynamiclog.source;
+
+import com.alibaba.nacos.api.NacosFactory;
+import com.alibaba.nacos.api.PropertyKeyConst;
+import com.alibaba.nacos.api.config.ConfigService;
+import com.alibaba.nacos.api.config.listener.Listener;
+import com.alibaba.nacos.api.exception.NacosException;
+import com.luoyu.dynamiclog.config.DynamicLogConfig;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+
+import java.util.Properties;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
+
+/**
+ * Nacos配置来源
+ *
+ * @author system
+ * @date 2024-01-01
+ */
+@Slf4j
+public class NacosConfigSource implements ConfigSource {
+    private static final long LOAD_TIMEOUT_MILLIS = 5000;
+
+    private final String dataId;
+    private final String group;
+    private final ConfigService configService;
+
+    /**
+     * 构造函数
+     *
+     * @param config 动态日志配置（服务器地址、命名空间、DataId、Group）
+     * @throws NacosException 创建Nacos配置服务失败
+     */
+    public NacosConfigSource(DynamicLogConfig config) throws NacosException {
+        this.dataId = config.getNacosDataId();
+        this.group = config.getNacosGroup();
+
+        Properties properties = new Properties();
+        properties.setProperty(PropertyKeyConst.SERVER_ADDR, config.getNacosServerAddr());
+        if (StringUtils.isNotBlank(config.getNacosNamespace())) {
+            properties.setProperty(PropertyKeyConst.NAMESPACE, config.getNacosNamespace());
+        }
+        this.configService = NacosFactory.createConfigService(properties);
+    }
+
+    @Override
+    public String getName() {
+        return "nacos:" + group + "/" + dataId;
+    }
+
+    @Override
+    public String load() throws NacosException {
+        return configService.getConfig(dataId, group, LOAD_TIMEOUT_MILLIS);
+    }
+
+    @Override
+    public void subscribe(Consumer<String> listener) throws NacosException {
+        configService.addListener(dataId, group, new Listener() {
+            @Override
+            public Executor getExecutor() {
+                return null;
+            }
+
+            @Override
+            public void receiveConfigInfo(String configInfo) {
+                log.info("Received config change from Nacos, reloading...");
+                listener.accept(configInfo);
+            }
+        });
+    }
+
+    @Override
+    public void close() {
+        try {
+            configService.shutDown();
+        } catch (NacosException e) {
+            log.error("Failed to shutdown Nacos config service", e);
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package com.luoyu.dynamiclog.trace;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 不限次数的追踪预算（用于上游传播过来的追踪）
+ * <p>
+ * 只统计进行中的追踪数，不设上限，追踪数由激活策略的时间窗口限制；
+ * 进行中的追踪全部结束时{@link #finish()}返回true以恢复日志级别，会话本身不会完成。
+ *
+ * @author system
+ * @date 2024-01-01
+ */
+public class InFlightTraceBudget extends TraceBudget {
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    public InFlightTraceBudget() {
+        super(0);
+    }
+
+    @Override
+    public boolean tryReserve() {
+        inFlight.incrementAndGet();
+        return true;
+    }
+
+    @Override
+    public void release() {
+        inFlight.decrementAndGet();
+    }
+
+    @Override
+    public boolean finish() {
+        return inFlight.decrementAndGet() == 0;
+    }
+
+    @Override
+    public boolean isExhausted() {
+        return false;
+    }
+
+    @Override
+    public boolean isCompleted() {
+        return false;
+    }
+
+    @Override
+    public int getReserved() {
+        return inFlight.get();
+    }
+
+    @Override
+    public int getFinished() {
+        return 0;
+    }
+}
@@ -0,0 +1,123 @@
+package com.luoyu.dynamiclog.trace;
+
+import com.luoyu.dynamiclog.config.InterfaceLogConfig;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 接口追踪激活策略
+ * <p>
+ * 配置加载时由接口配置编译而来，在次数预算之外进一步决定某个请求是否追踪：生效时间段、按比例采样、
+ * 每个时间窗口内的最大追踪数。全部判断无锁：时间段只比较时间戳，采样使用线程本地随机数，
+ * 窗口计数把窗口编号和计数打包在一个long里用CAS更新。
+ *
+ * @author system
+ * @date 2024-01-01
+ */
+public class TraceActivationPolicy {
+    private static final long COUNT_MASK = 0xFFFFFFFFL;
+
+    private final long startTime;
+    private final long endTime;
+    private final double sampleRatio;
+    private final int maxTracesPerWindow;
+    private final long windowMillis;
+    private final AtomicLong windowState = new AtomicLong();
+
+    private TraceActivationPolicy(long startTime, long endTime, double sampleRatio, int maxTracesPerWindow,
+                                  long windowMillis) {
+        this.startTime = startTime;
+        this.endTime = endTime;
+        this.sampleRatio = sampleRatio;
+        this.maxTracesPerWindow = maxTracesPerWindow;
+        this.windowMillis = windowMillis;
+    }
+
+    /**
+     * 根据接口配置创建激活策略
+     *
+     * @param config 接口配置
+     * @param loadTime 配置加载时间（毫秒，过期时长从此时开始计算）
+     * @return 激活策略，未配置任何策略时返回null
+     */
+    public static TraceActivationPolicy create(InterfaceLogConfig config, long loadTime) {
+        long startTime = config.getStartTime() != null ? config.getStartTime() : Long.MIN_VALUE;
+        long endTime = config.getEndTime() != null ? config.getEndTime() : Long.MAX_VALUE;
+        if (config.getExpireSeconds() != null && config.getExpireSeconds() > 0) {
+            endTime = Math.min(endTime, loadTime + config.getExpireSeconds() * 1000L);
+        }
+
+        double sampleRatio = 1D;
+        if (config.getSamplePercent() != null && config.getSamplePercent() < 100D) {
+            sampleRatio = Math.max(config.getSamplePercent(), 0D) / 100D;
+        }
+
+        int maxTracesPerWindow = config.getMaxTracesPerWindow() != null ? config.getMaxTracesPerWindow() : 0;
+        long windowMillis = config.getWindowSeconds() != null && config.getWindowSeconds() > 0
+                ? config.getWindowSeconds() * 1000L : 60000L;
+
+        if (startTime == Long.MIN_VALUE && endTime == Long.MAX_VALUE && sampleRatio >= 1D && maxTracesPerWindow <= 0) {
+            return null;
+        }
+        return new TraceActivationPolicy(startTime, endTime, sampleRatio, maxTracesPerWindow, windowMillis);
+    }
+
+    /**
+     * 当前时间是否在生效时间段内
+     *
+     * @param now 当前时间（毫秒）
+     * @return 是否生效
+     */
+    public boolean isWithinTimeRange(long now) {
+        return now >= startTime && now < endTime;
+    }
+
+    /**
+     * 是否已过生效结束时间（结束时间或有效时长到期后不会再开始新的追踪）
+     *
+     * @param now 当前时间（毫秒）
+     * @return 是否已过期
+     */
+    public boolean isExpired(long now) {
+        return now >= endTime;
+    }
+
+    /**
+     * 按采样比例决定是否选中当前请求
+     *
+     * @return 是否选中
+     */
+    public boolean sample() {
+        return sampleRatio >= 1D || ThreadLocalRandom.current().nextDouble() < sampleRatio;
+    }
+
+    /**
+     * 占用当前时间窗口的一个追踪名额
+     *
+     * @param now 当前时间（毫秒）
+     * @return 是否占用成功（未配置窗口限制时总是成功）
+     */
+    public boolean tryAcquireWindow(long now) {
+        if (maxTracesPerWindow <= 0) {
+            return true;
+        }
+
+        long window = now / windowMillis;
+        for (;;) {
+            long state = windowState.get();
+            long next;
+            // 只向前切换窗口，时间戳稍旧的线程计入当前窗口
+            if ((state >>> 32) < window) {
+                next = (window << 32) | 1L;
+            } else if ((state & COUNT_MASK) >= maxTracesPerWindow) {
+                return false;
+            } else {
+                next = state + 1;
+            }
+            if (windowState.compareAndSet(state, next)) {
+                return true;
+            }
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package com.luoyu.dynamiclog.trace;
+
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+
+/**
+ * 接口追踪次数预算
+ * <p>
+ * 请求开始时通过CAS预占一个名额，预占成功才追踪，保证并发下追踪的请求数不超过配置的次数；
+ * 预占后追踪未能开始时归还名额。所有名额都结束后会话完成，{@link #finish()}只对最后一个结束的请求返回true。
+ *
+ * @author system
+ * @date 2024-01-01
+ */
+public class TraceBudget {
+    private static final AtomicIntegerFieldUpdater<TraceBudget> RESERVED =
+            AtomicIntegerFieldUpdater.newUpdater(TraceBudget.class, "reserved");
+    private static final AtomicIntegerFieldUpdater<TraceBudget> FINISHED =
+            AtomicIntegerFieldUpdater.newUpdater(TraceBudget.class, "finished");
+    private static final AtomicIntegerFieldUpdater<TraceBudget> LIMIT =
+            AtomicIntegerFieldUpdater.newUpdater(TraceBudget.class, "limit");
+
+    private volatile int limit;
+    private volatile int reserved;
+    private volatile int finished;
+
+    /**
+     * 构造函数
+     *
+     * @param limit 最多追踪的请求数（为空或不大于0表示不追踪）
+     */
+    public TraceBudget(Integer limit) {
+        this.limit = limit == null ? 0 : Math.max(limit, 0);
+    }
+
+    /**
+     * 预占一个追踪名额
+     *
+     * @return 是否预占成功
+     */
+    public boolean tryReserve() {
+        for (;;) {
+            int current = reserved;
+            if (current >= limit) {
+                return false;
+            }
+            if (RESERVED.compareAndSet(this, current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * 增加名额上限（集群配额租到新名额时调用）
+     *
+     * @param slots 增加的名额数
+     */
+    protected void grow(int slots) {
+        LIMIT.addAndGet(this, slots);
+    }
+
+    /**
+     * 归还未使用的名额（预占成功但追踪未能开始时调用）
+     */
+    public void release() {
+        RESERVED.decrementAndGet(this);
+    }
+
+    /**
+     * 结束一次追踪
+     *
+     * @return 是否为当前最后一个名额（此后没有进行中的追踪，可以恢复日志级别）
+     */
+    public boolean finish() {
+        return FINISHED.incrementAndGet(this) == limit;
+    }
+
+    /**
+     * 名额是否已全部被预占
+     *
+     * @return 是否已耗尽
+     */
+    public boolean isExhausted() {
+        return reserved >= limit;
+    }
+
+    /**
+     * 会话是否已完成（所有名额的追踪都已结束）
+     *
+     * @return 是否已完成
+     */
+    public boolean isCompleted() {
+        return finished >= limit;
+    }
+
+    /**
+     * 已预占的名额数
+     *
+     * @return 已预占数
+     */
+    public int getReserved() {
+        return reserved;
+    }
+
+    /**
+     * 已结束的追踪数
+     *
+     * @return 已结束数
+     */
+    public int getFinished() {
+        return finished;
+    }
+
+    /**
+     * 名额上限
+     *
+     * @return 上限
+     */
+    public int getLimit() {
+        return limit;
+    }
+}
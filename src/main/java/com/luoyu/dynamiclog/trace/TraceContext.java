@@ -1,6 +1,9 @@
 package com.luoyu.dynamiclog.trace;
 
+import com.luoyu.dynamiclog.config.InterfaceLogConfig;
+import com.luoyu.dynamiclog.log.RequestLogBuffer;
 import lombok.Data;
+import lombok.ToString;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -14,6 +17,16 @@ import java.util.Stack;
  */
 @Data
 public class TraceContext {
+    /**
+     * 追踪ID（由上游传播过来时沿用上游的ID）
+     */
+    private String traceId;
+
+    /**
+     * 调用下游时传播的剩余深度（不大于0表示不传播）
+     */
+    private int propagateDepth;
+
     /**
      * 请求路径
      */
@@ -48,4 +61,15 @@ public class TraceContext {
      * 根节点
      */
     private TraceNode rootNode;
+
+    /**
+     * 请求日志捕获缓冲区（未开启捕获时为null）
+     */
+    private RequestLogBuffer logBuffer;
+
+    /**
+     * 请求开始时匹配到的接口配置，远程调用等环节直接复用，不再重复匹配
+     */
+    @ToString.Exclude
+    private InterfaceLogConfig interfaceConfig;
 }
@@ -1,9 +1,20 @@
 package com.luoyu.dynamiclog.trace;
 
+import com.luoyu.dynamiclog.log.DynamicLogFileAppender;
+import com.luoyu.dynamiclog.log.JsonLineEncoder;
+import com.luoyu.dynamiclog.log.RequestLogBuffer;
+import com.luoyu.dynamiclog.log.RetroLogRing;
+import com.luoyu.dynamiclog.log.TimestampCache;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.StringUtils;
 
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Set;
 
 /**
  * 追踪管理器
@@ -13,6 +24,28 @@ import java.util.List;
  */
 @Slf4j
 public class TraceManager {
+    private DynamicLogFileAppender fileAppender;
+    private final Set<TraceContext> inFlightTraces = Collections.newSetFromMap(new IdentityHashMap<>());
+    private final Deque<TraceSummary> recentTraces = new ArrayDeque<>();
+    private int recentTraceSize = 20;
+
+    /**
+     * 设置动态日志文件追加器（追踪结果同时写入动态日志文件）
+     *
+     * @param fileAppender 动态日志文件追加器
+     */
+    public void setFileAppender(DynamicLogFileAppender fileAppender) {
+        this.fileAppender = fileAppender;
+    }
+
+    /**
+     * 设置保留的最近追踪摘要数
+     *
+     * @param recentTraceSize 摘要数（不大于0时不保留）
+     */
+    public void setRecentTraceSize(int recentTraceSize) {
+        this.recentTraceSize = recentTraceSize;
+    }
 
     /**
      * 开始追踪
@@ -36,9 +69,45 @@ public class TraceManager {
         context.getCallStack().push(rootNode);
         context.getAllNodes().add(rootNode);
 
+        synchronized (inFlightTraces) {
+            inFlightTraces.add(context);
+        }
         return context;
     }
 
+    /**
+     * 丢弃未能完整开始的追踪（不打印结果，也不记录摘要）
+     *
+     * @param context 追踪上下文
+     */
+    public void discardTrace(TraceContext context) {
+        synchronized (inFlightTraces) {
+            inFlightTraces.remove(context);
+        }
+    }
+
+    /**
+     * 获取进行中的追踪
+     *
+     * @return 进行中的追踪（副本）
+     */
+    public List<TraceContext> getInFlightTraces() {
+        synchronized (inFlightTraces) {
+            return new ArrayList<>(inFlightTraces);
+        }
+    }
+
+    /**
+     * 获取最近结束的追踪摘要
+     *
+     * @return 追踪摘要（副本，最近结束的在前）
+     */
+    public List<TraceSummary> getRecentTraces() {
+        synchronized (recentTraces) {
+            return new ArrayList<>(recentTraces);
+        }
+    }
+
     /**
      * 结束追踪
      *
@@ -62,10 +131,45 @@ public class TraceManager {
             }
         }
 
+        synchronized (inFlightTraces) {
+            inFlightTraces.remove(context);
+        }
+        recordSummary(context, totalCost);
+
         // 打印追踪结果
         printTraceResult(context, totalCost);
     }
 
+    /**
+     * 记录追踪摘要，超出保留数时丢弃最旧的
+     *
+     * @param context 追踪上下文
+     * @param totalCost 总耗时
+     */
+    private void recordSummary(TraceContext context, long totalCost) {
+        if (recentTraceSize <= 0) {
+            return;
+        }
+
+        TraceSummary summary = new TraceSummary();
+        summary.setTraceId(context.getTraceId());
+        summary.setPath(context.getPath());
+        summary.setMethod(context.getMethod());
+        if (context.getInterfaceConfig() != null) {
+            summary.setLogLevel(context.getInterfaceConfig().getLogLevel());
+        }
+        summary.setStartTime(context.getStartTime());
+        summary.setCost(totalCost);
+        summary.setNodeCount(context.getAllNodes().size());
+
+        synchronized (recentTraces) {
+            recentTraces.addFirst(summary);
+            while (recentTraces.size() > recentTraceSize) {
+                recentTraces.removeLast();
+            }
+        }
+    }
+
     /**
      * 打印追踪结果
      *
@@ -76,6 +180,9 @@ public class TraceManager {
         StringBuilder sb = new StringBuilder();
         sb.append("\n========== 动态日志追踪结果 ==========\n");
         sb.append("接口: ").append(context.getMethod()).append(" ").append(context.getPath()).append("\n");
+        if (context.getTraceId() != null) {
+            sb.append("追踪ID: ").append(context.getTraceId()).append("\n");
+        }
         sb.append("总耗时: ").append(totalCost).append("ms\n");
         sb.append("----------------------------------------\n");
 
@@ -83,6 +190,189 @@ public class TraceManager {
 
         sb.append("========================================\n");
         log.info(sb.toString());
+
+        if (fileAppender != null && fileAppender.isJsonFormat()) {
+            writeJsonTrace(context, totalCost);
+        } else if (fileAppender != null) {
+            // 捕获的请求日志紧跟追踪结果，作为一整块写入，避免与其它线程的日志交错
+            if (context.getLogBuffer() != null) {
+                context.getLogBuffer().appendTo(sb);
+            }
+            fileAppender.append("TRACE", sb.toString());
+        }
+    }
+
+    /**
+     * 以JSON Lines格式写出追踪结果（每次追踪一行或每个节点一行，整体一次写入）
+     *
+     * @param context 追踪上下文
+     * @param totalCost 总耗时
+     */
+    private void writeJsonTrace(TraceContext context, long totalCost) {
+        JsonLineEncoder json = fileAppender.beginJson();
+        byte[] timestamp = TimestampCache.format(context.getEndTime());
+        RequestLogBuffer logBuffer = context.getLogBuffer();
+
+        if (fileAppender.isJsonNodeLayout()) {
+            writeJsonNodeLines(json, timestamp, context, context.getRootNode(), -1, new int[1]);
+            if (logBuffer != null) {
+                writeJsonTraceHeader(json.beginObject(), timestamp, context, "trace-logs");
+                writeJsonLogs(json, logBuffer);
+                json.endObject().newLine();
+            }
+        } else {
+            writeJsonTraceHeader(json.beginObject(), timestamp, context, "trace");
+            json.field("cost", totalCost);
+            json.name("root");
+            writeJsonNode(json, context.getRootNode());
+            if (logBuffer != null) {
+                writeJsonLogs(json, logBuffer);
+            }
+            json.endObject().newLine();
+        }
+
+        fileAppender.writeJson(json);
+    }
+
+    private void writeJsonTraceHeader(JsonLineEncoder json, byte[] timestamp, TraceContext context, String type) {
+        json.name("ts").rawString(timestamp)
+                .field("type", type)
+                .field("traceStart", context.getStartTime())
+                .field("httpMethod", context.getMethod())
+                .field("path", context.getPath());
+        if (context.getTraceId() != null) {
+            json.field("traceId", context.getTraceId());
+        }
+    }
+
+    private void writeJsonLogs(JsonLineEncoder json, RequestLogBuffer logBuffer) {
+        json.field("logs", logBuffer.getContent())
+                .field("logsTruncated", logBuffer.getTruncatedCount());
+    }
+
+    /**
+     * 写出嵌套的节点对象
+     *
+     * @param json JSON编码器
+     * @param node 节点
+     */
+    private void writeJsonNode(JsonLineEncoder json, TraceNode node) {
+        json.beginObject();
+        writeJsonNodeFields(json, node);
+        if (node.getChildren() != null && !node.getChildren().isEmpty()) {
+            json.name("children").beginArray();
+            for (TraceNode child : node.getChildren()) {
+                writeJsonNode(json, child);
+            }
+            json.endArray();
+        }
+        json.endObject();
+    }
+
+    /**
+     * 按先序遍历每个节点写出一行
+     *
+     * @param json JSON编码器
+     * @param timestamp 时间戳
+     * @param context 追踪上下文
+     * @param node 节点
+     * @param parentSeq 父节点序号（根节点为-1）
+     * @param seq 序号计数器
+     */
+    private void writeJsonNodeLines(JsonLineEncoder json, byte[] timestamp, TraceContext context, TraceNode node,
+                                    int parentSeq, int[] seq) {
+        int nodeSeq = seq[0]++;
+        writeJsonTraceHeader(json.beginObject(), timestamp, context, "trace-node");
+        json.field("seq", nodeSeq).field("parent", parentSeq);
+        writeJsonNodeFields(json, node);
+        json.endObject().newLine();
+
+        if (node.getChildren() != null) {
+            for (TraceNode child : node.getChildren()) {
+                writeJsonNodeLines(json, timestamp, context, child, nodeSeq, seq);
+            }
+        }
+    }
+
+    private void writeJsonNodeFields(JsonLineEncoder json, TraceNode node) {
+        json.field("className", node.getClassName())
+                .field("methodName", node.getMethodName())
+                .field("depth", node.getDepth())
+                .field("cost", node.getCost());
+        if (node.getLineNumber() != null) {
+            json.field("line", node.getLineNumber());
+        }
+        if (node.getRemoteType() != null) {
+            json.field("remoteType", node.getRemoteType())
+                    .field("outcome", node.getOutcome());
+            if (node.getRequestBytes() != null) {
+                json.field("requestBytes", node.getRequestBytes());
+            }
+            if (node.getResponseBytes() != null) {
+                json.field("responseBytes", node.getResponseBytes());
+            }
+        }
+    }
+
+    /**
+     * 输出追溯日志
+     *
+     * @param path 请求路径
+     * @param method HTTP方法
+     * @param cost 请求耗时
+     * @param reason 输出原因
+     * @param ring 追溯日志缓冲区
+     */
+    public void printRetroLogs(String path, String method, long cost, String reason, RetroLogRing ring) {
+        if (fileAppender != null && fileAppender.isEnabled() && fileAppender.isJsonFormat()) {
+            writeJsonRetro(path, method, cost, reason, ring);
+            return;
+        }
+
+        StringBuilder sb = new StringBuilder();
+        sb.append("\n========== 动态日志追溯结果 ==========\n");
+        sb.append("接口: ").append(method).append(" ").append(path).append("\n");
+        sb.append("总耗时: ").append(cost).append("ms, 原因: ").append(reason).append("\n");
+        sb.append("----------------------------------------\n");
+        ring.formatTo(sb);
+        sb.append("========================================\n");
+
+        if (fileAppender != null && fileAppender.isEnabled()) {
+            fileAppender.append("RETRO", sb.toString());
+        } else {
+            log.info(sb.toString());
+        }
+    }
+
+    /**
+     * 以JSON Lines格式写出追溯结果：一行汇总，随后每条追溯日志一行（整体一次写入）
+     *
+     * @param path 请求路径
+     * @param method HTTP方法
+     * @param cost 请求耗时
+     * @param reason 输出原因
+     * @param ring 追溯日志缓冲区
+     */
+    private void writeJsonRetro(String path, String method, long cost, String reason, RetroLogRing ring) {
+        JsonLineEncoder json = fileAppender.beginJson();
+        byte[] timestamp = TimestampCache.format(System.currentTimeMillis());
+
+        writeJsonRetroHeader(json.beginObject(), timestamp, path, method, "retro");
+        json.field("cost", cost)
+                .field("reason", reason)
+                .field("total", ring.getTotal())
+                .field("overwritten", ring.getOverwritten());
+        json.endObject().newLine();
+        ring.writeJsonTo(json, line -> writeJsonRetroHeader(line, timestamp, path, method, "retro-log"));
+
+        fileAppender.writeJson(json);
+    }
+
+    private void writeJsonRetroHeader(JsonLineEncoder json, byte[] timestamp, String path, String method, String type) {
+        json.name("ts").rawString(timestamp)
+                .field("type", type)
+                .field("httpMethod", method)
+                .field("path", path);
     }
 
     /**
@@ -107,8 +397,18 @@ public class TraceManager {
         if (node.getLineNumber() != null) {
             sb.append("[").append(node.getLineNumber()).append("] ");
         }
+        if (node.getRemoteType() != null) {
+            sb.append("[").append(node.getRemoteType()).append("] ");
+        }
         sb.append(node.getClassName()).append(".").append(node.getMethodName());
         sb.append(" (").append(node.getCost()).append("ms)");
+        if (node.getRemoteType() != null) {
+            sb.append(" 请求: ");
+            appendBytes(sb, node.getRequestBytes());
+            sb.append(", 响应: ");
+            appendBytes(sb, node.getResponseBytes());
+            sb.append(", 结果: ").append(node.getOutcome());
+        }
 
         if (node.getCost() > 1000) {
             sb.append(" [慢方法]");
@@ -124,6 +424,58 @@ public class TraceManager {
         }
     }
 
+    /**
+     * 输出字节数（未知时输出-）
+     *
+     * @param sb StringBuilder
+     * @param bytes 字节数
+     */
+    private void appendBytes(StringBuilder sb, Long bytes) {
+        if (bytes == null) {
+            sb.append("-");
+        } else if (bytes < 1024) {
+            sb.append(bytes).append("B");
+        } else {
+            sb.append(String.format("%.1fKB", bytes / 1024D));
+        }
+    }
+
+    /**
+     * 进入远程调用（作为当前节点的子节点记录）
+     *
+     * @param context 追踪上下文
+     * @param remoteType 远程调用类型
+     * @param serviceName 服务名
+     * @param methodName 方法名
+     * @return 节点
+     */
+    public TraceNode enterRemoteCall(TraceContext context, String remoteType, String serviceName, String methodName) {
+        TraceNode node = enterMethod(context, serviceName, methodName, null);
+        if (node != null) {
+            node.setRemoteType(remoteType);
+        }
+        return node;
+    }
+
+    /**
+     * 退出远程调用
+     *
+     * @param context 追踪上下文
+     * @param node 节点
+     * @param requestBytes 请求字节数（未知时为null）
+     * @param responseBytes 响应字节数（未知时为null）
+     * @param outcome 调用结果
+     */
+    public void exitRemoteCall(TraceContext context, TraceNode node, Long requestBytes, Long responseBytes, String outcome) {
+        if (node == null) {
+            return;
+        }
+        node.setRequestBytes(requestBytes);
+        node.setResponseBytes(responseBytes);
+        node.setOutcome(outcome);
+        exitMethod(context, node);
+    }
+
     /**
      * 进入方法
      *
@@ -62,4 +62,24 @@ public class TraceNode {
      * 是否已完成
      */
     private boolean completed = false;
+
+    /**
+     * 远程调用类型（feign、rpc），普通方法节点为null
+     */
+    private String remoteType;
+
+    /**
+     * 远程调用的请求字节数（未知时为null）
+     */
+    private Long requestBytes;
+
+    /**
+     * 远程调用的响应字节数（未知时为null）
+     */
+    private Long responseBytes;
+
+    /**
+     * 远程调用结果（如 HTTP 200、OK 或异常类名）
+     */
+    private String outcome;
 }
@@ -0,0 +1,74 @@
+package com.luoyu.dynamiclog.trace;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 跨服务传播动态日志会话的约定
+ * <p>
+ * 追踪中的请求调用下游时通过Feign请求头或Dubbo附件传递日志级别、追踪ID和剩余传播深度，
+ * 下游开启接收后只追踪这些被传播过来的请求。深度表示包括接收方在内还可以追踪的服务层数。
+ *
+ * @author system
+ * @date 2024-01-01
+ */
+public final class TracePropagation {
+    /**
+     * HTTP请求头：日志级别
+     */
+    public static final String HEADER_LEVEL = "X-Dynamic-Log-Level";
+
+    /**
+     * HTTP请求头：追踪ID
+     */
+    public static final String HEADER_TRACE_ID = "X-Dynamic-Log-Trace-Id";
+
+    /**
+     * HTTP请求头：剩余传播深度
+     */
+    public static final String HEADER_DEPTH = "X-Dynamic-Log-Depth";
+
+    /**
+     * Dubbo附件：日志级别
+     */
+    public static final String ATTACHMENT_LEVEL = "dynamic-log-level";
+
+    /**
+     * Dubbo附件：追踪ID
+     */
+    public static final String ATTACHMENT_TRACE_ID = "dynamic-log-trace-id";
+
+    /**
+     * Dubbo附件：剩余传播深度
+     */
+    public static final String ATTACHMENT_DEPTH = "dynamic-log-depth";
+
+    private TracePropagation() {
+    }
+
+    /**
+     * 生成追踪ID
+     *
+     * @return 16位十六进制追踪ID
+     */
+    public static String newTraceId() {
+        String hex = Long.toHexString(ThreadLocalRandom.current().nextLong());
+        return hex.length() == 16 ? hex : "0000000000000000".substring(hex.length()) + hex;
+    }
+
+    /**
+     * 解析剩余传播深度
+     *
+     * @param value 请求头或附件的值
+     * @return 深度，为空或无法解析时返回0
+     */
+    public static int parseDepth(String value) {
+        if (value == null || value.isEmpty()) {
+            return 0;
+        }
+        try {
+            return Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+}
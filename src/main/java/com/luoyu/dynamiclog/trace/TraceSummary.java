@@ -0,0 +1,47 @@
+package com.luoyu.dynamiclog.trace;
+
+import lombok.Data;
+
+/**
+ * 追踪摘要（已结束的追踪，供端点查看最近的追踪情况）
+ *
+ * @author system
+ * @date 2024-01-01
+ */
+@Data
+public class TraceSummary {
+    /**
+     * 追踪ID
+     */
+    private String traceId;
+
+    /**
+     * 请求路径
+     */
+    private String path;
+
+    /**
+     * HTTP方法
+     */
+    private String method;
+
+    /**
+     * 日志级别
+     */
+    private String logLevel;
+
+    /**
+     * 开始时间
+     */
+    private long startTime;
+
+    /**
+     * 总耗时（毫秒）
+     */
+    private long cost;
+
+    /**
+     * 节点数
+     */
+    private int nodeCount;
+}
@@ -0,0 +1,115 @@
+package com.luoyu.dynamiclog.actuator;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import com.luoyu.dynamiclog.config.DynamicLogConfig;
+import com.luoyu.dynamiclog.config.InterfaceLogConfig;
+import com.luoyu.dynamiclog.interceptor.RequestTraceLifecycle;
+import com.luoyu.dynamiclog.log.LoggerLevelManager;
+import com.luoyu.dynamiclog.nacos.NacosConfigManager;
+import com.luoyu.dynamiclog.source.InProcessConfigSource;
+import com.luoyu.dynamiclog.trace.TraceContext;
+import com.luoyu.dynamiclog.trace.TraceManager;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.actuate.endpoint.InvalidEndpointRequestException;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 动态日志端点测试
+ *
+ * @author system
+ * @date 2024-01-01
+ */
+public class DynamicLogEndpointTest {
+    private static final String SESSION_LOGGER = "com.luoyu.dynamiclog.test.endpoint";
+    private static final String PROPAGATION_LOGGER = "com.luoyu.dynamiclog.test.propagated";
+
+    private NacosConfigManager manager;
+    private RequestTraceLifecycle lifecycle;
+    private DynamicLogEndpoint endpoint;
+
+    @Before
+    public void setUp() throws Exception {
+        DynamicLogConfig config = new DynamicLogConfig();
+        config.setConfigLoadAsync(false);
+        config.setAcceptPropagation(true);
+        config.setPropagationLoggers(Collections.singletonList(PROPAGATION_LOGGER));
+        manager = new NacosConfigManager();
+        manager.init(config, new InProcessConfigSource("{\"enabled\": true, \"interfaces\": []}"));
+        TraceManager traceManager = new TraceManager();
+        lifecycle = new RequestTraceLifecycle(manager, traceManager);
+        endpoint = new DynamicLogEndpoint(manager, traceManager, lifecycle);
+    }
+
+    @After
+    public void tearDown() {
+        manager.shutdown();
+        LoggerLevelManager.clearAll();
+        logback(SESSION_LOGGER).setLevel(null);
+        logback(PROPAGATION_LOGGER).setLevel(null);
+    }
+
+    @Test
+    public void startAndStopSession() {
+        Map<String, Object> started = endpoint.session("start", "/api/endpoint", "POST", "DEBUG", 2,
+                SESSION_LOGGER);
+        assertEquals(true, started.get("applied"));
+        InterfaceLogConfig session = manager.getSnapshot().getInterfaces().get(0);
+        assertEquals("/api/endpoint", session.getPath());
+        assertEquals(Collections.singletonList(SESSION_LOGGER), session.getLoggers());
+
+        List<?> interfaces = (List<?>) endpoint.status().get("interfaces");
+        assertEquals(1, interfaces.size());
+
+        assertEquals(true, endpoint.session("stop", "/api/endpoint", "POST", null, null, null).get("applied"));
+        assertTrue(manager.getSnapshot().getInterfaces().isEmpty());
+    }
+
+    @Test(expected = InvalidEndpointRequestException.class)
+    public void unknownActionIsRejected() {
+        endpoint.session("pause", "/api/endpoint", null, null, null, null);
+    }
+
+    @Test
+    public void restoreClearsSessionAndPropagationRegistrations() {
+        endpoint.session("start", "/api/endpoint", null, "DEBUG", 5, null);
+        InterfaceLogConfig session = manager.getSnapshot().getInterfaces().get(0);
+        session.getElevatedLoggers().add(SESSION_LOGGER);
+        LoggerLevelManager.setLoggerLevel(SESSION_LOGGER, "DEBUG");
+
+        TraceContext propagated = lifecycle.beginPropagated(null, null, "TRACE", null, 1, "svc", "call");
+        assertNotNull(propagated);
+        InterfaceLogConfig propagationConfig = propagated.getInterfaceConfig();
+        assertTrue(propagationConfig.getElevatedLoggers().contains(PROPAGATION_LOGGER));
+
+        Collection<?> restored = (Collection<?>) endpoint.restore().get("restored");
+        assertTrue(restored.contains(SESSION_LOGGER));
+        assertTrue(restored.contains(PROPAGATION_LOGGER));
+        assertNull(logback(SESSION_LOGGER).getLevel());
+        assertNull(logback(PROPAGATION_LOGGER).getLevel());
+        assertTrue(session.getElevatedLoggers().isEmpty());
+        assertTrue(propagationConfig.getElevatedLoggers().isEmpty());
+
+        // 登记已清空，远程调用拦截器会再次提升级别
+        assertTrue(session.getElevatedLoggers().add(SESSION_LOGGER));
+        LoggerLevelManager.setLoggerLevel(SESSION_LOGGER, "DEBUG");
+        assertEquals(Level.DEBUG, logback(SESSION_LOGGER).getLevel());
+        lifecycle.endDetached(propagated);
+    }
+
+    private static Logger logback(String name) {
+        return (Logger) LoggerFactory.getLogger(name);
+    }
+}
@@ -0,0 +1,67 @@
+package com.luoyu.dynamiclog.config;
+
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 配置校验器测试
+ *
+ * @author system
+ * @date 2024-01-01
+ */
+public class ConfigValidatorTest {
+
+    @Test
+    public void acceptsDefaults() {
+        assertTrue(validate(newConfig()).isEmpty());
+    }
+
+    @Test
+    public void rejectsRetroBufferSizeOutOfRange() {
+        InterfaceLogConfig config = newConfig();
+        config.setRetroBufferSize(null);
+        assertEquals(1, validate(config).size());
+
+        config.setRetroBufferSize(0);
+        assertEquals(1, validate(config).size());
+
+        config.setRetroBufferSize(ConfigValidator.MAX_RETRO_BUFFER_SIZE + 1);
+        assertEquals(1, validate(config).size());
+
+        config.setRetroBufferSize(ConfigValidator.MAX_RETRO_BUFFER_SIZE);
+        assertTrue(validate(config).isEmpty());
+    }
+
+    @Test
+    public void rejectsCaptureMaxSizeOutOfRange() {
+        InterfaceLogConfig config = newConfig();
+        config.setCaptureMaxSize(null);
+        assertEquals(1, validate(config).size());
+
+        config.setCaptureMaxSize(-1);
+        assertEquals(1, validate(config).size());
+
+        config.setCaptureMaxSize(ConfigValidator.MAX_CAPTURE_SIZE + 1);
+        assertEquals(1, validate(config).size());
+
+        config.setCaptureMaxSize(ConfigValidator.MAX_CAPTURE_SIZE);
+        assertTrue(validate(config).isEmpty());
+    }
+
+    private static InterfaceLogConfig newConfig() {
+        InterfaceLogConfig config = new InterfaceLogConfig();
+        config.setPath("/api/user/list");
+        config.setLogLevel("DEBUG");
+        config.setCount(3);
+        return config;
+    }
+
+    private static List<String> validate(InterfaceLogConfig config) {
+        return ConfigValidator.validate(null, Collections.singletonList(config));
+    }
+}
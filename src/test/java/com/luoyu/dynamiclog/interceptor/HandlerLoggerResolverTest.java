@@ -0,0 +1,56 @@
+package com.luoyu.dynamiclog.interceptor;
+
+import com.luoyu.dynamiclog.config.InterfaceLogConfig;
+import org.junit.Test;
+import org.springframework.web.method.HandlerMethod;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 目标Logger解析器测试
+ *
+ * @author system
+ * @date 2024-01-01
+ */
+public class HandlerLoggerResolverTest {
+    private final HandlerLoggerResolver resolver = new HandlerLoggerResolver();
+
+    @Test
+    public void classHandlerDerivesPackageAndClass() {
+        assertEquals(Arrays.asList("com.luoyu.dynamiclog.interceptor", SampleService.class.getName()),
+                resolver.resolve(SampleService.class, new InterfaceLogConfig()));
+    }
+
+    @Test
+    public void handlerMethodDerivesFromBeanType() throws Exception {
+        HandlerMethod handler = new HandlerMethod(new SampleService(), SampleService.class.getMethod("call"));
+        assertEquals(Arrays.asList("com.luoyu.dynamiclog.interceptor", SampleService.class.getName()),
+                resolver.resolve(handler, new InterfaceLogConfig()));
+        assertEquals(1, resolver.size());
+    }
+
+    @Test
+    public void explicitLoggersAreAppendedWithoutDuplicates() {
+        InterfaceLogConfig config = new InterfaceLogConfig();
+        config.setLoggers(Arrays.asList(" com.luoyu.repo ", "com.luoyu.dynamiclog.interceptor", " "));
+        assertEquals(Arrays.asList("com.luoyu.dynamiclog.interceptor", SampleService.class.getName(), "com.luoyu.repo"),
+                resolver.resolve(SampleService.class, config));
+    }
+
+    @Test
+    public void unknownHandlerUsesOnlyExplicitLoggers() {
+        assertTrue(resolver.resolve("handler", new InterfaceLogConfig()).isEmpty());
+        InterfaceLogConfig config = new InterfaceLogConfig();
+        config.setLoggers(Collections.singletonList("com.luoyu.repo"));
+        assertEquals(Collections.singletonList("com.luoyu.repo"), resolver.resolve(null, config));
+    }
+
+    public static class SampleService {
+        public void call() {
+        }
+    }
+}
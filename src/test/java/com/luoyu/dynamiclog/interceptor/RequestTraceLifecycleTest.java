@@ -0,0 +1,117 @@
+package com.luoyu.dynamiclog.interceptor;
+
+import com.luoyu.dynamiclog.config.DynamicLogConfig;
+import com.luoyu.dynamiclog.log.LoggerLevelManager;
+import com.luoyu.dynamiclog.nacos.NacosConfigManager;
+import com.luoyu.dynamiclog.source.InProcessConfigSource;
+import com.luoyu.dynamiclog.trace.TraceContext;
+import com.luoyu.dynamiclog.trace.TraceManager;
+import ch.qos.logback.classic.Level;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.slf4j.LoggerFactory;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+/**
+ * 请求追踪生命周期测试（传播会话）
+ *
+ * @author system
+ * @date 2024-01-01
+ */
+public class RequestTraceLifecycleTest {
+    private NacosConfigManager manager;
+    private RequestTraceLifecycle lifecycle;
+
+    @Before
+    public void setUp() throws Exception {
+        DynamicLogConfig config = new DynamicLogConfig();
+        config.setConfigLoadAsync(false);
+        config.setAcceptPropagation(true);
+        config.setPropagationMaxDepth(3);
+        manager = new NacosConfigManager();
+        manager.init(config, new InProcessConfigSource("{\"enabled\": true, \"interfaces\": []}"));
+        lifecycle = new RequestTraceLifecycle(manager, new TraceManager());
+    }
+
+    @After
+    public void tearDown() {
+        manager.shutdown();
+        LoggerLevelManager.clearAll();
+    }
+
+    @Test
+    public void propagatedDepthIsClampedToMaximum() {
+        TraceContext context = lifecycle.beginPropagated(null, HandlerLoggerResolverTest.SampleService.class,
+                "DEBUG", "0123456789abcdef", Integer.MAX_VALUE, "SampleService", "call");
+        assertNotNull(context);
+        try {
+            assertEquals(2, context.getPropagateDepth());
+            assertEquals("0123456789abcdef", context.getTraceId());
+        } finally {
+            lifecycle.endDetached(context);
+        }
+    }
+
+    @Test
+    public void propagatedDepthWithinMaximumIsKept() {
+        TraceContext context = lifecycle.beginPropagated(null, null, "TRACE", null, 2, "SampleService", "call");
+        assertNotNull(context);
+        try {
+            assertEquals(1, context.getPropagateDepth());
+        } finally {
+            lifecycle.endDetached(context);
+        }
+    }
+
+    @Test
+    public void exhaustedOrInvalidPropagationIsIgnored() {
+        assertNull(lifecycle.beginPropagated(null, null, "DEBUG", null, 0, "SampleService", "call"));
+        assertNull(lifecycle.beginPropagated(null, null, "VERBOSE", null, 1, "SampleService", "call"));
+    }
+
+    @Test
+    public void lessVerboseLevelsAreNotAccepted() {
+        assertNull(lifecycle.beginPropagated(null, null, "INFO", null, 1, "SampleService", "call"));
+        assertNull(lifecycle.beginPropagated(null, null, "WARN", null, 1, "SampleService", "call"));
+        assertNull(lifecycle.beginPropagated(null, null, "ERROR", null, 1, "SampleService", "call"));
+    }
+
+    @Test
+    public void alreadyVerboseLoggersAreNotChanged() {
+        String loggerName = HandlerLoggerResolverTest.SampleService.class.getName();
+        ch.qos.logback.classic.Logger logger = (ch.qos.logback.classic.Logger) LoggerFactory.getLogger(loggerName);
+        logger.setLevel(Level.TRACE);
+        try {
+            TraceContext context = lifecycle.beginPropagated(null, HandlerLoggerResolverTest.SampleService.class,
+                    "DEBUG", null, 1, "SampleService", "call");
+            assertNotNull(context);
+            try {
+                assertEquals(Level.TRACE, logger.getLevel());
+                assertFalse(LoggerLevelManager.getModifiedLevels().containsKey(loggerName));
+            } finally {
+                lifecycle.endDetached(context);
+            }
+        } finally {
+            logger.setLevel(null);
+        }
+    }
+
+    @Test
+    public void missingPerMinuteLimitFallsBackToDefault() {
+        manager.getDynamicLogConfig().setPropagationMaxPerMinute(null);
+        int started = 0;
+        for (int i = 0; i < 100; i++) {
+            TraceContext context = lifecycle.beginPropagated(null, null, "DEBUG", null, 1, "SampleService", "call");
+            if (context != null) {
+                started++;
+                lifecycle.endDetached(context);
+            }
+        }
+        assertEquals(60, started);
+    }
+}
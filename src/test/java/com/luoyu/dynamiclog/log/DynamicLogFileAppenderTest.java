@@ -0,0 +1,78 @@
+package com.luoyu.dynamiclog.log;
+
+import com.luoyu.dynamiclog.config.DynamicLogConfig;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 动态日志文件追加器测试（切换输出文件）
+ *
+ * @author system
+ * @date 2024-01-01
+ */
+public class DynamicLogFileAppenderTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void reopenSwitchesToNewFile() throws Exception {
+        File first = folder.newFolder("first");
+        File second = folder.newFolder("second");
+        DynamicLogFileAppender appender = new DynamicLogFileAppender();
+        appender.init(new DynamicLogConfig(), first.getPath(), "trace.log");
+        appender.append("TRACE", "before switch");
+
+        appender.reopen(second.getPath(), "switched.log");
+        appender.append("TRACE", "after switch");
+        appender.close();
+
+        String before = read(new File(first, "trace.log"));
+        String after = read(new File(second, "switched.log"));
+        assertTrue(before.contains("before switch"));
+        assertFalse(before.contains("after switch"));
+        assertTrue(after.contains("after switch"));
+    }
+
+    @Test
+    public void reopenEnablesOutputConfiguredLater() throws Exception {
+        DynamicLogFileAppender appender = new DynamicLogFileAppender();
+        appender.init(new DynamicLogConfig(), null, null);
+        assertFalse(appender.isEnabled());
+
+        File dir = folder.newFolder("remote");
+        appender.reopen(dir.getPath(), "remote.log");
+        assertTrue(appender.isEnabled());
+        appender.close();
+
+        appender.reopen(folder.newFolder("closed").getPath(), "closed.log");
+        assertFalse(appender.isEnabled());
+    }
+
+    @Test
+    public void asyncWriterFallsBackToDefaultsForOutOfRangeSettings() throws Exception {
+        DynamicLogConfig config = new DynamicLogConfig();
+        config.setLogWriteMode("async");
+        config.setLogFlushIntervalMs(0L);
+        config.setLogBufferSize(0);
+        File dir = folder.newFolder("async");
+        DynamicLogFileAppender appender = new DynamicLogFileAppender();
+        appender.init(config, dir.getPath(), "async.log");
+        assertTrue(appender.isEnabled());
+        appender.append("TRACE", "async line");
+        appender.close();
+
+        assertTrue(read(new File(dir, "async.log")).contains("async line"));
+    }
+
+    private static String read(File file) throws Exception {
+        return new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+    }
+}
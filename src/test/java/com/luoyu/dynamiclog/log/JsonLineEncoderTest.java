@@ -0,0 +1,82 @@
+package com.luoyu.dynamiclog.log;
+
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * JSON Lines编码器测试（转义、代理对和追溯日志输出）
+ *
+ * @author system
+ * @date 2024-01-01
+ */
+public class JsonLineEncoderTest {
+
+    @Test
+    public void escapesControlAndQuoteCharacters() {
+        String line = encode(new JsonLineEncoder(16).beginObject()
+                .field("v", "a\"b\\c\nd\re\tf\u0001g").field("n", 7L).endObject());
+
+        assertEquals("{\"v\":\"a\\\"b\\\\c\\nd\\re\\tf\\u0001g\",\"n\":7}", line);
+    }
+
+    @Test
+    public void encodesSurrogatePairsAsUtf8() {
+        String value = "日志😀";
+        JsonLineEncoder json = new JsonLineEncoder(4).beginObject().field("v", value).endObject();
+
+        assertEquals("{\"v\":\"" + value + "\"}", encode(json));
+        // 2个3字节汉字 + 1个4字节表情 + 固定的8个字节
+        assertEquals(18, json.getBuffer().length());
+    }
+
+    @Test
+    public void replacesUnpairedSurrogates() {
+        String line = encode(new JsonLineEncoder(16).beginObject()
+                .field("high", "a\uD83Db").field("low", "\uDE00").endObject());
+
+        assertEquals("{\"high\":\"a?b\",\"low\":\"?\"}", line);
+    }
+
+    @Test
+    public void nestedValuesGetCommas() {
+        JsonLineEncoder json = new JsonLineEncoder(16).beginObject().name("list").beginArray();
+        json.value(1L).beginObject().field("ok", true).endObject().value((String) null);
+        String line = encode(json.endArray().endObject());
+
+        assertEquals("{\"list\":[1,{\"ok\":true},null]}", line);
+    }
+
+    @Test
+    public void retroRingWritesOneLinePerRetainedEntry() {
+        RetroLogRing ring = RetroLogRing.begin(2, "DEBUG");
+        try {
+            ring.record(1L, "DEBUG", "a", "first {}", new Object[]{1}, null);
+            ring.record(2L, "DEBUG", "b", "second {}", new Object[]{"x\ny"}, null);
+            ring.record(3L, "INFO", "c", "third", null, new IllegalStateException("boom"));
+
+            JsonLineEncoder json = new JsonLineEncoder(16);
+            ring.writeJsonTo(json, line -> line.field("type", "retro-log"));
+            String[] lines = encode(json).split("\n");
+
+            assertEquals(1L, ring.getOverwritten());
+            assertEquals(2, lines.length);
+            assertEquals("{\"type\":\"retro-log\",\"seq\":1,\"logTs\":\"" + TimestampCache.formatText(2L)
+                    + "\",\"level\":\"DEBUG\",\"logger\":\"b\",\"message\":\"second x\\ny\"}", lines[0]);
+            assertTrue(lines[1].contains("\"level\":\"INFO\",\"logger\":\"c\",\"message\":\"third\","
+                    + "\"throwable\":\"java.lang.IllegalStateException: boom"));
+        } finally {
+            RetroLogRing.end();
+            ring.clear();
+        }
+    }
+
+    private static String encode(JsonLineEncoder json) {
+        LogLineBuffer buffer = json.getBuffer();
+        return new String(Arrays.copyOf(buffer.array(), buffer.length()), StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,111 @@
+package com.luoyu.dynamiclog.log;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import org.junit.After;
+import org.junit.Test;
+import org.slf4j.LoggerFactory;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 日志级别管理器测试
+ *
+ * @author system
+ * @date 2024-01-01
+ */
+public class LoggerLevelManagerTest {
+    private static final String PACKAGE_LOGGER = "com.luoyu.dynamiclog.test.controller";
+    private static final String EXPLICIT_LOGGER = "com.luoyu.dynamiclog.test.explicit";
+
+    @After
+    public void tearDown() {
+        LoggerLevelManager.clearAll();
+        logback(PACKAGE_LOGGER).setLevel(null);
+        logback(EXPLICIT_LOGGER).setLevel(null);
+    }
+
+    @Test
+    public void restoreLetsLoggerWithoutOwnLevelInheritAgain() {
+        Logger logger = logback(PACKAGE_LOGGER);
+        assertNull(logger.getLevel());
+
+        LoggerLevelManager.setLoggerLevel(PACKAGE_LOGGER, "DEBUG");
+        assertEquals(Level.DEBUG, logger.getLevel());
+        assertNull(LoggerLevelManager.getOriginalLevel(PACKAGE_LOGGER));
+
+        LoggerLevelManager.restoreLoggerLevel(PACKAGE_LOGGER);
+        assertNull(logger.getLevel());
+        assertEquals(logback(org.slf4j.Logger.ROOT_LOGGER_NAME).getLevel(), logger.getEffectiveLevel());
+        assertFalse(LoggerLevelManager.getModifiedLevels().containsKey(PACKAGE_LOGGER));
+    }
+
+    @Test
+    public void restoreKeepsExplicitLevel() {
+        Logger logger = logback(EXPLICIT_LOGGER);
+        logger.setLevel(Level.WARN);
+
+        LoggerLevelManager.setLoggerLevel(EXPLICIT_LOGGER, "TRACE");
+        assertEquals(Level.TRACE, logger.getLevel());
+
+        LoggerLevelManager.restoreLoggerLevel(EXPLICIT_LOGGER);
+        assertEquals(Level.WARN, logger.getLevel());
+    }
+
+    @Test
+    public void batchRestoreLetsLoggerInheritAgain() {
+        Logger logger = logback(PACKAGE_LOGGER);
+
+        LoggerLevelManager.applyLoggerLevels(Collections.singletonMap(PACKAGE_LOGGER, "DEBUG"));
+        assertEquals(Level.DEBUG, logger.getLevel());
+
+        LoggerLevelManager.applyLoggerLevels(Collections.emptyMap());
+        assertNull(logger.getLevel());
+        assertFalse(LoggerLevelManager.getModifiedLevels().containsKey(PACKAGE_LOGGER));
+    }
+
+    @Test
+    public void restoreLoggerLevelsKeepsOtherModifiedLoggers() {
+        LoggerLevelManager.setLoggerLevel(PACKAGE_LOGGER, "DEBUG");
+        LoggerLevelManager.setLoggerLevel(EXPLICIT_LOGGER, "TRACE");
+
+        LevelChangeResult result = LoggerLevelManager.restoreLoggerLevels(Collections.singletonList(PACKAGE_LOGGER));
+        assertEquals(1, result.getChangedCount());
+        assertFalse(result.isRolledBack());
+        assertNull(logback(PACKAGE_LOGGER).getLevel());
+        assertEquals(Level.TRACE, logback(EXPLICIT_LOGGER).getLevel());
+        assertEquals(Collections.singleton(EXPLICIT_LOGGER), LoggerLevelManager.getModifiedLevels().keySet());
+    }
+
+    @Test
+    public void rollbackRevertsBatch() {
+        logback(EXPLICIT_LOGGER).setLevel(Level.WARN);
+        LoggerLevelManager.setLoggerLevel(PACKAGE_LOGGER, "DEBUG");
+
+        Map<String, String> desired = new HashMap<>();
+        desired.put(EXPLICIT_LOGGER, "TRACE");
+        LevelChangeResult result = LoggerLevelManager.applyLoggerLevels(desired);
+        assertEquals(2, result.getChangedCount());
+        assertNull(logback(PACKAGE_LOGGER).getLevel());
+
+        LoggerLevelManager.rollbackLoggerLevels(result);
+        assertTrue(result.isRolledBack());
+        assertEquals(Level.DEBUG, logback(PACKAGE_LOGGER).getLevel());
+        assertEquals(Level.WARN, logback(EXPLICIT_LOGGER).getLevel());
+        assertEquals(Collections.singletonMap(PACKAGE_LOGGER, "DEBUG"), LoggerLevelManager.getModifiedLevels());
+
+        LoggerLevelManager.restoreLoggerLevel(PACKAGE_LOGGER);
+        assertNull(logback(PACKAGE_LOGGER).getLevel());
+    }
+
+    private static Logger logback(String name) {
+        return (Logger) LoggerFactory.getLogger(name);
+    }
+}
@@ -0,0 +1,126 @@
+package com.luoyu.dynamiclog.log;
+
+import org.apache.commons.lang3.StringUtils;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 内存映射分段写入器测试（预留位置、段尾填充、关闭截断、保留策略）
+ *
+ * @author system
+ * @date 2024-01-01
+ */
+public class MappedSegmentLogWriterTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void concurrentWritersReserveDisjointSlots() throws Exception {
+        File logFile = new File(folder.getRoot(), "trace.log");
+        MappedSegmentLogWriter writer = new MappedSegmentLogWriter(logFile, 1024 * 1024);
+        int threads = 8;
+        int linesPerThread = 1000;
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> workers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            int thread = t;
+            Thread worker = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int i = 0; i < linesPerThread; i++) {
+                    byte[] line = String.format("%02d-%04d\n", thread, i).getBytes(StandardCharsets.UTF_8);
+                    writer.write(line, 0, line.length);
+                }
+            });
+            worker.start();
+            workers.add(worker);
+        }
+        start.countDown();
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        writer.close();
+
+        File segment = new File(folder.getRoot(), "trace.log.000001");
+        String content = read(segment);
+        String[] lines = content.split("\n");
+        assertEquals(threads * linesPerThread, lines.length);
+        Set<String> unique = new HashSet<>();
+        for (String line : lines) {
+            assertTrue(line, line.matches("\\d{2}-\\d{4}"));
+            unique.add(line);
+        }
+        assertEquals(threads * linesPerThread, unique.size());
+        // 关闭时截断到实际写入长度
+        assertEquals(threads * linesPerThread * 8L, segment.length());
+    }
+
+    @Test
+    public void fullSegmentIsPaddedAndRolled() throws Exception {
+        File logFile = new File(folder.getRoot(), "trace.log");
+        MappedSegmentLogWriter writer = new MappedSegmentLogWriter(logFile, 64);
+        byte[] line = (StringUtils.repeat('a', 29) + "\n").getBytes(StandardCharsets.UTF_8);
+        for (int i = 0; i < 3; i++) {
+            writer.write(line, 0, line.length);
+        }
+        writer.close();
+
+        String first = read(new File(folder.getRoot(), "trace.log.000001"));
+        assertEquals(64, first.length());
+        assertTrue(first.startsWith(new String(line, StandardCharsets.UTF_8) + new String(line, StandardCharsets.UTF_8)));
+        assertEquals("   \n", first.substring(60));
+        assertEquals(new String(line, StandardCharsets.UTF_8), read(new File(folder.getRoot(), "trace.log.000002")));
+    }
+
+    @Test
+    public void oversizedLineIsDropped() throws Exception {
+        File logFile = new File(folder.getRoot(), "trace.log");
+        MappedSegmentLogWriter writer = new MappedSegmentLogWriter(logFile, 64);
+        byte[] line = (StringUtils.repeat('a', 99) + "\n").getBytes(StandardCharsets.UTF_8);
+        writer.write(line, 0, line.length);
+        writer.close();
+
+        assertEquals(0, new File(folder.getRoot(), "trace.log.000001").length());
+        assertFalse(new File(folder.getRoot(), "trace.log.000002").exists());
+    }
+
+    @Test
+    public void retentionKeepsNewestFullSegments() throws Exception {
+        File logFile = new File(folder.getRoot(), "trace.log");
+        MappedSegmentLogWriter writer = new MappedSegmentLogWriter(logFile, 32, 2, 0L);
+        byte[] line = (StringUtils.repeat('b', 31) + "\n").getBytes(StandardCharsets.UTF_8);
+        for (int i = 0; i < 6; i++) {
+            writer.write(line, 0, line.length);
+        }
+        writer.close();
+
+        // 每段恰好写满一条，第6条写在第6段：保留第4、5段和当前段
+        for (int index = 1; index <= 3; index++) {
+            assertFalse(new File(folder.getRoot(), String.format("trace.log.%06d", index)).exists());
+        }
+        for (int index = 4; index <= 6; index++) {
+            assertTrue(new File(folder.getRoot(), String.format("trace.log.%06d", index)).exists());
+        }
+    }
+
+    private static String read(File file) throws Exception {
+        return new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,67 @@
+package com.luoyu.dynamiclog.log;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.slf4j.LoggerFactory;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 请求日志捕获过滤器测试
+ *
+ * @author system
+ * @date 2024-01-01
+ */
+public class RequestCaptureTurboFilterTest {
+    private static final String LOGGER_NAME = "com.luoyu.dynamiclog.test.capture";
+
+    private final RequestCaptureTurboFilter filter = new RequestCaptureTurboFilter();
+    private Logger logger;
+
+    @Before
+    public void setUp() {
+        filter.install();
+        logger = (Logger) LoggerFactory.getLogger(LOGGER_NAME);
+        logger.setLevel(Level.INFO);
+        logger.setAdditive(false);
+    }
+
+    @After
+    public void tearDown() {
+        RequestLogBuffer.unbind();
+        ((LoggerContext) LoggerFactory.getILoggerFactory()).getTurboFilterList().remove(filter);
+        logger.setLevel(null);
+        logger.setAdditive(true);
+    }
+
+    @Test
+    public void capturesNonAdditiveLoggerOnBoundThread() {
+        RequestLogBuffer buffer = new RequestLogBuffer(4096);
+        RequestLogBuffer.bind(buffer);
+        logger.info("order {} created", 42, new IllegalStateException("boom"));
+        logger.debug("below effective level");
+
+        String content = buffer.getContent();
+        assertEquals(1, buffer.getCapturedCount());
+        assertTrue(content.contains("INFO " + LOGGER_NAME + " - order 42 created"));
+        assertTrue(content.contains("java.lang.IllegalStateException: boom"));
+        assertFalse(content.contains("below effective level"));
+    }
+
+    @Test
+    public void ignoresUnboundThreads() throws Exception {
+        RequestLogBuffer buffer = new RequestLogBuffer(4096);
+        RequestLogBuffer.bind(buffer);
+        Thread other = new Thread(() -> logger.info("from another thread"));
+        other.start();
+        other.join();
+
+        assertEquals(0, buffer.getCapturedCount());
+    }
+}
@@ -0,0 +1,99 @@
+package com.luoyu.dynamiclog.match;
+
+import com.luoyu.dynamiclog.config.InterfaceLogConfig;
+import org.springframework.util.AntPathMatcher;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 接口路径匹配索引基准测试（手动运行，不在构建时执行）
+ * <p>
+ * 分别配置1、100、10000个接口，对比段树索引与逐个{@link AntPathMatcher}匹配的单次查找耗时，
+ * 执行{@code mvn test-compile}后以测试类路径运行main方法。
+ *
+ * @author system
+ * @date 2024-01-01
+ */
+public class InterfacePathIndexBenchmark {
+    private static final int[] PATTERN_COUNTS = {1, 100, 10_000};
+    private static final String[] PATHS = {
+            "/svc0/api/42/detail",
+            "/svc7/orders/2024/export",
+            "/unknown/path/that/matches/nothing"
+    };
+    private static volatile Object sink;
+
+    private InterfacePathIndexBenchmark() {
+    }
+
+    public static void main(String[] args) {
+        System.out.printf("%-10s %18s %18s%n", "patterns", "index (ns/op)", "linear (ns/op)");
+        for (int count : PATTERN_COUNTS) {
+            List<InterfaceLogConfig> configs = createConfigs(count);
+            InterfacePathIndex index = InterfacePathIndex.build(configs);
+            AntPathMatcher matcher = new AntPathMatcher();
+
+            int iterations = Math.max(2_000, 2_000_000 / count);
+            // 预热
+            measureIndex(index, iterations);
+            measureLinear(configs, matcher, iterations);
+
+            System.out.printf("%-10d %18.1f %18.1f%n", count,
+                    measureIndex(index, iterations), measureLinear(configs, matcher, iterations));
+        }
+    }
+
+    private static double measureIndex(InterfacePathIndex index, int iterations) {
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            sink = index.matchAll(PATHS[i % PATHS.length], "GET");
+        }
+        return (double) (System.nanoTime() - start) / iterations;
+    }
+
+    private static double measureLinear(List<InterfaceLogConfig> configs, AntPathMatcher matcher, int iterations) {
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            String path = PATHS[i % PATHS.length];
+            InterfaceLogConfig matched = null;
+            for (InterfaceLogConfig config : configs) {
+                if (matcher.match(config.getPath(), path)) {
+                    matched = config;
+                    break;
+                }
+            }
+            sink = matched;
+        }
+        return (double) (System.nanoTime() - start) / iterations;
+    }
+
+    /**
+     * 生成接口配置：精确、单段通配、多段通配和段内通配混合
+     *
+     * @param count 接口数
+     * @return 接口配置
+     */
+    private static List<InterfaceLogConfig> createConfigs(int count) {
+        List<InterfaceLogConfig> configs = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            String path;
+            switch (i % 4) {
+                case 0:
+                    path = "/svc" + i + "/api/{id}/detail";
+                    break;
+                case 1:
+                    path = "/svc" + i + "/api/list";
+                    break;
+                case 2:
+                    path = "/svc" + i + "/**/export";
+                    break;
+                default:
+                    path = "/svc" + i + "/files/*.png";
+                    break;
+            }
+            configs.add(InterfacePathIndexTest.config(path, null));
+        }
+        return configs;
+    }
+}
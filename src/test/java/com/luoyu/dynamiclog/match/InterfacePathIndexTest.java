@@ -0,0 +1,124 @@
+package com.luoyu.dynamiclog.match;
+
+import com.luoyu.dynamiclog.config.InterfaceLogConfig;
+import org.junit.Test;
+import org.springframework.util.AntPathMatcher;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+/**
+ * 接口路径匹配索引测试（匹配结果与{@link AntPathMatcher}对照）
+ *
+ * @author system
+ * @date 2024-01-01
+ */
+public class InterfacePathIndexTest {
+    private static final List<String> PATTERNS = Arrays.asList(
+            "/api/user/list",
+            "/api/user/*",
+            "/api/*/detail",
+            "/api/**",
+            "/api/**/export",
+            "/**/health",
+            "/order/??/item",
+            "/order/item-*.json",
+            "/order/*-v?/info",
+            "/user/{id}/profile",
+            "/files/**/*.png",
+            "/**");
+
+    private static final List<String> PATHS = Arrays.asList(
+            "/api/user/list",
+            "/api/user/1",
+            "/api/user/1/2",
+            "/api/order/detail",
+            "/api/detail",
+            "/api",
+            "/api/a/b/c/export",
+            "/api/export",
+            "/health",
+            "/a/b/health",
+            "/order/ab/item",
+            "/order/abc/item",
+            "/order/a/item",
+            "/order/item-1.json",
+            "/order/item-.json",
+            "/order/item-1.xml",
+            "/order/x-v1/info",
+            "/order/x-v12/info",
+            "/user/42/profile",
+            "/user/profile",
+            "/files/a.png",
+            "/files/x/y/a.png",
+            "/files/x/y/a.jpg",
+            "/other/path");
+
+    private final AntPathMatcher antPathMatcher = new AntPathMatcher();
+
+    @Test
+    public void singlePatternMatchesLikeAntPathMatcher() {
+        for (String pattern : PATTERNS) {
+            InterfacePathIndex index = InterfacePathIndex.build(Collections.singletonList(config(pattern, null)));
+            for (String path : PATHS) {
+                boolean expected = antPathMatcher.match(pattern, path);
+                assertEquals(pattern + " vs " + path, expected, index.match(path, "GET") != null);
+            }
+        }
+    }
+
+    @Test
+    public void firstConfiguredPatternWins() {
+        InterfaceLogConfig exact = config("/api/user/list", null);
+        InterfaceLogConfig single = config("/api/user/*", null);
+        InterfaceLogConfig any = config("/api/**", null);
+        InterfacePathIndex index = InterfacePathIndex.build(Arrays.asList(any, single, exact));
+
+        assertSame(any, index.match("/api/user/list", "GET"));
+        assertEquals(Arrays.asList(any, single, exact), index.matchAll("/api/user/list", "GET"));
+        assertEquals(Arrays.asList(any, single), index.matchAll("/api/user/1", "GET"));
+    }
+
+    @Test
+    public void methodSpecificAndWildcardMethod() {
+        InterfaceLogConfig post = config("/api/user/list", "POST");
+        InterfaceLogConfig anyMethod = config("/api/user/list", null);
+        InterfacePathIndex index = InterfacePathIndex.build(Arrays.asList(post, anyMethod));
+
+        assertSame(post, index.match("/api/user/list", "POST"));
+        assertSame(post, index.match("/api/user/list", "post"));
+        assertSame(anyMethod, index.match("/api/user/list", "GET"));
+        assertEquals(Arrays.asList(post, anyMethod), index.matchAll("/api/user/list", "POST"));
+
+        // 不限方法的配置排在前面时优先
+        index = InterfacePathIndex.build(Arrays.asList(anyMethod, post));
+        assertSame(anyMethod, index.match("/api/user/list", "POST"));
+    }
+
+    @Test
+    public void methodSpecificDoesNotMatchOtherMethods() {
+        InterfacePathIndex index = InterfacePathIndex.build(
+                Collections.singletonList(config("/api/user/*", "DELETE")));
+        assertNull(index.match("/api/user/1", "GET"));
+        assertEquals(Collections.emptyList(), index.matchAll("/api/user/1", "GET"));
+    }
+
+    @Test
+    public void emptyIndexMatchesNothing() {
+        assertNull(InterfacePathIndex.empty().match("/api/user/list", "GET"));
+        assertNull(InterfacePathIndex.build(null).match("/api/user/list", "GET"));
+        assertNull(InterfacePathIndex.build(Collections.singletonList(config("/api/**", null))).match(null, "GET"));
+    }
+
+    static InterfaceLogConfig config(String path, String method) {
+        InterfaceLogConfig config = new InterfaceLogConfig();
+        config.setPath(path);
+        config.setMethod(method);
+        return config;
+    }
+}
@@ -0,0 +1,75 @@
+package com.luoyu.dynamiclog.match;
+
+import com.luoyu.dynamiclog.config.MatchCondition;
+import org.junit.Test;
+
+import javax.servlet.http.HttpServletRequest;
+import java.lang.reflect.Proxy;
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 请求条件匹配器测试
+ *
+ * @author system
+ * @date 2024-01-01
+ */
+public class RequestConditionMatcherTest {
+    private final RequestConditionMatcher matcher = RequestConditionMatcher.compile(
+            Collections.singletonList(paramCondition("tenant", "t001")));
+
+    @Test
+    public void formRequestMatchesQueryStringWithoutReadingBody() {
+        assertTrue(matcher.matches(request("application/x-www-form-urlencoded; charset=UTF-8", "a=1&tenant=t001")));
+        assertFalse(matcher.matches(request("multipart/form-data; boundary=x", "a=1")));
+    }
+
+    @Test
+    public void nonFormRequestUsesParameters() {
+        assertTrue(matcher.matches(request("application/json", "ignored=1")));
+        assertTrue(matcher.matches(request(null, null)));
+    }
+
+    @Test
+    public void queryParameterDecodesNamesAndValues() {
+        assertEquals("t 001", RequestConditionMatcher.queryParameter("x=1&ten%61nt=t+001&tenant=t002", "tenant"));
+        assertEquals("", RequestConditionMatcher.queryParameter("flag&tenant", "tenant"));
+        assertEquals("t001", RequestConditionMatcher.queryParameter("bad=%zz&tenant=t001", "tenant"));
+        assertNull(RequestConditionMatcher.queryParameter("a=1", "tenant"));
+        assertNull(RequestConditionMatcher.queryParameter(null, "tenant"));
+    }
+
+    private static MatchCondition paramCondition(String name, String value) {
+        MatchCondition condition = new MatchCondition();
+        condition.setSource("param");
+        condition.setName(name);
+        condition.setValue(value);
+        return condition;
+    }
+
+    /**
+     * 模拟请求：getParameter总是返回t001，表单请求调用getParameter时失败（模拟读取请求体）
+     */
+    private static HttpServletRequest request(String contentType, String queryString) {
+        return (HttpServletRequest) Proxy.newProxyInstance(RequestConditionMatcherTest.class.getClassLoader(),
+                new Class<?>[]{HttpServletRequest.class}, (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "getContentType":
+                            return contentType;
+                        case "getQueryString":
+                            return queryString;
+                        case "getParameter":
+                            if (contentType != null && contentType.contains("form")) {
+                                throw new AssertionError("form body must not be read");
+                            }
+                            return "t001";
+                        default:
+                            return null;
+                    }
+                });
+    }
+}
@@ -0,0 +1,308 @@
+package com.luoyu.dynamiclog.nacos;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import com.luoyu.dynamiclog.config.DynamicLogConfig;
+import com.luoyu.dynamiclog.config.InterfaceLogConfig;
+import com.luoyu.dynamiclog.log.LoggerLevelManager;
+import com.luoyu.dynamiclog.quota.InMemoryQuotaBackend;
+import com.luoyu.dynamiclog.source.InProcessConfigSource;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Nacos配置管理器测试（使用进程内配置来源）
+ *
+ * @author system
+ * @date 2024-01-01
+ */
+public class NacosConfigManagerTest {
+    private static final String LOGGER_A = "com.luoyu.dynamiclog.test.a";
+    private static final String LOGGER_B = "com.luoyu.dynamiclog.test.b";
+
+    private NacosConfigManager manager;
+
+    @Before
+    public void setUp() throws Exception {
+        DynamicLogConfig config = new DynamicLogConfig();
+        config.setConfigLoadAsync(false);
+        manager = new NacosConfigManager();
+        manager.init(config, new InProcessConfigSource("{\"enabled\": true, \"interfaces\": []}"));
+    }
+
+    @After
+    public void tearDown() {
+        manager.shutdown();
+        LoggerLevelManager.clearAll();
+        logback(LOGGER_A).setLevel(null);
+        logback(LOGGER_B).setLevel(null);
+    }
+
+    @Test
+    public void expiredSessionWithoutTraceInFlightRestoresLoggers() {
+        InterfaceLogConfig session = session("/api/expired", System.currentTimeMillis() - 1000L);
+        assertTrue(manager.startSession(session));
+        InterfaceLogConfig current = manager.getSnapshot().getInterfaces().get(0);
+        elevate(current, LOGGER_A);
+
+        manager.restoreExpiredSessions();
+
+        assertNull(logback(LOGGER_A).getLevel());
+        assertTrue(current.getElevatedLoggers().isEmpty());
+    }
+
+    @Test
+    public void expiredSessionWithTraceInFlightKeepsLoggers() {
+        assertTrue(manager.startSession(session("/api/busy", System.currentTimeMillis() - 1000L)));
+        InterfaceLogConfig current = manager.getSnapshot().getInterfaces().get(0);
+        elevate(current, LOGGER_A);
+        assertTrue(current.getTraceBudget().tryReserve());
+
+        manager.restoreExpiredSessions();
+        assertEquals(Level.DEBUG, logback(LOGGER_A).getLevel());
+
+        current.getTraceBudget().finish();
+        manager.restoreExpiredSessions();
+        assertNull(logback(LOGGER_A).getLevel());
+    }
+
+    @Test
+    public void activeSessionKeepsLoggers() {
+        assertTrue(manager.startSession(session("/api/active", System.currentTimeMillis() + 60_000L)));
+        InterfaceLogConfig current = manager.getSnapshot().getInterfaces().get(0);
+        elevate(current, LOGGER_A);
+
+        manager.restoreExpiredSessions();
+        assertEquals(Level.DEBUG, logback(LOGGER_A).getLevel());
+    }
+
+    @Test
+    public void stopSessionRestoresOnlyItsOwnLoggers() {
+        long endTime = System.currentTimeMillis() + 60_000L;
+        assertTrue(manager.startSession(session("/api/first", endTime)));
+        assertTrue(manager.startSession(session("/api/second", endTime)));
+        InterfaceLogConfig first = find("/api/first");
+        InterfaceLogConfig second = find("/api/second");
+        elevate(first, LOGGER_A);
+        elevate(first, LOGGER_B);
+        elevate(second, LOGGER_B);
+
+        assertTrue(manager.stopSession("/api/first", null));
+
+        assertNull(logback(LOGGER_A).getLevel());
+        assertEquals(Level.DEBUG, logback(LOGGER_B).getLevel());
+        assertTrue(first.getElevatedLoggers().isEmpty());
+
+        assertTrue(manager.stopSession("/api/second", null));
+        assertNull(logback(LOGGER_B).getLevel());
+    }
+
+    @Test
+    public void removedSessionWithTraceInFlightRestoresAfterTrace() {
+        assertTrue(manager.startSession(session("/api/removed", System.currentTimeMillis() + 60_000L)));
+        InterfaceLogConfig removed = find("/api/removed");
+        elevate(removed, LOGGER_A);
+        assertTrue(removed.getTraceBudget().tryReserve());
+
+        assertTrue(manager.stopSession("/api/removed", null));
+        assertEquals(Level.DEBUG, logback(LOGGER_A).getLevel());
+
+        removed.getTraceBudget().finish();
+        manager.restoreExpiredSessions();
+        assertNull(logback(LOGGER_A).getLevel());
+    }
+
+    @Test
+    public void remoteConfigSharesClusterQuotaPerVersion() throws Exception {
+        InMemoryQuotaBackend backend = new InMemoryQuotaBackend();
+        String content = "{\"enabled\": true, \"interfaces\": [{\"path\": \"/api/quota\", \"logLevel\": \"DEBUG\", \"count\": 1}]}";
+        String bumped = "{\"enabled\": true, \"version\": \"2\", "
+                + "\"interfaces\": [{\"path\": \"/api/quota\", \"logLevel\": \"DEBUG\", \"count\": 1}]}";
+
+        NacosConfigManager first = clusterManager(backend, content);
+        NacosConfigManager joined = clusterManager(backend, content);
+        NacosConfigManager republished = clusterManager(backend, bumped);
+        try {
+            assertTrue(first.getSnapshot().getInterfaces().get(0).getTraceBudget().tryReserve());
+            assertFalse(joined.getSnapshot().getInterfaces().get(0).getTraceBudget().tryReserve());
+            assertTrue(republished.getSnapshot().getInterfaces().get(0).getTraceBudget().tryReserve());
+        } finally {
+            first.shutdown();
+            joined.shutdown();
+            republished.shutdown();
+        }
+    }
+
+    @Test
+    public void endpointStartGetsFreshClusterQuota() throws Exception {
+        NacosConfigManager clustered = clusterManager(new InMemoryQuotaBackend(), "{\"enabled\": true, \"interfaces\": []}");
+        try {
+            for (int i = 0; i < 3; i++) {
+                InterfaceLogConfig session = session("/api/local", System.currentTimeMillis() + 60_000L);
+                session.setCount(1);
+                assertTrue(clustered.startSession(session));
+                InterfaceLogConfig current = clustered.getSnapshot().getInterfaces().get(0);
+                assertTrue(current.getTraceBudget().tryReserve());
+                assertFalse(current.getTraceBudget().tryReserve());
+                current.getTraceBudget().finish();
+            }
+        } finally {
+            clustered.shutdown();
+        }
+    }
+
+    @Test
+    public void snapshotListenerSeesCurrentAndPublishedSnapshots() {
+        List<Long> generations = new ArrayList<>();
+        manager.addSnapshotListener(snapshot -> generations.add(snapshot.getGeneration()));
+        long current = manager.getSnapshot().getGeneration();
+
+        assertTrue(manager.startSession(session("/api/listened", System.currentTimeMillis() + 60_000L)));
+        assertEquals(Arrays.asList(current, current + 1), generations);
+    }
+
+    @Test
+    public void legacyConfigWithRemovedFieldsIsAccepted() throws Exception {
+        String content = "{\"enabled\": true, \"interfaces\": [{\"path\": \"/api/legacy\", \"logLevel\": \"DEBUG\", "
+                + "\"count\": 3, \"currentCount\": 1, \"completed\": false}]}";
+        NacosConfigManager legacy = new NacosConfigManager();
+        DynamicLogConfig config = new DynamicLogConfig();
+        config.setConfigLoadAsync(false);
+        legacy.init(config, new InProcessConfigSource(content));
+        try {
+            assertEquals(1, legacy.getSnapshot().getInterfaces().size());
+            assertEquals("/api/legacy", legacy.getSnapshot().getInterfaces().get(0).getPath());
+        } finally {
+            legacy.shutdown();
+        }
+    }
+
+    @Test
+    public void rapidConfigChangesAreDebouncedToTheLast() throws Exception {
+        InProcessConfigSource source = new InProcessConfigSource("{\"enabled\": true, \"interfaces\": []}");
+        NacosConfigManager debounced = reloadingManager(source, 200L);
+        try {
+            List<Long> generations = new ArrayList<>();
+            debounced.addSnapshotListener(snapshot -> generations.add(snapshot.getGeneration()));
+            long initial = debounced.getSnapshot().getGeneration();
+
+            for (int i = 1; i <= 3; i++) {
+                source.publish(remoteConfig("/api/v" + i, 5));
+            }
+            assertEquals(initial, debounced.getSnapshot().getGeneration());
+
+            awaitGeneration(debounced, initial + 1);
+            Thread.sleep(300L);
+            assertEquals(Arrays.asList(initial, initial + 1), generations);
+            assertEquals("/api/v3", debounced.getSnapshot().getInterfaces().get(0).getPath());
+        } finally {
+            debounced.shutdown();
+        }
+    }
+
+    @Test
+    public void reloadKeepsUnchangedInterfacesAndTheirProgress() throws Exception {
+        InProcessConfigSource source = new InProcessConfigSource(
+                "{\"enabled\": true, \"interfaces\": [" + interfaceJson("/api/kept", 5) + ", " + interfaceJson("/api/changed", 5) + "]}");
+        NacosConfigManager reloading = reloadingManager(source, 0L);
+        try {
+            InterfaceLogConfig kept = findIn(reloading, "/api/kept");
+            InterfaceLogConfig changed = findIn(reloading, "/api/changed");
+            assertTrue(kept.getTraceBudget().tryReserve());
+            kept.getTraceBudget().finish();
+            long generation = reloading.getSnapshot().getGeneration();
+
+            source.publish("{\"enabled\": true, \"interfaces\": [" + interfaceJson("/api/kept", 5) + ", "
+                    + interfaceJson("/api/changed", 1) + "]}");
+            awaitGeneration(reloading, generation + 1);
+
+            InterfaceLogConfig keptAfter = findIn(reloading, "/api/kept");
+            InterfaceLogConfig changedAfter = findIn(reloading, "/api/changed");
+            assertSame(kept, keptAfter);
+            assertSame(kept.getTraceBudget(), keptAfter.getTraceBudget());
+            assertNotSame(changed, changedAfter);
+            assertTrue(changedAfter.getTraceBudget().tryReserve());
+            assertFalse(changedAfter.getTraceBudget().tryReserve());
+        } finally {
+            reloading.shutdown();
+        }
+    }
+
+    private static NacosConfigManager reloadingManager(InProcessConfigSource source, long debounceMillis) throws Exception {
+        DynamicLogConfig config = new DynamicLogConfig();
+        config.setConfigLoadAsync(false);
+        config.setConfigReloadDebounceMs(debounceMillis);
+        NacosConfigManager reloading = new NacosConfigManager();
+        reloading.init(config, source);
+        return reloading;
+    }
+
+    private static void awaitGeneration(NacosConfigManager target, long generation) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000L;
+        while (target.getSnapshot().getGeneration() < generation && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10L);
+        }
+        assertEquals(generation, target.getSnapshot().getGeneration());
+    }
+
+    private static String remoteConfig(String path, int count) {
+        return "{\"enabled\": true, \"interfaces\": [" + interfaceJson(path, count) + "]}";
+    }
+
+    private static String interfaceJson(String path, int count) {
+        return "{\"path\": \"" + path + "\", \"logLevel\": \"DEBUG\", \"count\": " + count + "}";
+    }
+
+    private static InterfaceLogConfig findIn(NacosConfigManager target, String path) {
+        for (InterfaceLogConfig config : target.getSnapshot().getInterfaces()) {
+            if (path.equals(config.getPath())) {
+                return config;
+            }
+        }
+        throw new AssertionError("No interface for " + path);
+    }
+
+    private static NacosConfigManager clusterManager(InMemoryQuotaBackend backend, String content) throws Exception {
+        DynamicLogConfig config = new DynamicLogConfig();
+        config.setConfigLoadAsync(false);
+        NacosConfigManager clustered = new NacosConfigManager();
+        clustered.setQuotaBackend(backend);
+        clustered.init(config, new InProcessConfigSource(content));
+        return clustered;
+    }
+
+    private InterfaceLogConfig find(String path) {
+        return findIn(manager, path);
+    }
+
+    static InterfaceLogConfig session(String path, Long endTime) {
+        InterfaceLogConfig config = new InterfaceLogConfig();
+        config.setPath(path);
+        config.setLogLevel("DEBUG");
+        config.setCount(5);
+        config.setEndTime(endTime);
+        return config;
+    }
+
+    static void elevate(InterfaceLogConfig session, String loggerName) {
+        session.getElevatedLoggers().add(loggerName);
+        LoggerLevelManager.setLoggerLevel(loggerName, session.getLogLevel());
+    }
+
+    static Logger logback(String name) {
+        return (Logger) LoggerFactory.getLogger(name);
+    }
+}
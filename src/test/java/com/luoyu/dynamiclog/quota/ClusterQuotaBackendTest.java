@@ -0,0 +1,99 @@
+package com.luoyu.dynamiclog.quota;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * 集群配额后端并发租用和清理测试
+ *
+ * @author system
+ * @date 2024-01-01
+ */
+public class ClusterQuotaBackendTest {
+    private static final int THREADS = 16;
+    private static final int LIMIT = 1000;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void inMemoryAcquireGrantsExactlyLimit() throws Exception {
+        InMemoryQuotaBackend backend = new InMemoryQuotaBackend();
+        assertEquals(LIMIT, acquireConcurrently(backend, "memory", 3));
+        assertEquals(LIMIT, backend.getUsed("memory"));
+    }
+
+    @Test
+    public void localFileAcquireGrantsExactlyLimit() throws Exception {
+        LocalFileQuotaBackend backend = new LocalFileQuotaBackend(folder.getRoot().toPath());
+        assertEquals(LIMIT, acquireConcurrently(backend, "file", 3));
+        assertEquals(0, backend.acquire("file", LIMIT, 1));
+    }
+
+    @Test
+    public void inMemoryExpireRemovesIdleCounters() {
+        InMemoryQuotaBackend backend = new InMemoryQuotaBackend();
+        assertEquals(2, backend.acquire("idle", 2, 5));
+        assertEquals(0, backend.acquire("idle", 2, 1));
+
+        backend.expire(System.currentTimeMillis() - 60_000L);
+        assertEquals(2, backend.getUsed("idle"));
+
+        backend.expire(System.currentTimeMillis() + 1L);
+        assertEquals(0, backend.getUsed("idle"));
+        assertEquals(1, backend.acquire("idle", 2, 1));
+    }
+
+    @Test
+    public void localFileExpireDeletesIdleCounters() throws Exception {
+        File root = folder.getRoot();
+        LocalFileQuotaBackend backend = new LocalFileQuotaBackend(root.toPath());
+        assertEquals(2, backend.acquire("idle", 2, 5));
+
+        backend.expire(System.currentTimeMillis() - 60_000L);
+        assertEquals(1, root.listFiles().length);
+
+        backend.expire(System.currentTimeMillis() + 60_000L);
+        assertEquals(0, root.listFiles().length);
+        assertEquals(2, backend.acquire("idle", 2, 5));
+    }
+
+    private static int acquireConcurrently(ClusterQuotaBackend backend, String quotaKey, int batchSize) throws Exception {
+        AtomicInteger granted = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < THREADS; i++) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    int lease;
+                    while ((lease = backend.acquire(quotaKey, LIMIT, batchSize)) > 0) {
+                        granted.addAndGet(lease);
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get(60, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        return granted.get();
+    }
+}
@@ -0,0 +1,84 @@
+package com.luoyu.dynamiclog.quota;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 集群追踪次数预算测试：多个实例共享同一配额时追踪总数不超过集群名额
+ *
+ * @author system
+ * @date 2024-01-01
+ */
+public class ClusterTraceBudgetTest {
+    private static final int INSTANCES = 4;
+    private static final int THREADS_PER_INSTANCE = 4;
+    private static final int ATTEMPTS_PER_THREAD = 5_000;
+
+    @Test
+    public void instancesStayWithinClusterLimit() throws Exception {
+        for (int batchSize : new int[]{1, 3, 8}) {
+            int clusterLimit = 50;
+            InMemoryQuotaBackend backend = new InMemoryQuotaBackend();
+            List<ClusterTraceBudget> budgets = new ArrayList<>();
+            for (int i = 0; i < INSTANCES; i++) {
+                budgets.add(new ClusterTraceBudget(backend, "cluster-" + batchSize, clusterLimit, batchSize));
+            }
+
+            AtomicInteger traced = new AtomicInteger();
+            ExecutorService executor = Executors.newFixedThreadPool(INSTANCES * THREADS_PER_INSTANCE);
+            try {
+                CountDownLatch start = new CountDownLatch(1);
+                List<Future<?>> futures = new ArrayList<>();
+                for (ClusterTraceBudget budget : budgets) {
+                    for (int t = 0; t < THREADS_PER_INSTANCE; t++) {
+                        futures.add(executor.submit(() -> {
+                            start.await();
+                            for (int i = 0; i < ATTEMPTS_PER_THREAD; i++) {
+                                if (budget.tryReserve()) {
+                                    traced.incrementAndGet();
+                                    budget.finish();
+                                }
+                            }
+                            return null;
+                        }));
+                    }
+                }
+                start.countDown();
+                for (Future<?> future : futures) {
+                    future.get(60, TimeUnit.SECONDS);
+                }
+            } finally {
+                executor.shutdownNow();
+            }
+
+            assertEquals(clusterLimit, backend.getUsed("cluster-" + batchSize));
+            assertEquals(clusterLimit, traced.get());
+            for (ClusterTraceBudget budget : budgets) {
+                assertTrue(budget.isCompleted());
+                assertFalse(budget.tryReserve());
+            }
+        }
+    }
+
+    @Test
+    public void differentQuotaKeysDoNotShareLimit() {
+        InMemoryQuotaBackend backend = new InMemoryQuotaBackend();
+        ClusterTraceBudget first = new ClusterTraceBudget(backend, "first", 1, 1);
+        ClusterTraceBudget second = new ClusterTraceBudget(backend, "second", 1, 1);
+        assertTrue(first.tryReserve());
+        assertFalse(first.tryReserve());
+        assertTrue(second.tryReserve());
+    }
+}
@@ -0,0 +1,111 @@
+package com.luoyu.dynamiclog.trace;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 追踪次数预算并发测试
+ *
+ * @author system
+ * @date 2024-01-01
+ */
+public class TraceBudgetTest {
+    private static final int THREADS = 16;
+    private static final int ATTEMPTS_PER_THREAD = 20_000;
+
+    @Test
+    public void reservesAtMostLimitAndFinishesOnce() throws Exception {
+        for (int round = 0; round < 20; round++) {
+            int limit = 1 + round * 7;
+            TraceBudget budget = new TraceBudget(limit);
+            AtomicInteger traced = new AtomicInteger();
+            AtomicInteger lastFinishes = new AtomicInteger();
+            AtomicInteger maxReserved = new AtomicInteger();
+
+            runConcurrently(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                for (int i = 0; i < ATTEMPTS_PER_THREAD; i++) {
+                    if (!budget.tryReserve()) {
+                        continue;
+                    }
+                    maxReserved.accumulateAndGet(budget.getReserved(), Math::max);
+
+                    // 模拟追踪未能开始时归还名额
+                    if (random.nextInt(4) == 0) {
+                        budget.release();
+                        continue;
+                    }
+                    traced.incrementAndGet();
+                    if (budget.finish()) {
+                        lastFinishes.incrementAndGet();
+                    }
+                }
+            });
+
+            assertTrue("reserved exceeded limit " + limit, maxReserved.get() <= limit);
+            assertEquals(limit, budget.getReserved());
+            assertEquals(limit, traced.get());
+            assertEquals(1, lastFinishes.get());
+            assertTrue(budget.isExhausted());
+            assertTrue(budget.isCompleted());
+            assertFalse(budget.tryReserve());
+        }
+    }
+
+    @Test
+    public void zeroLimitNeverReserves() {
+        TraceBudget budget = new TraceBudget(0);
+        assertFalse(budget.tryReserve());
+        assertTrue(new TraceBudget(null).isExhausted());
+    }
+
+    @Test
+    public void inFlightBudgetFinishesWhenIdle() throws Exception {
+        InFlightTraceBudget budget = new InFlightTraceBudget();
+        AtomicInteger idle = new AtomicInteger();
+        runConcurrently(() -> {
+            for (int i = 0; i < ATTEMPTS_PER_THREAD; i++) {
+                assertTrue(budget.tryReserve());
+                if (budget.finish()) {
+                    idle.incrementAndGet();
+                }
+            }
+        });
+        assertEquals(0, budget.getReserved() - budget.getFinished());
+        assertTrue(idle.get() >= 1);
+    }
+
+    private static void runConcurrently(Runnable task) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < THREADS; i++) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    task.run();
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get(60, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}